@@ -0,0 +1,65 @@
+package mryapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import taskmanager.DateParser;
+import taskmanager.Task;
+import taskmanager.TaskGenerator;
+
+/**
+ * Measures reading a line of input: splitting off the command and its flags, and parsing the
+ * dates of the deadlines a user types, for each mix of parseable and free-text dates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+    private static final int LINE_COUNT = 1024;
+
+    @Param({"PARSEABLE", "HALF", "RAW"})
+    public TaskGenerator.Dates dates;
+
+    private final Parser parser = new Parser();
+    private final ParsedCommand parsed = new ParsedCommand();
+    private String[] lines;
+    private String[] dateStrings;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Task> tasks = TaskGenerator.generate(LINE_COUNT, TaskGenerator.Mix.TODOS, dates, 42);
+        dateStrings = TaskGenerator.typedDates(LINE_COUNT, dates, 42);
+        lines = new String[LINE_COUNT];
+        for (int i = 0; i < LINE_COUNT; i++) {
+            lines[i] = "deadline " + tasks.get(i).getDescription() + " /by " + dateStrings[i];
+        }
+    }
+
+    @Benchmark
+    public String[] parseCommand() {
+        next = (next + 1) & (LINE_COUNT - 1);
+        return parser.parseCommand(lines[next]);
+    }
+
+    @Benchmark
+    public String parseDeadline() {
+        next = (next + 1) & (LINE_COUNT - 1);
+        return parser.parse(lines[next], parsed).flagValue("/by");
+    }
+
+    @Benchmark
+    public LocalDateTime parseDate() {
+        next = (next + 1) & (LINE_COUNT - 1);
+        return DateParser.parseInput(dateStrings[next]);
+    }
+}
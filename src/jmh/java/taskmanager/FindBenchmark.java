@@ -0,0 +1,59 @@
+package taskmanager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link TaskList#findTasks} once its index is built, for queries matching most of
+ * the list, very little of it, several words at once and only parts of words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"TODOS", "MIXED"})
+    public TaskGenerator.Mix mix;
+
+    @Param({"COMMON", "RARE", "TWO_WORDS", "SUBSTRING"})
+    public String query;
+
+    private TaskList tasks;
+    private String keywords;
+
+    @Setup
+    public void setUp() {
+        tasks = new TaskList(TaskGenerator.generate(taskCount, mix, TaskGenerator.Dates.HALF, 42));
+        switch (query) {
+        case "COMMON":
+            keywords = TaskGenerator.COMMON_WORD;
+            break;
+        case "RARE":
+            keywords = TaskGenerator.RARE_WORD;
+            break;
+        case "TWO_WORDS":
+            keywords = TaskGenerator.COMMON_WORD + " chapter";
+            break;
+        default:
+            keywords = "epor";
+            break;
+        }
+        tasks.findTasks(keywords);
+    }
+
+    @Benchmark
+    public List<Task> findTasks() {
+        return tasks.findTasks(keywords);
+    }
+}
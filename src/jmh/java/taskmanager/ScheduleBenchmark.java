@@ -0,0 +1,55 @@
+package taskmanager;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the schedule views once the date index is built, moving to the next day on every
+ * call so that each covers a different part of the year.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScheduleBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"MIXED", "DATED"})
+    public TaskGenerator.Mix mix;
+
+    @Param({"PARSEABLE", "HALF", "RAW"})
+    public TaskGenerator.Dates dates;
+
+    private TaskList tasks;
+    private int day;
+
+    @Setup
+    public void setUp() {
+        tasks = new TaskList(TaskGenerator.generate(taskCount, mix, dates, 42));
+        ViewSchedules.forDate(tasks, TaskGenerator.FIRST_DAY);
+    }
+
+    private LocalDate nextDay() {
+        day = (day + 1) % 365;
+        return TaskGenerator.FIRST_DAY.plusDays(day);
+    }
+
+    @Benchmark
+    public String forDate() {
+        return ViewSchedules.forDate(tasks, nextDay());
+    }
+
+    @Benchmark
+    public String forWeek() {
+        return ViewSchedules.forWeek(tasks, nextDay());
+    }
+}
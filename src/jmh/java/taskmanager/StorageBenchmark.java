@@ -0,0 +1,91 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures loading and saving a data file. Loading only indexes the file, so it is measured
+ * both on its own and followed by decoding every task; saving is measured both for tasks that
+ * were never decoded, which are copied as they are, and for tasks that all have to be encoded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StorageBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int taskCount;
+
+    @Param({"TODOS", "MIXED", "DATED"})
+    public TaskGenerator.Mix mix;
+
+    @Param({"PARSEABLE", "RAW"})
+    public TaskGenerator.Dates dates;
+
+    @Param({"txt", "bin"})
+    public String format;
+
+    private Path dir;
+    private Path source;
+    private Path target;
+    private List<Task> loaded;
+    private List<Task> decoded;
+
+    @Setup
+    public void setUp() throws IOException, YapperException {
+        dir = Files.createTempDirectory("yapper-bench");
+        source = dir.resolve("tasks." + format);
+        target = dir.resolve("saved." + format);
+        TaskGenerator.write(source, taskCount, mix, dates, 42);
+        loaded = new Storage(source.toString()).loadTasks();
+        decoded = new ArrayList<>(new Storage(source.toString()).loadTasks());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Task> loadTasks() throws YapperException {
+        return new Storage(source.toString()).loadTasks();
+    }
+
+    @Benchmark
+    public void loadAndDecodeTasks(Blackhole blackhole) throws YapperException {
+        for (Task task : new Storage(source.toString()).loadTasks()) {
+            blackhole.consume(task);
+        }
+    }
+
+    @Benchmark
+    public void saveUndecodedTasks() throws YapperException {
+        new Storage(target.toString()).saveTasks(loaded);
+    }
+
+    @Benchmark
+    public void saveDecodedTasks() throws YapperException {
+        new Storage(target.toString()).saveTasks(decoded);
+    }
+}
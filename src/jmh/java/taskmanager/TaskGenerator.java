@@ -0,0 +1,178 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic task lists for the benchmarks, and data files for trying the chatbot out
+ * at scale, e.g. {@code java taskmanager.TaskGenerator 100000 MIXED HALF data/tasks.txt}.
+ *
+ * Descriptions draw on a small vocabulary with a skewed distribution, so that some words occur
+ * in most tasks and others in very few, plus a number that keeps the vocabulary growing with
+ * the list. Dates fall within {@link #FIRST_DAY} and the year after it.
+ */
+public final class TaskGenerator {
+    /** The earliest day a generated deadline or event falls on */
+    public static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+    /** The most common word of generated descriptions */
+    public static final String COMMON_WORD = "read";
+    /** One of the least common words of generated descriptions */
+    public static final String RARE_WORD = "zeppelin";
+
+    private static final String[] WORDS = {
+        COMMON_WORD, "chapter", "submit", "report", "meeting", "project", "review", "email", "call", "buy",
+        "groceries", "finish", "lab", "quiz", "assignment", "lecture", "notes", "team", "draft", "slides",
+        "exam", "revise", "book", "paper", "tutorial", "gym", "dentist", "laundry", "rent", "bills",
+        "presentation", "interview", "flight", "hotel", "birthday", "gift", "library", "code", "deploy", "bugfix",
+        "database", "server", "budget", "invoice", "survey", "workshop", "seminar", "concert", "museum", RARE_WORD,
+    };
+    private static final String[] RAW_DATES = {
+        "Monday", "tomorrow", "next week", "end of month", "after exams", "sometime soon",
+    };
+
+    /**
+     * The share of each kind of task, in percent.
+     */
+    public enum Mix {
+        TODOS(100, 0),
+        MIXED(40, 30),
+        DATED(0, 50);
+
+        final int todoPercent;
+        final int deadlinePercent;
+
+        Mix(int todoPercent, int deadlinePercent) {
+            this.todoPercent = todoPercent;
+            this.deadlinePercent = deadlinePercent;
+        }
+    }
+
+    /**
+     * How the dates of deadlines and events are written.
+     */
+    public enum Dates {
+        /** Every date in a format the chatbot parses, such as "2/12/2025 1800" or "2025-12-02" */
+        PARSEABLE(100),
+        /** Half of the dates parseable, the other half free text */
+        HALF(50),
+        /** Every date free text such as "Monday", which is kept as typed */
+        RAW(0);
+
+        final int parseablePercent;
+
+        Dates(int parseablePercent) {
+            this.parseablePercent = parseablePercent;
+        }
+    }
+
+    private TaskGenerator() { }
+
+    /**
+     * Generates {@code count} tasks; the same arguments always give the same tasks.
+     *
+     * @param count The number of tasks.
+     * @param mix The share of todos, deadlines and events.
+     * @param dates How dates are written.
+     * @param seed The seed of the random choices.
+     * @return The tasks, not yet in a list.
+     */
+    public static List<Task> generate(int count, Mix mix, Dates dates, long seed) {
+        Random random = new Random(seed);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String description = description(random);
+            int kind = random.nextInt(100);
+            if (kind < mix.todoPercent) {
+                tasks.add(new ToDo(description));
+            } else if (kind < mix.todoPercent + mix.deadlinePercent) {
+                tasks.add(Deadline.fromInput(description, date(random, dates, random.nextInt(365))));
+            } else {
+                int start = random.nextInt(365);
+                int length = random.nextInt(4);
+                String from = date(random, dates, start);
+                // A one-day event reuses its start, since a time later that day could come first
+                String to = length == 0 ? from : date(random, dates, start + length);
+                try {
+                    tasks.add(Event.fromInput(description, from, to));
+                } catch (YapperException e) {
+                    throw new AssertionError("generated event ends before it starts", e);
+                }
+            }
+            if (random.nextInt(4) == 0) {
+                tasks.get(i).markDone();
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Generates {@code count} dates as a user would type them.
+     *
+     * @param count The number of dates.
+     * @param dates How dates are written.
+     * @param seed The seed of the random choices.
+     * @return The dates.
+     */
+    public static String[] typedDates(int count, Dates dates, long seed) {
+        Random random = new Random(seed);
+        String[] typed = new String[count];
+        for (int i = 0; i < count; i++) {
+            typed[i] = date(random, dates, random.nextInt(365));
+        }
+        return typed;
+    }
+
+    /**
+     * Writes {@code count} generated tasks to {@code file}, in the format its extension selects.
+     *
+     * @throws YapperException If the file cannot be written.
+     */
+    public static void write(Path file, int count, Mix mix, Dates dates, long seed) throws YapperException {
+        TaskList list = new TaskList(generate(count, mix, dates, seed));
+        new Storage(file.toString()).saveTasks(list.snapshot());
+    }
+
+    /**
+     * Writes a data file: {@code count [mix] [dates] [file]}.
+     */
+    public static void main(String[] args) throws YapperException {
+        if (args.length == 0) {
+            System.out.println("Usage: TaskGenerator count [TODOS|MIXED|DATED] [PARSEABLE|HALF|RAW] [file]");
+            return;
+        }
+        int count = Integer.parseInt(args[0]);
+        Mix mix = args.length > 1 ? Mix.valueOf(args[1]) : Mix.MIXED;
+        Dates dates = args.length > 2 ? Dates.valueOf(args[2]) : Dates.HALF;
+        Path file = Paths.get(args.length > 3 ? args[3] : "data/tasks.txt");
+        write(file, count, mix, dates, 42);
+        System.out.println("Wrote " + count + " tasks to " + file);
+    }
+
+    private static String description(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int words = 2 + random.nextInt(4);
+        for (int w = 0; w < words; w++) {
+            // Squaring skews the choice towards the start of the vocabulary
+            double r = random.nextDouble();
+            sb.append(WORDS[(int) (r * r * WORDS.length)]).append(' ');
+        }
+        return sb.append('n').append(random.nextInt(100_000)).toString();
+    }
+
+    private static String date(Random random, Dates dates, int dayOffset) {
+        if (random.nextInt(100) >= dates.parseablePercent) {
+            return RAW_DATES[random.nextInt(RAW_DATES.length)];
+        }
+        LocalDate day = FIRST_DAY.plusDays(dayOffset);
+        if (random.nextBoolean()) {
+            return day.toString();
+        }
+        return day.getDayOfMonth() + "/" + day.getMonthValue() + "/" + day.getYear()
+                + String.format(" %02d%02d", 8 + random.nextInt(12), random.nextInt(4) * 15);
+    }
+}
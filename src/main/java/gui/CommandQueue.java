@@ -0,0 +1,88 @@
+package gui;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javafx.application.Platform;
+
+/**
+ * Runs the chatbot's commands on a single background thread, so that the window stays
+ * responsive while a command is saving to disk.
+ *
+ * Commands run one at a time in the order they were submitted, and their responses are handed
+ * back on the JavaFX application thread in that same order, so input typed while an earlier
+ * command is still running simply waits its turn. Only the worker thread touches the chatbot
+ * once the queue is in use.
+ */
+final class CommandQueue {
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mryapper-commands");
+        // Not a daemon: a save in progress must finish even if the window is closed meanwhile
+        thread.setDaemon(false);
+        return thread;
+    });
+    private final Function<String, String> responder;
+    private int pendingCount;
+
+    /**
+     * Constructs a queue that answers each input with {@code responder}.
+     *
+     * @param responder Computes the response to an input; called on the worker thread only.
+     */
+    CommandQueue(Function<String, String> responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * Queues {@code input} behind any commands still running. Must be called on the JavaFX
+     * application thread.
+     *
+     * @param input The user's input.
+     * @param onResponse Receives the response, on the JavaFX application thread.
+     */
+    void submit(String input, Consumer<String> onResponse) {
+        assert Platform.isFxApplicationThread() : "commands must be submitted from the FX thread";
+        pendingCount++;
+        worker.execute(() -> {
+            String response;
+            try {
+                response = responder.apply(input);
+            } catch (RuntimeException e) {
+                // Report it like any other error instead of losing the worker thread's task
+                response = "Error: " + e.getMessage();
+            }
+            String result = response;
+            Platform.runLater(() -> {
+                pendingCount--;
+                onResponse.accept(result);
+            });
+        });
+    }
+
+    /**
+     * Returns the number of submitted commands whose response has not been handed back yet.
+     */
+    int pendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Lets the commands already queued finish, then stops the worker thread.
+     */
+    void shutdown() {
+        worker.shutdown();
+    }
+
+    /**
+     * Lets the commands already queued finish, then runs {@code last} on the worker thread
+     * and stops it. Does nothing if the queue was already shut down.
+     */
+    void shutdown(Runnable last) {
+        if (!worker.isShutdown()) {
+            worker.execute(last);
+            worker.shutdown();
+        }
+    }
+}
@@ -25,7 +25,7 @@ public class DialogBox extends HBox {
     @FXML
     private ImageView displayPicture;
 
-    private DialogBox(String text, Image img, boolean isUser) {
+    private DialogBox() {
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(MainWindow.class.getResource("/view/DialogBox.fxml"));
             fxmlLoader.setController(this);
@@ -34,9 +34,12 @@ public class DialogBox extends HBox {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        dialog.setMaxWidth(420);
+    }
 
+    private DialogBox(String text, Image img, boolean isUser) {
+        this();
         dialog.setText(text);
-        dialog.setMaxWidth(420);
         displayPicture.setImage(img);
 
         if (isUser) {
@@ -56,6 +59,51 @@ public class DialogBox extends HBox {
         setAlignment(Pos.TOP_LEFT);
     }
 
+    /**
+     * Shows {@code message} in this box, replacing whatever it showed before, so that a
+     * transcript cell can reuse one box for every message scrolled through it.
+     *
+     * @param message The message to show.
+     * @param img The speaker's picture, or {@code null} for none.
+     */
+    void show(Message message, Image img) {
+        dialog.setText(message.getText());
+        displayPicture.setImage(img);
+        displayPicture.setManaged(img != null);
+        // A continued reply keeps the picture's space so that it lines up with its first part
+        displayPicture.setVisible(img != null && !message.isContinuation());
+
+        switch (message.getKind()) {
+        case USER:
+            dialog.getStyleClass().setAll("label", "bubble", "bubble-user", "round-right");
+            getChildren().setAll(dialog, displayPicture);
+            setAlignment(Pos.TOP_RIGHT);
+            break;
+        case ERROR:
+            dialog.getStyleClass().setAll("bubble", "bubble-error");
+            getChildren().setAll(displayPicture, dialog);
+            setAlignment(Pos.TOP_LEFT);
+            break;
+        case NOTICE:
+            dialog.getStyleClass().setAll("label", "transcript-notice");
+            getChildren().setAll(dialog);
+            setAlignment(Pos.TOP_CENTER);
+            break;
+        default:
+            dialog.getStyleClass().setAll("label", "bubble", "bubble-bot", "round-left");
+            getChildren().setAll(displayPicture, dialog);
+            setAlignment(Pos.TOP_LEFT);
+            break;
+        }
+    }
+
+    /**
+     * Returns an empty dialog box for a transcript cell to fill in with {@link #show}.
+     */
+    static DialogBox forCell() {
+        return new DialogBox();
+    }
+
     public static DialogBox getUserDialog(String text, Image img) {
         return new DialogBox(text, img, true);
     }
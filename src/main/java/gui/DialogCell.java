@@ -0,0 +1,46 @@
+package gui;
+
+import javafx.scene.control.ListCell;
+import javafx.scene.image.Image;
+
+/**
+ * A transcript row. The list view only creates enough of these to fill the window and
+ * reuses them while scrolling, each keeping a single {@link DialogBox} that is refilled
+ * with whichever message the row currently shows.
+ */
+final class DialogCell extends ListCell<Message> {
+    private final DialogBox box = DialogBox.forCell();
+    private final Image userImage;
+    private final Image botImage;
+
+    DialogCell(Image userImage, Image botImage) {
+        this.userImage = userImage;
+        this.botImage = botImage;
+        // Size to the list rather than to the text, so long lines wrap instead of scrolling sideways
+        setPrefWidth(0);
+    }
+
+    @Override
+    protected void updateItem(Message message, boolean isEmpty) {
+        super.updateItem(message, isEmpty);
+        setText(null);
+        if (isEmpty || message == null) {
+            setGraphic(null);
+            return;
+        }
+        Image img;
+        switch (message.getKind()) {
+        case USER:
+            img = userImage;
+            break;
+        case NOTICE:
+            img = null;
+            break;
+        default:
+            img = botImage;
+            break;
+        }
+        box.show(message, img);
+        setGraphic(box);
+    }
+}
@@ -1,8 +1,12 @@
 package gui;
 
+import mryapper.CommandStats;
 import mryapper.MrYapper;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
 
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -11,22 +15,34 @@ import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
-import javafx.scene.layout.VBox;
 
 /**
  * A GUI for MrYapper using FXML, orchestrates the input/ouput flow.
+ *
+ * The conversation is drawn by a virtualized list, so only the messages in view have nodes.
+ * Launch parameters {@code --history=N} set how many transcript entries are kept and
+ * {@code --spill=file} appends older ones to a file instead of discarding them.
+ * {@code --stats=off|on|alloc} and {@code --stats-json=file} work as on the command line.
+ *
+ * Commands run on a background {@link CommandQueue} rather than on the JavaFX application
+ * thread, so saving a large task file does not freeze the window. Input typed meanwhile is
+ * shown at once and answered in order, with a notice at the bottom while any is outstanding.
  */
 public class MainWindow extends Application {
 
-    @FXML private ScrollPane scrollPane;
-    @FXML private VBox dialogContainer;
+    @FXML private ListView<Message> transcriptView;
     @FXML private TextField userInput;
     @FXML private Button sendButton;
 
     private MrYapper mryapper = new MrYapper();
+    private Transcript transcript = new Transcript(Transcript.DEFAULT_MAX_RETAINED, null);
+    private CommandQueue commands;
+    private boolean isClosing;
+    /** The controller created from the FXML, so that the application can shut it down */
+    private MainWindow controller;
 
     private final Image userImage = new Image(this.getClass().getResourceAsStream("/images/noobuser.png"));
     private final Image mryapperImage  = new Image(this.getClass().getResourceAsStream("/images/mryapper.png"));
@@ -41,6 +57,7 @@ public class MainWindow extends Application {
             Object ctrl = fxmlLoader.getController();
             assert ctrl instanceof MainWindow : "FXML controller is not MainWindow";
             MainWindow mw = (MainWindow) ctrl;
+            controller = mw;
     
             Scene scene = new Scene(ap);
             scene.getStylesheets().add(getClass().getResource("/styles/app.css").toExternalForm());
@@ -48,6 +65,8 @@ public class MainWindow extends Application {
     
             // mryapper must be constructed already
             assert mryapper != null : "MrYapper not initialised";
+            mw.setTranscript(createTranscript(getParameters().getNamed()));
+            configureStats(mryapper, getParameters().getNamed());
             mw.setYapper(mryapper);
     
             stage.show();
@@ -56,58 +75,120 @@ public class MainWindow extends Application {
         }
     }
     
+    @Override
+    public void stop() {
+        if (controller != null) {
+            controller.shutdown();
+        }
+    }
+
     @FXML
     public void initialize() {
         // FXML injections should be non-null if the fx:id matches
-        assert scrollPane != null : "scrollPane not injected";
-        assert dialogContainer != null : "dialogContainer not injected";
+        assert transcriptView != null : "transcriptView not injected";
         assert userInput != null : "userInput not injected";
         assert sendButton != null : "sendButton not injected";
     
         // Must run on JavaFX Application Thread
         assert javafx.application.Platform.isFxApplicationThread() : "Not on FX thread";
     
-        scrollPane.setFitToWidth(true);
-        dialogContainer.heightProperty().addListener((obs, oldVal, newVal) -> scrollPane.setVvalue(1.0));
+        transcriptView.setCellFactory(view -> new DialogCell(userImage, mryapperImage));
+        transcriptView.setFocusTraversable(false);
+        transcriptView.setItems(transcript.getItems());
     }
+
+    /**
+     * Replaces the transcript shown in the window.
+     */
+    public void setTranscript(Transcript transcript) {
+        this.transcript = transcript;
+        transcriptView.setItems(transcript.getItems());
+    }
+
     public void setYapper(MrYapper mryapper) {
         this.mryapper = mryapper;
+        if (commands != null) {
+            commands.shutdown();
+        }
+        commands = new CommandQueue(mryapper::getResponse);
         // Show greeting from the bot
-        dialogContainer.getChildren().add(
-            DialogBox.getMrYapperDialog("Hello! I'm your best yapper Mr Yapper!\n"
-            + "Tell me all about your tasks you need to do!", 
-            mryapperImage
-            )
-        );
+        transcript.add(Message.Kind.BOT, "Hello! I'm your best yapper Mr Yapper!\n"
+                + "Tell me all about your tasks you need to do!");
+    }
+
+    private static Transcript createTranscript(Map<String, String> parameters) {
+        int history = Transcript.DEFAULT_MAX_RETAINED;
+        try {
+            history = Math.max(Integer.parseInt(parameters.getOrDefault("history", "")), 1);
+        } catch (NumberFormatException e) {
+            // Not given or not a number, so keep the default.
+        }
+        Path spill = parameters.containsKey("spill") ? Paths.get(parameters.get("spill")) : null;
+        return new Transcript(history, spill);
+    }
+
+    private static void configureStats(MrYapper mryapper, Map<String, String> parameters) {
+        CommandStats.Level level = CommandStats.Level.fromName(parameters.getOrDefault("stats", "on"));
+        Path json = parameters.containsKey("stats-json") ? Paths.get(parameters.get("stats-json")) : null;
+        mryapper.setStats(level == null ? CommandStats.Level.TIMING : level, json);
+    }
+
+    private void scrollToEnd() {
+        transcriptView.scrollTo(transcript.getItems().size() - 1);
+    }
+
+    /**
+     * Lets queued commands finish in the background, then writes the stats, and closes the
+     * transcript.
+     */
+    private void shutdown() {
+        if (commands != null) {
+            commands.shutdown(mryapper::writeStats);
+        }
+        transcript.close();
     }
 
     @FXML
     private void handleUserInput() {
         String input = userInput.getText();
-        if (input == null || input.isBlank()) {
+        if (input == null || input.isBlank() || isClosing) {
             return;
         }
-        
-        String response = mryapper.getResponse(input);
+        userInput.clear();
+
+        boolean isBye = "bye".equalsIgnoreCase(input.trim());
+        if (isBye) {
+            // Later input would never be answered, since the window closes once bye is answered
+            isClosing = true;
+        } else {
+            transcript.add(Message.Kind.USER, input);
+        }
+        commands.submit(input, response -> showResponse(response, isBye));
+        updatePending();
+        scrollToEnd();
+    }
 
-        if ("bye".equalsIgnoreCase(input.trim())) {
-            dialogContainer.getChildren().add(DialogBox.getMrYapperDialog(response, mryapperImage));
-            userInput.clear();
+    /**
+     * Shows the response to a command; called on the JavaFX application thread in the order
+     * the commands were entered.
+     */
+    private void showResponse(String response, boolean isBye) {
+        if (isBye) {
+            transcript.add(Message.Kind.BOT, response);
+            shutdown();
             javafx.application.Platform.exit();
             return;
         }
 
-        if (response.startsWith("Error:")) {
-            dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input, userImage),
-                DialogBox.getErrorDialog(response, mryapperImage)
-            );
-        } else {
-            dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input, userImage),
-                DialogBox.getMrYapperDialog(response, mryapperImage)
-            );
-        }
-        userInput.clear();
+        transcript.add(response.startsWith("Error:") ? Message.Kind.ERROR : Message.Kind.BOT, response);
+        updatePending();
+        scrollToEnd();
+    }
+
+    private void updatePending() {
+        int pending = commands.pendingCount();
+        transcript.setPending(pending == 0 ? null
+                : pending == 1 ? "Mr Yapper is thinking..."
+                : "Mr Yapper is thinking... (" + pending + " commands queued)");
     }
-}
\ No newline at end of file
+}
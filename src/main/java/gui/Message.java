@@ -0,0 +1,48 @@
+package gui;
+
+/**
+ * One entry of the chat transcript: a speech bubble, or one part of a long reply that is
+ * split over several entries so that each can be drawn on its own.
+ */
+public final class Message {
+    /**
+     * Who a message comes from, which decides how it is drawn.
+     */
+    public enum Kind {
+        USER,
+        BOT,
+        ERROR,
+        /** A note from the transcript itself, such as how much history was cleared */
+        NOTICE
+    }
+
+    private final Kind kind;
+    private final String text;
+    private final boolean isContinuation;
+
+    /**
+     * Constructs a message.
+     *
+     * @param kind Who the message comes from.
+     * @param text The text of the message.
+     * @param isContinuation Whether this continues the previous entry's reply, so is drawn without a picture.
+     */
+    public Message(Kind kind, String text, boolean isContinuation) {
+        assert kind != null && text != null : "message needs a kind and text";
+        this.kind = kind;
+        this.text = text;
+        this.isContinuation = isContinuation;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isContinuation() {
+        return isContinuation;
+    }
+}
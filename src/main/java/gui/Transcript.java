@@ -0,0 +1,165 @@
+package gui;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * The messages shown in the chat window, kept as data for a virtualized list to draw.
+ *
+ * A long reply is split into entries of at most {@link #LINES_PER_ENTRY} lines, so that only
+ * the parts scrolled into view are ever laid out. Only the latest {@code maxRetained} entries
+ * are kept; older ones are dropped, or first appended to a spill file if one is given, and an
+ * entry at the top says how many went.
+ */
+public final class Transcript {
+    /** Entries kept by default before the oldest are dropped */
+    public static final int DEFAULT_MAX_RETAINED = 500;
+    /** Most lines of a reply drawn as one entry */
+    static final int LINES_PER_ENTRY = 40;
+
+    private final ObservableList<Message> items = FXCollections.observableArrayList();
+    private final int maxRetained;
+    private Path spillFile;
+    private BufferedWriter spill;
+    private int droppedCount;
+    /** Kept as the last entry while a command is running */
+    private Message pending;
+
+    /**
+     * Constructs an empty transcript.
+     *
+     * @param maxRetained The number of entries to keep.
+     * @param spillFile The file to append dropped entries to, or {@code null} to discard them.
+     */
+    public Transcript(int maxRetained, Path spillFile) {
+        assert maxRetained > 0 : "transcript must keep at least one entry";
+        this.maxRetained = maxRetained;
+        this.spillFile = spillFile;
+    }
+
+    /**
+     * Returns the entries to show, oldest first.
+     */
+    public ObservableList<Message> getItems() {
+        return items;
+    }
+
+    /**
+     * Appends a message, split into several entries if it is long.
+     *
+     * @param kind Who the message comes from.
+     * @param text The text of the message.
+     */
+    public void add(Message.Kind kind, String text) {
+        List<Message> entries = new ArrayList<>();
+        int start = 0;
+        int lines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n' && ++lines == LINES_PER_ENTRY) {
+                entries.add(new Message(kind, text.substring(start, i), !entries.isEmpty()));
+                start = i + 1;
+                lines = 0;
+            }
+        }
+        if (start < text.length() || entries.isEmpty()) {
+            entries.add(new Message(kind, text.substring(start), !entries.isEmpty()));
+        }
+        if (pending != null) {
+            items.addAll(items.size() - 1, entries);
+        } else {
+            items.addAll(entries);
+        }
+        dropOldest();
+    }
+
+    /**
+     * Shows a notice at the end of the transcript that stays below later messages until it is
+     * replaced or removed.
+     *
+     * @param text The notice, or {@code null} to remove it.
+     */
+    public void setPending(String text) {
+        if (pending != null) {
+            items.remove(items.size() - 1);
+        }
+        pending = text == null ? null : new Message(Message.Kind.NOTICE, text, false);
+        if (pending != null) {
+            items.add(pending);
+        }
+    }
+
+    /**
+     * Flushes and closes the spill file, if one was opened.
+     */
+    public void close() {
+        if (spill == null) {
+            return;
+        }
+        try {
+            spill.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        spill = null;
+    }
+
+    /**
+     * Drops the oldest entries once there are a tenth more than {@code maxRetained}, so that
+     * the list is not shifted on every message.
+     */
+    private void dropOldest() {
+        int first = droppedCount > 0 ? 1 : 0; // skip the notice entry
+        int retained = items.size() - first - (pending != null ? 1 : 0);
+        if (retained <= maxRetained + Math.max(maxRetained / 10, 1)) {
+            return;
+        }
+        int count = retained - maxRetained;
+        List<Message> dropped = items.subList(first, first + count);
+        spill(dropped);
+        items.remove(first, first + count);
+        droppedCount += count;
+
+        String where = spillFile != null ? " were saved to " + spillFile : " were cleared";
+        Message notice = new Message(Message.Kind.NOTICE, droppedCount + " earlier messages" + where + ".", false);
+        if (first == 0) {
+            items.add(0, notice);
+        } else {
+            items.set(0, notice);
+        }
+    }
+
+    private void spill(List<Message> dropped) {
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            if (spill == null) {
+                spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (Message message : dropped) {
+                if (!message.isContinuation()) {
+                    spill.write("[" + message.getKind() + "]");
+                    spill.newLine();
+                }
+                spill.write(message.getText());
+                spill.newLine();
+            }
+            spill.flush();
+        } catch (IOException e) {
+            // Keep the window usable; later messages are simply dropped instead.
+            e.printStackTrace();
+            close();
+            spillFile = null;
+        }
+    }
+}
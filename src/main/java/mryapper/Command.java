@@ -0,0 +1,57 @@
+package mryapper;
+
+/**
+ * The commands the chatbot understands, by the word that starts them.
+ */
+public enum Command {
+    BYE("bye", false),
+    BATCH("batch", false),
+    END("end", false),
+    LIST("list", false),
+    MARK("mark", true),
+    UNMARK("unmark", true),
+    TODO("todo", true),
+    DEADLINE("deadline", true),
+    EVENT("event", true),
+    DELETE("delete", true),
+    FIND("find", false),
+    EXPLAIN("explain", false),
+    SCHEDULE("schedule", false),
+    CONFLICTS("conflicts", false),
+    FREE("free", false),
+    VIEW("view", false),
+    STATS("stats", false),
+    UNDO("undo", false),
+    REDO("redo", false),
+    /** Any word that is not a command */
+    INVALID("invalid", false);
+
+    private static final Command[] VALUES = values();
+
+    /** The word that starts the command, in lower case */
+    public final String keyword;
+    /** Whether the command changes tasks, making it a step that can be undone */
+    public final boolean isChange;
+
+    Command(String keyword, boolean isChange) {
+        this.keyword = keyword;
+        this.isChange = isChange;
+    }
+
+    /**
+     * Looks up the command starting {@code line} at {@code [start, end)}, ignoring case,
+     * without copying the word out of the line.
+     *
+     * @return The command, or {@link #INVALID} if the word is not one.
+     */
+    static Command of(String line, int start, int end) {
+        int length = end - start;
+        for (Command command : VALUES) {
+            if (command != INVALID && command.keyword.length() == length
+                    && line.regionMatches(true, start, command.keyword, 0, length)) {
+                return command;
+            }
+        }
+        return INVALID;
+    }
+}
@@ -0,0 +1,292 @@
+package mryapper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps count of how long each kind of command takes to run, for the "stats" command.
+ *
+ * Latencies go into a histogram per command with eight buckets per power of two, so that a
+ * percentile is off by at most an eighth while recording costs a few array updates and no
+ * allocation. Only the time to run a command is measured, not the time to print its listing.
+ * When turned off, the cost per command is a single field read.
+ */
+public final class CommandStats {
+    /**
+     * What is measured for each command.
+     */
+    public enum Level {
+        /** Nothing is measured. */
+        OFF,
+        /** Counts and latencies. */
+        TIMING,
+        /** Counts and latencies, plus the bytes each command allocates. */
+        ALLOCATION;
+
+        /**
+         * Parses a level name as typed on the command line, e.g. {@code "alloc"}.
+         *
+         * @param name One of {@code off}, {@code on} or {@code alloc}, case-insensitive.
+         * @return The matching level, or {@code null} if none matches.
+         */
+        public static Level fromName(String name) {
+            switch (name.trim().toLowerCase()) {
+            case "off":
+                return OFF;
+            case "on":
+                return TIMING;
+            case "alloc":
+                return ALLOCATION;
+            default:
+                return null;
+            }
+        }
+    }
+
+    private final Map<String, Histogram> commands = new TreeMap<>();
+    private Level level;
+    /** Reads per-thread allocation counters; null unless allocation is measured */
+    private com.sun.management.ThreadMXBean allocationBean;
+    private long loadNanos;
+    private int loadedTaskCount;
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param level What to measure.
+     */
+    public CommandStats(Level level) {
+        setLevel(level);
+    }
+
+    /**
+     * Changes what is measured from now on. Allocation is measured only where the JVM can
+     * count it per thread, and otherwise falls back to timing alone.
+     */
+    public synchronized void setLevel(Level level) {
+        this.level = level;
+        allocationBean = null;
+        if (level == Level.ALLOCATION) {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                allocationBean = (com.sun.management.ThreadMXBean) bean;
+                allocationBean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                this.level = Level.TIMING;
+            }
+        }
+    }
+
+    public synchronized Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns whether commands are being measured, so that callers can skip reading the clock.
+     */
+    boolean isEnabled() {
+        return level != Level.OFF;
+    }
+
+    /**
+     * Returns the bytes the current thread has allocated so far, to be passed back to
+     * {@link #record} once the command finishes, or -1 if allocation is not measured.
+     */
+    long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = allocationBean;
+        return bean == null ? -1 : bean.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Records one run of a command.
+     *
+     * @param command The name of the command.
+     * @param nanos How long it took.
+     * @param allocatedBefore What {@link #allocatedBytes} returned before the command ran.
+     * @param isError Whether the command failed.
+     */
+    synchronized void record(String command, long nanos, long allocatedBefore, boolean isError) {
+        Histogram histogram = commands.computeIfAbsent(command, c -> new Histogram());
+        histogram.record(nanos);
+        if (isError) {
+            histogram.errorCount++;
+        }
+        if (allocatedBefore >= 0 && allocationBean != null) {
+            histogram.allocatedBytes += Math.max(allocationBean.getCurrentThreadAllocatedBytes() - allocatedBefore, 0);
+            histogram.allocationCount++;
+        }
+    }
+
+    /**
+     * Records how long the task file took to load.
+     */
+    synchronized void recordLoad(long nanos, int taskCount) {
+        loadNanos = nanos;
+        loadedTaskCount = taskCount;
+    }
+
+    /**
+     * Returns the statistics as a table for the chat.
+     *
+     * @param storageBytes The bytes written by storage so far.
+     */
+    synchronized String report(long storageBytes) {
+        StringBuilder sb = new StringBuilder();
+        long total = 0;
+        for (Histogram histogram : commands.values()) {
+            total += histogram.count;
+        }
+        if (level == Level.OFF) {
+            sb.append("I'm not timing commands right now. Start me with --stats on to see where the time goes.\n");
+        }
+        sb.append("Here's where the time went over ").append(total).append(total == 1 ? " command" : " commands")
+                .append(':');
+        if (!commands.isEmpty()) {
+            boolean hasAllocation = commands.values().stream().anyMatch(h -> h.allocationCount > 0);
+            sb.append(String.format("%n%-9s %7s %6s %9s %9s %9s", "command", "count", "errors", "p50", "p99", "max"));
+            if (hasAllocation) {
+                sb.append(String.format(" %10s", "alloc/cmd"));
+            }
+            for (Map.Entry<String, Histogram> entry : commands.entrySet()) {
+                Histogram h = entry.getValue();
+                sb.append(String.format("%n%-9s %7d %6d %9s %9s %9s", entry.getKey(), h.count, h.errorCount,
+                        formatNanos(h.percentile(0.5)), formatNanos(h.percentile(0.99)), formatNanos(h.max)));
+                if (hasAllocation) {
+                    sb.append(String.format(" %10s", h.allocationCount == 0 ? "-"
+                            : formatBytes(h.allocatedBytes / h.allocationCount)));
+                }
+            }
+        }
+        sb.append("\nLoading ").append(loadedTaskCount).append(" tasks took ").append(formatNanos(loadNanos))
+                .append(", and I've written ").append(formatBytes(storageBytes)).append(" to disk since.");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the statistics as a JSON object, with times in nanoseconds.
+     *
+     * @param storageBytes The bytes written by storage so far.
+     */
+    synchronized String toJson(long storageBytes) {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"level\": \"").append(level.name().toLowerCase()).append("\",\n");
+        sb.append("  \"loadNanos\": ").append(loadNanos).append(",\n");
+        sb.append("  \"loadedTasks\": ").append(loadedTaskCount).append(",\n");
+        sb.append("  \"storageBytesWritten\": ").append(storageBytes).append(",\n");
+        sb.append("  \"commands\": {");
+        String separator = "\n";
+        for (Map.Entry<String, Histogram> entry : commands.entrySet()) {
+            Histogram h = entry.getValue();
+            sb.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+                    .append("\"count\": ").append(h.count)
+                    .append(", \"errors\": ").append(h.errorCount)
+                    .append(", \"meanNanos\": ").append(h.count == 0 ? 0 : h.totalNanos / h.count)
+                    .append(", \"p50Nanos\": ").append(h.percentile(0.5))
+                    .append(", \"p99Nanos\": ").append(h.percentile(0.99))
+                    .append(", \"maxNanos\": ").append(h.max);
+            if (h.allocationCount > 0) {
+                sb.append(", \"allocatedBytesPerCommand\": ").append(h.allocatedBytes / h.allocationCount);
+            }
+            sb.append('}');
+            separator = ",\n";
+        }
+        sb.append(commands.isEmpty() ? "}\n" : "\n  }\n").append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Returns the estimated {@code p}-th quantile of the latencies of {@code command}, or 0 if
+     * it never ran.
+     */
+    synchronized long percentile(String command, double p) {
+        Histogram histogram = commands.get(command);
+        return histogram == null ? 0 : histogram.percentile(p);
+    }
+
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        } else if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        } else if (nanos < 1_000_000_000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.2fs", nanos / 1e9);
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    /**
+     * A log-linear histogram of non-negative values: exact below 16, then eight equal buckets
+     * between each power of two and the next.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int LINEAR = 2 << SUB_BITS;
+        private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1) * (1 << SUB_BITS);
+
+        private final long[] counts = new long[BUCKETS];
+        long count;
+        long totalNanos;
+        long max;
+        long errorCount;
+        long allocatedBytes;
+        long allocationCount;
+
+        void record(long value) {
+            long v = Math.max(value, 0);
+            counts[bucketOf(v)]++;
+            count++;
+            totalNanos += v;
+            max = Math.max(max, v);
+        }
+
+        /**
+         * Returns the upper end of the bucket holding the {@code p}-th quantile, capped at the
+         * largest value recorded.
+         */
+        long percentile(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max((long) Math.ceil(p * count), 1);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        static int bucketOf(long v) {
+            if (v < LINEAR) {
+                return (int) v;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+            return LINEAR + (exponent - SUB_BITS - 1) * (1 << SUB_BITS) + sub;
+        }
+
+        static long upperBoundOf(int bucket) {
+            if (bucket < LINEAR) {
+                return bucket;
+            }
+            int exponent = (bucket - LINEAR) / (1 << SUB_BITS) + SUB_BITS + 1;
+            int sub = (bucket - LINEAR) % (1 << SUB_BITS);
+            long width = 1L << (exponent - SUB_BITS);
+            return ((1L << SUB_BITS) + sub) * width + width - 1;
+        }
+    }
+}
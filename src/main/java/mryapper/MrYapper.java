@@ -1,57 +1,256 @@
 package mryapper;
 
+import taskmanager.DateParser;
 import taskmanager.Deadline;
+import taskmanager.Durability;
 import taskmanager.Event;
+import taskmanager.Recurrence;
+import taskmanager.ScheduleConflicts;
 import taskmanager.Storage;
 import taskmanager.Task;
 import taskmanager.TaskList;
+import taskmanager.TaskQuery;
 import taskmanager.ToDo;
+import taskmanager.UndoHistory;
 import taskmanager.ViewSchedules;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
-import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Kickstarts the chatbot up and running.
  */
 public class MrYapper {
-    /** Filepath of where the tasks are stored relative to project root directory */
+    /** Filepath of where the tasks are stored relative to project root directory, unless --file says otherwise */
     private static final String FILE_PATH = "data/tasks.txt";
+    /** Tasks per page of "list --page N" when no size is given */
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    /** Most listed lines the GUI renders into a single reply */
+    private static final int GUI_PAGE_SIZE = 200;
+    /** Days ahead that "conflicts" checks when no dates are given */
+    private static final int CONFLICT_DAYS = 30;
+    /** Most free slots that "free" lists */
+    private static final int FREE_SLOTS = 10;
+    /** Most tasks that a fuzzy "find ~..." lists */
+    private static final int FUZZY_MATCHES = 10;
+    /** A length of time as in "1h30m", in hours and minutes */
+    private static final Pattern LENGTH = Pattern.compile("(?:(\\d{1,2})h)?(?:(\\d{1,4})m(?:in)?)?");
+    /** Runs each command; a command without a handler is invalid */
+    private static final Map<Command, Handler> HANDLERS = new EnumMap<>(Command.class);
+    /** Commands that make no sense inside a batch block */
+    private static final Set<Command> NOT_IN_BATCH = EnumSet.of(Command.BATCH, Command.END, Command.BYE,
+            Command.UNDO, Command.REDO);
+
+    static {
+        HANDLERS.put(Command.BYE, (yapper, command) -> yapper.handleBye());
+        HANDLERS.put(Command.BATCH, (yapper, command) -> CommandResult.of(yapper.startBatch(command.args())));
+        HANDLERS.put(Command.LIST, (yapper, command) -> yapper.handleList(command.args()));
+        HANDLERS.put(Command.MARK, (yapper, command) -> CommandResult.of(yapper.handleMarkCore(command)));
+        HANDLERS.put(Command.UNMARK, HANDLERS.get(Command.MARK));
+        HANDLERS.put(Command.TODO, (yapper, command) -> CommandResult.of(yapper.handleAddTaskCore(command)));
+        HANDLERS.put(Command.DEADLINE, HANDLERS.get(Command.TODO));
+        HANDLERS.put(Command.EVENT, HANDLERS.get(Command.TODO));
+        HANDLERS.put(Command.DELETE, (yapper, command) -> CommandResult.of(yapper.handleDeleteCore(command.args())));
+        HANDLERS.put(Command.FIND, (yapper, command) -> yapper.handleFindCore(command.args()));
+        HANDLERS.put(Command.EXPLAIN, (yapper, command) -> CommandResult.of(yapper.handleExplain(command.args())));
+        HANDLERS.put(Command.SCHEDULE, (yapper, command) -> CommandResult.of(yapper.handleSchedule(command.args())));
+        HANDLERS.put(Command.VIEW, HANDLERS.get(Command.SCHEDULE));
+        HANDLERS.put(Command.CONFLICTS, (yapper, command) -> yapper.handleConflicts(command.args()));
+        HANDLERS.put(Command.FREE, (yapper, command) -> CommandResult.of(yapper.handleFree(command.args())));
+        HANDLERS.put(Command.UNDO, (yapper, command) -> CommandResult.of(yapper.handleUndo(false)));
+        HANDLERS.put(Command.REDO, (yapper, command) -> CommandResult.of(yapper.handleUndo(true)));
+        HANDLERS.put(Command.STATS,
+                (yapper, command) -> CommandResult.of(yapper.stats.report(yapper.storage.getBytesWritten())));
+    }
+
     private Storage storage;
     private TaskList tasks;
     private Ui ui;
     private Parser parser;
+    /** Reused for every line this session reads */
+    private final ParsedCommand parsed = new ParsedCommand();
+    /** Commands typed after "batch", waiting for "end"; null outside a batch block */
+    private List<String> pendingBatch;
+    private int pendingCheckpoint;
+    /** Set while a batch runs, so that its changes are saved together rather than one by one */
+    private boolean isBatching;
+    private int unsavedChanges;
+    private CommandStats stats;
+    /** Where the stats are written as JSON on exit; null to not write them */
+    private Path statsFile;
 
     /**
      * Acts as a result carrier for both GUI and CLI interfaces.
+     * A long reply such as a task listing carries its lines as a function instead of text,
+     * so that each interface can write them out one at a time, or only a page of them.
      * */ 
-    private static class CommandResult {
+    static class CommandResult {
         final String message;
         final boolean isExit;
-        CommandResult(String message, boolean isExit) {
+        /** Number of lines listed after the message */
+        final int lineCount;
+        /** Produces each listed line on demand; null if the reply is just the message */
+        final IntFunction<String> lineAt;
+        /** Tells the GUI how to see the lines it leaves out */
+        final String moreHint;
+        CommandResult(String message, boolean isExit, int lineCount, IntFunction<String> lineAt, String moreHint) {
             this.message = message;
             this.isExit = isExit;
+            this.lineCount = lineCount;
+            this.lineAt = lineAt;
+            this.moreHint = moreHint;
+        }
+        static CommandResult of(String msg) { return new CommandResult(msg, false, 0, null, null); }
+        static CommandResult exit(String msg) { return new CommandResult(msg, true, 0, null, null); }
+        static CommandResult lines(String heading, int count, IntFunction<String> lineAt, String moreHint) {
+            return new CommandResult(heading, false, count, lineAt, moreHint);
         }
-        static CommandResult of(String msg) { return new CommandResult(msg, false); }
-        static CommandResult exit(String msg) { return new CommandResult(msg, true); }
+    }
+
+    /**
+     * Runs one kind of command for a session.
+     */
+    private interface Handler {
+        CommandResult handle(MrYapper yapper, ParsedCommand command) throws YapperException;
     }
 
     /**
      * Constructs a new chatbot instance, with new Ui, Parser and Storage classes initialised. 
      * Also retrieves the tasks that have been stored previously into the current 'tasks' field.
+     * Changes are appended to a journal and forced to disk after every command.
      */
     public MrYapper() {
+        this(Durability.EVERY_COMMAND, true);
+    }
+
+    /**
+     * Constructs a new chatbot instance whose storage forces changes to disk as eagerly as
+     * {@code durability} requires, either through a journal or by changing the task file in place.
+     *
+     * @param durability The durability policy for the task file.
+     * @param isJournaled Whether changes are appended to a journal beside the task file.
+     */
+    public MrYapper(Durability durability, boolean isJournaled) {
+        this(FILE_PATH, durability, isJournaled);
+    }
+
+    /**
+     * Constructs a new chatbot instance that keeps its tasks in {@code filePath}, which is read
+     * in the binary format if it already is one, or if it does not exist yet and ends in ".bin".
+     *
+     * @param filePath The task file.
+     * @param durability The durability policy for the task file.
+     * @param isJournaled Whether changes are appended to a journal beside the task file.
+     */
+    public MrYapper(String filePath, Durability durability, boolean isJournaled) {
+        this(new Storage(filePath, isJournaled, Storage.DEFAULT_COMPACTION_THRESHOLD,
+                durability, Storage.DEFAULT_GROUP_COMMIT_MILLIS));
+    }
+
+    /**
+     * Constructs a chatbot instance working on the tasks kept by {@code storage}.
+     *
+     * @param storage Where the tasks are loaded from and saved to.
+     */
+    MrYapper(Storage storage) {
         ui = new Ui();
         parser = new Parser();
-        storage = new Storage(FILE_PATH);
+        this.storage = storage;
+        stats = new CommandStats(CommandStats.Level.TIMING);
+        long start = System.nanoTime();
         try {
             tasks = new TaskList(storage.loadTasks());
         } catch (YapperException e) {
             ui.showLoadingError(e.getMessage());
             tasks = new TaskList();
         }
+        try {
+            storage.loadHistory(tasks);
+        } catch (YapperException e) {
+            // Only undo suffers; the tasks themselves loaded fine
+            ui.showLoadingError(e.getMessage());
+        }
+        stats.recordLoad(System.nanoTime() - start, tasks.getSize());
+    }
+
+    private MrYapper(MrYapper shared) {
+        ui = shared.ui;
+        parser = shared.parser;
+        storage = shared.storage;
+        tasks = shared.tasks;
+        stats = shared.stats;
+        statsFile = shared.statsFile;
+    }
+
+    /**
+     * Returns a chatbot for another user of the same task list and storage. Each session keeps
+     * its own batch, and the caller must run the commands of all sessions one at a time.
+     */
+    MrYapper newSession() {
+        return new MrYapper(this);
+    }
+
+    /**
+     * Saves the whole task list, regardless of the durability policy.
+     *
+     * @throws YapperException If the tasks cannot be written.
+     */
+    void save() throws YapperException {
+        storage.saveTasks(tasks.snapshot());
+        storage.saveHistory(tasks);
+    }
+
+    /**
+     * Chooses what the "stats" command measures, and where to write the stats on exit.
+     *
+     * @param level What to measure for each command.
+     * @param jsonFile The file to write the stats to as JSON on exit, or null for none.
+     */
+    public void setStats(CommandStats.Level level, Path jsonFile) {
+        stats.setLevel(level);
+        statsFile = jsonFile;
+    }
+
+    /**
+     * Writes the stats to the file given to {@link #setStats}, if any.
+     */
+    public void writeStats() {
+        if (statsFile == null) {
+            return;
+        }
+        try {
+            Path dir = statsFile.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Files.writeString(statsFile, stats.toJson(storage.getBytesWritten()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Error: Could not write the stats to " + statsFile + ": " + e.getMessage());
+        }
     }
 
     /**
@@ -63,9 +262,14 @@ public class MrYapper {
         while (!isExit) {
             String fullCommand = ui.readCommand();
             CommandResult result = processCommand(fullCommand);
-            ui.showText(result.message);
+            if (result.lineAt != null) {
+                ui.showLines(result.message, result.lineCount, result.lineAt);
+            } else {
+                ui.showText(result.message);
+            }
             isExit = result.isExit;
         }
+        writeStats();
     }
 
     /**
@@ -74,68 +278,291 @@ public class MrYapper {
      * @return reply text
      */
     public String getResponse(String fullCommand) {
-        return processCommand(fullCommand).message;
+        CommandResult result = processCommand(fullCommand);
+        return result.lineAt == null ? result.message : firstPage(result);
     }
 
-    private CommandResult processCommand(String fullCommand) {
-        String[] parsed = parser.parseCommand(fullCommand);
-        String command = parsed[0].toLowerCase();
-        String args = parsed[1];
+    /**
+     * Renders a listing for the GUI, cut off after {@link #GUI_PAGE_SIZE} lines.
+     */
+    private static String firstPage(CommandResult result) {
+        int shown = Math.min(result.lineCount, GUI_PAGE_SIZE);
+        StringBuilder sb = new StringBuilder(result.message);
+        for (int i = 0; i < shown; i++) {
+            sb.append('\n').append(result.lineAt.apply(i));
+        }
+        if (shown < result.lineCount) {
+            sb.append("\n... and ").append(result.lineCount - shown).append(" more. ").append(result.moreHint);
+        }
+        return sb.toString();
+    }
 
+    /**
+     * Runs one line of input, or queues it if a batch block is open.
+     *
+     * @param fullCommand The line typed by the user.
+     * @return The response.
+     */
+    CommandResult processCommand(String fullCommand) {
+        parser.parse(fullCommand, parsed);
+        if (pendingBatch != null && parsed.command() != Command.BYE) {
+            return CommandResult.of(queueBatchLine(parsed.command(), fullCommand));
+        }
+        pendingBatch = null;
+        return executeCommand(parsed);
+    }
+
+    /**
+     * Runs one command, timing it under its name unless stats are off.
+     */
+    private CommandResult executeCommand(ParsedCommand command) {
+        if (!stats.isEnabled()) {
+            return runCommand(command);
+        }
+        long allocated = stats.allocatedBytes();
+        long start = System.nanoTime();
+        CommandResult result = runCommand(command);
+        long nanos = System.nanoTime() - start;
+        stats.record(command.command().keyword, nanos, allocated, result.message.startsWith("Error:"));
+        return result;
+    }
+
+    private CommandResult runCommand(ParsedCommand command) {
         try {
-            switch (command) {
-            case "bye":
-                storage.saveTasks(tasks.getTasks());
-                return CommandResult.exit("Had fun yapping with you. Come back and yap together soon!");
-
-            case "list":
-                return CommandResult.of(buildTaskListMessage(tasks.getTasks()));
-
-            case "mark":
-            case "unmark":
-                return CommandResult.of(handleMarkCore(command, args));
-
-            case "todo":
-            case "deadline":
-            case "event":
-                return CommandResult.of(handleAddTaskCore(command, args));
-
-            case "delete":
-                return CommandResult.of(handleDeleteCore(args));
-
-            case "find":
-                return CommandResult.of(handleFindCore(args));
-
-            case "schedule":
-            case "view":
-                return CommandResult.of(handleSchedule(args));
-            default:
-                throw new YapperException(
-                    "Invalid command. The list of available commands are:\n"
-                    + "/bye\n"
-                    + "/list\n"
-                    + "/mark\n"
-                    + "/unmark\n"
-                    + "/todo\n"
-                    + "/deadline\n"
-                    + "/event\n"
-                    + "/delete\n"
-                    + "/find\n"
-                    + "/schedule\n"
-                    + "/return\n"
-                );
+            Handler handler = HANDLERS.get(command.command());
+            if (handler != null && command.command().isChange && !isBatching) {
+                tasks.beginStep(command.line());
+                try {
+                    return handler.handle(this, command);
+                } finally {
+                    tasks.endStep();
+                }
+            } else if (handler != null) {
+                return handler.handle(this, command);
             }
+            throw new YapperException(
+                "Invalid command. The list of available commands are:\n"
+                + "/bye\n"
+                + "/list\n"
+                + "/mark\n"
+                + "/unmark\n"
+                + "/todo\n"
+                + "/deadline\n"
+                + "/event\n"
+                + "/delete\n"
+                + "/undo\n"
+                + "/redo\n"
+                + "/find\n"
+                + "/explain\n"
+                + "/schedule\n"
+                + "/conflicts\n"
+                + "/free\n"
+                + "/batch\n"
+                + "/stats\n"
+                + "/return\n"
+            );
         } catch (YapperException e) {
             return CommandResult.of("Error: " + e.getMessage());
         }
     }
 
+    /**
+     * Starts collecting a "batch ... end" block; {@code args} may give a checkpoint interval.
+     */
+    private String startBatch(String args) throws YapperException {
+        int checkpoint = 0;
+        if (!args.isBlank()) {
+            try {
+                checkpoint = Integer.parseInt(args.trim());
+            } catch (NumberFormatException e) {
+                throw new YapperException("Give the checkpoint as a number of changes, e.g. batch 500");
+            }
+        }
+        pendingBatch = new ArrayList<>();
+        pendingCheckpoint = Math.max(checkpoint, 0);
+        return "Batch started! Give me one command per line, then 'end' to run them all with a single save.";
+    }
+
+    private String queueBatchLine(Command command, String fullCommand) {
+        if (command != Command.END) {
+            pendingBatch.add(fullCommand);
+            return "Queued (" + pendingBatch.size() + " so far).";
+        }
+        List<String> lines = pendingBatch;
+        pendingBatch = null;
+        StringJoiner report = new StringJoiner("\n");
+        report.add(runBatch(lines.iterator(), pendingCheckpoint, report::add, "batch of " + lines.size()));
+        return report.toString();
+    }
+
+    /**
+     * Runs every command of a batch file and prints each result as it goes, saving once at
+     * the end and, if {@code checkpointEvery} is positive, after every that many changes.
+     *
+     * @param file The file with one command per line.
+     * @param checkpointEvery The number of changes between intermediate saves, or 0 for none.
+     */
+    public void runBatchFile(Path file, int checkpointEvery) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            System.out.println(runBatch(reader.lines().iterator(), checkpointEvery, System.out::println,
+                    "batch " + file.getFileName()));
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Error: Could not read batch file " + file + ": " + e.getMessage());
+            saveBatch();
+        }
+        writeStats();
+    }
+
+    /**
+     * Runs commands one after another against the task list in memory and reports each result,
+     * prefixed with its line number, through {@code out}. Changes are saved once at the end,
+     * plus after every {@code checkpointEvery} changes if that is positive. All the changes
+     * are a single step to undo, called {@code label}.
+     *
+     * @return A summary of the batch.
+     */
+    private String runBatch(Iterator<String> lines, int checkpointEvery, Consumer<String> out, String label) {
+        int lineNumber = 0;
+        int commandCount = 0;
+        int failureCount = 0;
+        isBatching = true;
+        tasks.beginStep(label);
+        try {
+            while (lines.hasNext()) {
+                String line = lines.next();
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                commandCount++;
+                parser.parse(line, parsed);
+                CommandResult result;
+                if (NOT_IN_BATCH.contains(parsed.command())) {
+                    result = CommandResult.of("Error: '" + parsed.command().keyword
+                            + "' cannot be used inside a batch.");
+                } else {
+                    try {
+                        result = executeCommand(parsed);
+                    } catch (RuntimeException e) {
+                        result = CommandResult.of("Error: I could not make sense of that line.");
+                    }
+                }
+                if (result.message.startsWith("Error:")) {
+                    failureCount++;
+                }
+                out.accept("[" + lineNumber + "] " + result.message);
+                for (int i = 0; i < result.lineCount; i++) {
+                    out.accept(result.lineAt.apply(i));
+                }
+                if (checkpointEvery > 0 && unsavedChanges >= checkpointEvery) {
+                    out.accept("Checkpoint: " + saveBatch());
+                }
+            }
+        } finally {
+            isBatching = false;
+            tasks.endStep();
+        }
+        return "Batch finished: " + commandCount + " commands, " + failureCount + " failed. " + saveBatch();
+    }
+
+    private String saveBatch() {
+        if (unsavedChanges == 0) {
+            return "Nothing to save.";
+        }
+        try {
+            storage.saveTasks(tasks.snapshot());
+            storage.saveHistory(tasks);
+        } catch (YapperException e) {
+            return "Error: " + e.getMessage();
+        }
+        String saved = "Saved " + unsavedChanges + " changes.";
+        unsavedChanges = 0;
+        return saved;
+    }
+
+    private void persistAdd(Task task) throws YapperException {
+        if (isBatching) {
+            unsavedChanges++;
+        } else {
+            storage.recordAdd(tasks::snapshot, task);
+        }
+    }
+
+    private void persistMark(List<Task> changed, boolean isDone) throws YapperException {
+        if (isBatching) {
+            unsavedChanges += changed.isEmpty() ? 0 : 1;
+        } else {
+            storage.recordMark(tasks::snapshot, changed, isDone);
+        }
+    }
+
+    private void persistReplace(List<Task> replaced) throws YapperException {
+        if (isBatching) {
+            unsavedChanges += replaced.isEmpty() ? 0 : 1;
+        } else {
+            storage.recordReplace(tasks::snapshot, replaced);
+        }
+    }
+
+    private void persistDelete(List<Task> removed) throws YapperException {
+        if (isBatching) {
+            unsavedChanges++;
+        } else {
+            storage.recordDelete(tasks::snapshot, removed);
+        }
+    }
+
+    /**
+     * Resolves one or more tasks separated by commas, each given by its list number, a range
+     * of list numbers such as {@code 1-500}, or {@code #id}. List numbers refer to the list as
+     * it is before the command runs.
+     *
+     * @return The distinct zero-based positions, in the order given.
+     * @throws YapperException If any of the tasks does not exist.
+     */
+    private List<Integer> parseIndexes(String args, String actionVerb) throws YapperException {
+        if (args == null || args.trim().isEmpty()) {
+            throw new YapperException("Please provide a task number to " + actionVerb + "!");
+        }
+        Set<Integer> indexes = new LinkedHashSet<>();
+        for (String part : args.split(",")) {
+            String ref = part.trim();
+            int dash = ref.indexOf('-');
+            if (dash > 0 && !ref.startsWith("#")) {
+                int from = parseIndexOneBased(ref.substring(0, dash), actionVerb);
+                int to = parseIndexOneBased(ref.substring(dash + 1), actionVerb);
+                if (from < 0 || to >= tasks.getSize() || from > to) {
+                    throw new YapperException("Task number out of bounds!");
+                }
+                for (int i = from; i <= to; i++) {
+                    indexes.add(i);
+                }
+            } else {
+                int index = parseIndexOneBased(ref, actionVerb);
+                if (index < 0 || index >= tasks.getSize()) {
+                    throw new YapperException("Task number out of bounds!");
+                }
+                indexes.add(index);
+            }
+        }
+        return new ArrayList<>(indexes);
+    }
+
+    /**
+     * Resolves a task given either by its list number or, prefixed with '#', by its id.
+     *
+     * @return The zero-based position of the task.
+     */
     private int parseIndexOneBased(String args, String actionVerb) throws YapperException {
         if (args == null || args.trim().isEmpty()) {
             throw new YapperException("Please provide a task number to " + actionVerb + "!");
         }
+        String ref = args.trim();
         try {
-            return Integer.parseInt(args.trim()) - 1;
+            if (ref.startsWith("#")) {
+                return tasks.indexOfId(Integer.parseInt(ref.substring(1)));
+            }
+            return Integer.parseInt(ref) - 1;
         } catch (NumberFormatException e) {
             throw new YapperException("I did not recognise that task number! Please provide a valid number to" 
             + actionVerb + "."
@@ -143,14 +570,34 @@ public class MrYapper {
         }
     }
 
-    private String handleMarkCore(String command, String args) throws YapperException {
-        int idx = parseIndexOneBased(args, command);
-        boolean changed = command.equals("mark")
-                ? tasks.markTaskAsDone(idx)
-                : tasks.markTaskAsUndone(idx);
-        storage.saveTasks(tasks.getTasks());
-        Task t = tasks.getTasks().get(idx);
-        return command.equals("mark")
+    private CommandResult handleBye() throws YapperException {
+        storage.saveTasks(tasks.snapshot());
+        storage.saveHistory(tasks);
+        return CommandResult.exit("Had fun yapping with you. Come back and yap together soon!");
+    }
+
+    private String handleMarkCore(ParsedCommand command) throws YapperException {
+        boolean isMark = command.command() == Command.MARK;
+        if (command.hasFlag("/on")) {
+            return handleMarkOccurrence(command, isMark);
+        }
+        List<Integer> indexes = parseIndexes(command.args(), command.command().keyword);
+        List<Task> changedTasks = new ArrayList<>();
+        for (int idx : indexes) {
+            if (isMark ? tasks.markTaskAsDone(idx) : tasks.markTaskAsUndone(idx)) {
+                // Marking replaces the task with a changed copy, so look it up afterwards
+                changedTasks.add(tasks.get(idx));
+            }
+        }
+        persistMark(changedTasks, isMark);
+        if (indexes.size() > 1) {
+            return (isMark ? "Marked " : "Unmarked ") + changedTasks.size() + " of " + indexes.size()
+                    + " tasks" + (isMark ? " as done." : ".")
+                    + (changedTasks.size() < indexes.size() ? " The rest already were." : "");
+        }
+        Task t = tasks.get(indexes.get(0));
+        boolean changed = !changedTasks.isEmpty();
+        return isMark
                 ? (changed ? "Great job completing the task:\n  " + t.toString()
                            : "Task has already been marked done!")
                 : (changed ? (
@@ -160,59 +607,252 @@ public class MrYapper {
                            : "Task has not been marked done!");
     }
 
-    private String handleAddTaskCore(String command, String args) throws YapperException {
-        if (args.isEmpty()) {
-            throw new YapperException("Tell me a whooooooooole lot more about " + command + "! :)");
+    /**
+     * Marks or unmarks only the occurrence on one day of each recurring task given, as in
+     * {@code mark 2 /on 2025-09-22}.
+     */
+    private String handleMarkOccurrence(ParsedCommand command, boolean isMark) throws YapperException {
+        LocalDate day = DateParser.parseDate(command.flagValue("/on"));
+        if (day == null) {
+            throw new YapperException("Which day /on? Try e.g. " + command.command().keyword + " 2 /on 2025-09-22");
+        }
+        List<Integer> indexes = parseIndexes(command.textBefore("/on"), command.command().keyword);
+        List<Task> changedTasks = new ArrayList<>();
+        for (int idx : indexes) {
+            Task changed = tasks.markOccurrence(idx, day, isMark);
+            if (changed != null) {
+                changedTasks.add(changed);
+            }
+        }
+        persistReplace(changedTasks);
+        if (indexes.size() > 1) {
+            return (isMark ? "Marked " : "Unmarked ") + changedTasks.size() + " of " + indexes.size()
+                    + " tasks on " + day + "."
+                    + (changedTasks.size() < indexes.size() ? " The rest already were." : "");
+        }
+        if (changedTasks.isEmpty()) {
+            return isMark ? "That one was already done on " + day + "!" : "That one wasn't done on " + day + "!";
+        }
+        return (isMark ? "Great job! That's done for " : "Ok, I've marked it as not done yet for ") + day + ":\n  "
+                + changedTasks.get(0);
+    }
+
+    /**
+     * Reads how a new deadline or event repeats from its {@code /every}, {@code /until} and
+     * {@code /times} flags.
+     *
+     * @return The rule, or null if the task does not repeat.
+     */
+    private static Recurrence parseRecurrence(ParsedCommand command) throws YapperException {
+        String every = command.flagValue("/every");
+        if (every == null) {
+            if (command.hasFlag("/until") || command.hasFlag("/times")) {
+                throw new YapperException("Repeat it how often? Add e.g. /every week.");
+            }
+            return null;
+        }
+        return Recurrence.parse(every, command.flagValue("/until"), command.flagValue("/times"));
+    }
+
+    private String handleAddTaskCore(ParsedCommand command) throws YapperException {
+        if (!command.hasArgs()) {
+            throw new YapperException("Tell me a whooooooooole lot more about " + command.command().keyword + "! :)");
         }
         Task newTask;
-        if (command.equals("todo")) {
-            newTask = new ToDo(args);
-        } else if (command.equals("deadline")) {
-            if (!args.contains("/by")) {
+        if (command.command() == Command.TODO) {
+            newTask = new ToDo(command.args());
+        } else if (command.command() == Command.DEADLINE) {
+            String by = command.flagValue("/by");
+            if (by == null || by.isEmpty()) {
                 throw new YapperException("Hey hey hey have you told me when your task is /by??");
             }
-            newTask = new Deadline(args);
+            newTask = Deadline.fromInput(command.textBefore("/by"), by, parseRecurrence(command));
         } else {
-            if (!args.contains("/from") || !args.contains("/to")) {
+            String from = command.flagValue("/from");
+            String to = command.flagValue("/to");
+            if (from == null || to == null || from.isEmpty() || to.isEmpty()) {
                 throw new YapperException("Hellloo? Have you told me when your task is /from when /to when??");
             }
-            newTask = new Event(args);
+            newTask = Event.fromInput(command.textBefore("/from"), from, to, parseRecurrence(command));
         }
         tasks.add(newTask);
-        storage.saveTasks(tasks.getTasks());
-        return "Got it. I've added this task:\n" + newTask
-                + "\nNow you have " + tasks.getSize() + " tasks in the list.";
+        persistAdd(newTask);
+        String warning = newTask instanceof Event ? ScheduleConflicts.warningFor(tasks, (Event) newTask) : "";
+        return "Got it. I've added this task as #" + newTask.getId() + ":\n" + newTask
+                + "\nNow you have " + tasks.getSize() + " tasks in the list." + warning;
     }
 
     private String handleDeleteCore(String args) throws YapperException {
-        int taskIndex = parseIndexOneBased(args, "delete");
-        Task removedTask = tasks.delete(taskIndex);
-        storage.saveTasks(tasks.getTasks());
+        List<Integer> indexes = parseIndexes(args, "delete");
+        // Delete from the back so that the remaining list numbers stay valid
+        indexes.sort(Collections.reverseOrder());
+        List<Task> removedTasks = new ArrayList<>();
+        for (int idx : indexes) {
+            removedTasks.add(tasks.delete(idx));
+        }
+        persistDelete(removedTasks);
+        if (removedTasks.size() > 1) {
+            return "Poof! " + removedTasks.size() + " tasks are gone and out of the way... unless you say undo!"
+                    + "\nNow you have " + tasks.getSize() + " tasks in the list.";
+        }
+        Task removedTask = removedTasks.get(0);
         return (
-            removedTask + "is gone and out of the way... FOREVER!!"
+            removedTask + " is gone and out of the way... unless you say undo!"
             + "\nNow you have " + tasks.getSize() + " tasks in the list."
         );
     }
 
+    /**
+     * Undoes or redoes the last step of changes and saves the result like any other change.
+     */
+    private String handleUndo(boolean isRedo) throws YapperException {
+        UndoHistory.Applied applied = isRedo ? tasks.redo() : tasks.undo();
+        if (isBatching) {
+            unsavedChanges++;
+        } else {
+            storage.recordRestore(tasks::snapshot, applied.restored);
+            storage.recordDelete(tasks::snapshot, applied.removed);
+            List<Task> done = new ArrayList<>();
+            List<Task> notDone = new ArrayList<>();
+            List<Task> recurring = new ArrayList<>();
+            for (Task task : applied.replaced) {
+                // Which occurrences are done is only in the task itself, so it is written whole
+                (task.getRecurrence() != null ? recurring : task.isDone() ? done : notDone).add(task);
+            }
+            storage.recordMark(tasks::snapshot, done, true);
+            storage.recordMark(tasks::snapshot, notDone, false);
+            storage.recordReplace(tasks::snapshot, recurring);
+        }
+        StringJoiner summary = new StringJoiner(", ", " (", ")");
+        summary.setEmptyValue("");
+        if (!applied.restored.isEmpty()) {
+            summary.add(applied.restored.size() + (applied.restored.size() == 1 ? " task" : " tasks") + " back");
+        }
+        if (!applied.removed.isEmpty()) {
+            summary.add(applied.removed.size() + " removed");
+        }
+        if (!applied.replaced.isEmpty()) {
+            summary.add(applied.replaced.size() + (isRedo ? " marked again" : " marked back"));
+        }
+        String what = applied.label == null ? "the last change" : "\"" + applied.label + "\"";
+        return (isRedo ? "Back again! I've redone " : "No worries, I've undone ") + what + summary
+                + ".\nNow you have " + tasks.getSize() + " tasks in the list.";
+    }
+
     /**
      * Handle the right logic when the command "find" is entered.
+     * A keyword starting with "~" finds the closest matches even if misspelt.
      * 
      * @param args String words we want to find in our Task description.
      * @throws YapperException the user does not include keywords.
      */
-    private String handleFindCore(String args) throws YapperException {
+    private CommandResult handleFindCore(String args) throws YapperException {
+        boolean isFuzzy = args.startsWith("~");
+        if (isFuzzy) {
+            args = args.substring(1).trim();
+        }
         if (args.isEmpty()) {
             throw new YapperException("Stop clowning and include a keyword for me to search for");
         }
+        if (isFuzzy) {
+            List<Task> closest = tasks.findTasksFuzzy(args, FUZZY_MATCHES);
+            if (closest.isEmpty()) {
+                return CommandResult.of("Girl nothing even comes close to that. C'mon try something else.");
+            }
+            return CommandResult.lines("These are the closest matches I found!", closest.size(),
+                    i -> taskLine(i + 1, closest.get(i)), "Add more keywords to narrow down the search.");
+        }
+        if (TaskQuery.isQuery(args)) {
+            List<Task> matches = tasks.query(TaskQuery.parse(args), null);
+            if (matches.isEmpty()) {
+                return CommandResult.of("Girl no task passes all of those filters. C'mon try something else.");
+            }
+            return CommandResult.lines("I found the following matches!", matches.size(),
+                    i -> taskLine(i + 1, matches.get(i)), "Add more filters to narrow down the search.");
+        }
         ArrayList<Task> foundTasks = tasks.findTasks(args);
         if (foundTasks.isEmpty()) {
-            return "Girl there's no matching keyword found among tasks. C'mon try something else.";
+            return CommandResult.of("Girl there's no matching keyword found among tasks. C'mon try something else.");
+        }
+        return CommandResult.lines("I found the following matches!", foundTasks.size(),
+                i -> taskLine(i + 1, foundTasks.get(i)), "Add more keywords to narrow down the search.");
+    }
+
+    /**
+     * Handles "explain [find] query", which runs a find query and tells how it went about it:
+     * which filter it looked up in an index, and how many tasks each of the others let through.
+     */
+    private String handleExplain(String args) throws YapperException {
+        String query = args.trim();
+        if (query.regionMatches(true, 0, "find ", 0, "find ".length())) {
+            query = query.substring("find ".length()).trim();
+        }
+        if (query.isEmpty()) {
+            throw new YapperException("Explain what? Try e.g. explain find type:deadline done:no text:report");
         }
-        StringBuilder sb = new StringBuilder("I found the following matches!\n");
-        for (int i = 0; i < foundTasks.size(); i++) {
-            sb.append(i + 1).append(". ").append(foundTasks.get(i)).append("\n");
+        if (query.startsWith("~")) {
+            throw new YapperException("I can only explain finds without ~, sorry!");
+        }
+        StringJoiner report = new StringJoiner("\n", "Here's how I went about finding " + query + ":\n", "");
+        tasks.query(TaskQuery.parse(query), report::add);
+        return report.toString();
+    }
+
+    /**
+     * Handles "list", or "list --page N --size M" for a single page of the list.
+     */
+    private CommandResult handleList(String args) throws YapperException {
+        // Listings are streamed after the command returns, so they read a snapshot
+        List<Task> list = tasks.snapshot();
+        int size = list.size();
+        if (args.isBlank()) {
+            if (size == 0) {
+                return CommandResult.of("Empty tasks.");
+            }
+            return CommandResult.lines("Here are the tasks in your list:", size,
+                    i -> taskLine(i + 1, list.get(i)),
+                    "Use list --page 2 --size " + GUI_PAGE_SIZE + " to see the next ones.");
+        }
+
+        int page = 1;
+        int pageSize = DEFAULT_PAGE_SIZE;
+        String[] options = args.trim().split("\\s+");
+        for (int i = 0; i < options.length; i += 2) {
+            int value = i + 1 < options.length ? parsePositive(options[i + 1]) : -1;
+            if (options[i].equals("--page") && value > 0) {
+                page = value;
+            } else if (options[i].equals("--size") && value > 0) {
+                pageSize = value;
+            } else {
+                throw new YapperException("Try list, or list --page N --size M with N and M from 1 up.");
+            }
+        }
+        int pageCount = Math.max((size + pageSize - 1) / pageSize, 1);
+        if (page > pageCount) {
+            throw new YapperException("There is no page " + page + "! With " + pageSize
+                    + " tasks a page there are only " + pageCount + ".");
+        }
+        int from = (page - 1) * pageSize;
+        int count = Math.min(pageSize, size - from);
+        if (count == 0) {
+            return CommandResult.of("Empty tasks.");
+        }
+        String heading = "Here are tasks " + (from + 1) + "-" + (from + count) + " of " + size
+                + " (page " + page + " of " + pageCount + "):";
+        return CommandResult.lines(heading, count, i -> taskLine(from + i + 1, list.get(from + i)),
+                "Use a --size of at most " + GUI_PAGE_SIZE + " to see the whole page.");
+    }
+
+    private static int parsePositive(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return -1;
         }
-        return sb.toString().trim();
+    }
+
+    private static String taskLine(int number, Task task) {
+        return number + ". #" + task.getId() + " " + task;
     }
 
     private String handleSchedule(String args) {
@@ -220,35 +860,238 @@ public class MrYapper {
         if (raw.isEmpty()) {
             return "Please provide a date. Example: schedule 2025-09-07";
         }
-    
-        // Accept either ISO date (yyyy-MM-dd) or d/M/yyyy
-        LocalDate date = null;
-        try {
-            date = LocalDate.parse(raw); // yyyy-MM-dd
-        } catch (DateTimeParseException ex) {
-            try {
-                DateTimeFormatter DMY = DateTimeFormatter.ofPattern("d/M/yyyy");
-                date = LocalDate.parse(raw, DMY);
-            } catch (DateTimeParseException ex2) {
-                return "Girl I couldn't understand that date. Try yyyy-MM-dd or d/M/yyyy, e.g. schedule 2025-09-07";
+
+        // Either a single date, two dates for a range, or "week"/"month" followed by a date
+        String[] parts = raw.split("\\s+");
+        String mode = parts[0].toLowerCase();
+        if (mode.equals("week") || mode.equals("month")) {
+            LocalDate date = parts.length == 2 ? DateParser.parseDate(parts[1]) : null;
+            if (parts.length == 1) {
+                date = LocalDate.now();
+            }
+            if (date == null) {
+                return "Girl I couldn't understand that date. Try e.g. schedule " + mode + " 2025-09-07";
             }
+            return mode.equals("week")
+                    ? ViewSchedules.forWeek(this.tasks, date)
+                    : ViewSchedules.forMonth(this.tasks, date);
         }
-    
-        String message = ViewSchedules.forDate(this.tasks, date);
-        return message;
+
+        if (parts.length > 2) {
+            return "Give me one date, or two for a range, e.g. schedule 2025-09-01 2025-09-30";
+        }
+        LocalDate from = DateParser.parseDate(parts[0]);
+        LocalDate to = parts.length == 2 ? DateParser.parseDate(parts[1]) : from;
+        if (from == null || to == null) {
+            return "Girl I couldn't understand that date. Try yyyy-MM-dd or d/M/yyyy, e.g. schedule 2025-09-07";
+        }
+        if (to.isBefore(from)) {
+            return "The end of the range cannot be before its start.";
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= ViewSchedules.MAX_RANGE_DAYS) {
+            return "That's too long a range! Keep it within " + ViewSchedules.MAX_RANGE_DAYS + " days.";
+        }
+
+        return parts.length == 1
+                ? ViewSchedules.forDate(this.tasks, from)
+                : ViewSchedules.forRange(this.tasks, from, to);
     }
-    
 
-    private String buildTaskListMessage(ArrayList<Task> list) {
-        if (list.isEmpty()) return "Empty tasks.";
-        StringBuilder sb = new StringBuilder("Here are the tasks in your list:\n");
-        for (int i = 0; i < list.size(); i++) {
-            sb.append(i + 1).append(". ").append(list.get(i)).append("\n");
+    /**
+     * Lists the events that overlap each other: in the next {@link #CONFLICT_DAYS} days if no
+     * dates are given, on one day, or in a range of days.
+     */
+    private CommandResult handleConflicts(String args) {
+        String[] parts = args == null || args.trim().isEmpty() ? new String[0] : args.trim().split("\\s+");
+        if (parts.length > 2) {
+            return CommandResult.of("Give me one date, or two for a range, e.g. conflicts 2025-09-01 2025-09-30");
+        }
+        LocalDate from = parts.length == 0 ? LocalDate.now() : DateParser.parseDate(parts[0]);
+        LocalDate to = parts.length == 0 ? from.plusDays(CONFLICT_DAYS - 1)
+                : parts.length == 2 ? DateParser.parseDate(parts[1]) : from;
+        if (from == null || to == null) {
+            return CommandResult.of("Girl I couldn't understand that date. Try yyyy-MM-dd or d/M/yyyy,"
+                    + " e.g. conflicts 2025-09-07");
+        }
+        if (to.isBefore(from)) {
+            return CommandResult.of("The end of the range cannot be before its start.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= ViewSchedules.MAX_RANGE_DAYS) {
+            return CommandResult.of("That's too long a range! Keep it within " + ViewSchedules.MAX_RANGE_DAYS
+                    + " days.");
         }
-        return sb.toString().trim();
+        List<String> conflicts = ScheduleConflicts.between(this.tasks, from, to);
+        String range = from.equals(to) ? "on " + from : "from " + from + " to " + to;
+        if (conflicts.isEmpty()) {
+            return CommandResult.of("No clashes " + range + ". Your calendar is looking clean!");
+        }
+        return CommandResult.lines(conflicts.size() + (conflicts.size() == 1 ? " clash " : " clashes ") + range + ":",
+                conflicts.size(), conflicts::get, "Look at a shorter range to see them all.");
     }
-    
+
+    /**
+     * Finds the earliest free slots of a given length, as in
+     * {@code free 2025-09-01 2025-09-30 1h30m within 09:00-17:00}.
+     */
+    private String handleFree(String args) {
+        String usage = "Try e.g. free 2025-09-22 1h, or free 2025-09-01 2025-09-30 30m within 09:00-17:00";
+        List<String> parts = new ArrayList<>(List.of(args == null || args.trim().isEmpty()
+                ? new String[0] : args.trim().split("\\s+")));
+        LocalTime windowStart = LocalTime.MIN;
+        LocalTime windowEnd = LocalTime.MAX;
+        int within = parts.indexOf("within");
+        if (within >= 0) {
+            LocalTime[] window = within == parts.size() - 2 ? parseWindow(parts.get(within + 1)) : null;
+            if (window == null) {
+                return "Give the hours to look within as HH:mm-HH:mm, e.g. within 09:00-17:00";
+            }
+            windowStart = window[0];
+            windowEnd = window[1];
+            parts = parts.subList(0, within);
+        }
+        if (parts.size() < 2 || parts.size() > 3) {
+            return usage;
+        }
+        Duration length = parseLength(parts.get(parts.size() - 1));
+        LocalDate from = DateParser.parseDate(parts.get(0));
+        LocalDate to = parts.size() == 3 ? DateParser.parseDate(parts.get(1)) : from;
+        if (length == null) {
+            return "How long a slot? Give it like 45m, 2h or 1h30m. " + usage;
+        }
+        if (from == null || to == null) {
+            return "Girl I couldn't understand that date. " + usage;
+        }
+        if (to.isBefore(from)) {
+            return "The end of the range cannot be before its start.";
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= ViewSchedules.MAX_RANGE_DAYS) {
+            return "That's too long a range! Keep it within " + ViewSchedules.MAX_RANGE_DAYS + " days.";
+        }
+        StringJoiner out = new StringJoiner("\n");
+        int found = ViewSchedules.findFree(this.tasks, from, to, length, windowStart, windowEnd, FREE_SLOTS,
+                slot -> out.add("  " + slot));
+        String range = from.equals(to) ? "on " + from : "from " + from + " to " + to;
+        if (found == 0) {
+            return "No free slot of " + parts.get(parts.size() - 1) + " " + range + ". Busy busy!";
+        }
+        return "Free for " + parts.get(parts.size() - 1) + " or more " + range
+                + (found == FREE_SLOTS ? " (the earliest " + FREE_SLOTS + "):\n" : ":\n") + out;
+    }
+
+    /**
+     * Parses a length of time such as {@code 45m}, {@code 2h} or {@code 1h30m}.
+     *
+     * @return The length, or null if it is not one, or not longer than nothing.
+     */
+    private static Duration parseLength(String s) {
+        Matcher m = LENGTH.matcher(s.toLowerCase());
+        if (!m.matches() || (m.group(1) == null && m.group(2) == null)) {
+            return null;
+        }
+        long minutes = (m.group(1) == null ? 0 : Long.parseLong(m.group(1)) * 60)
+                + (m.group(2) == null ? 0 : Long.parseLong(m.group(2)));
+        return minutes > 0 && minutes <= 24 * 60 ? Duration.ofMinutes(minutes) : null;
+    }
+
+    /**
+     * Parses hours of the day such as {@code 09:00-17:00}, where {@code 24:00} stands for midnight.
+     *
+     * @return The start and end, or null if they are not times or the end is not after the start.
+     */
+    private static LocalTime[] parseWindow(String s) {
+        int dash = s.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            LocalTime start = LocalTime.parse(s.substring(0, dash));
+            String endText = s.substring(dash + 1);
+            LocalTime end = endText.equals("24:00") ? LocalTime.MAX : LocalTime.parse(endText);
+            return end.isAfter(start) ? new LocalTime[] {start, end} : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Serves the task list to clients on this machine until the process is stopped.
+     */
+    private static void serve(MrYapper yapper, int port) {
+        try {
+            YapperServer server = new YapperServer(yapper, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    System.out.println("Error: Could not save the tasks on shutdown: " + e.getMessage());
+                }
+                yapper.writeStats();
+            }));
+            server.start();
+            System.out.println("Serving your tasks on localhost:" + server.getPort()
+                    + ". Connect with mryapper.YapperClient " + server.getPort() + ", stop with Ctrl+C.");
+        } catch (IOException e) {
+            System.out.println("Error: Could not listen on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the CLI. Accepts {@code --file path} to keep the tasks somewhere other than
+     * {@value #FILE_PATH}, such as a binary file written by {@link taskmanager.TaskFileConverter},
+     * {@code --durability every|group|exit} to choose how eagerly changes are forced to disk,
+     * {@code --journal off} to write changes straight into the task file instead of a journal
+     * beside it, and {@code --batch file} to run the commands in a file with a single save
+     * instead, optionally saving every N changes with {@code --checkpoint N}.
+     * With {@code --serve [port]} it serves the task list to {@link YapperClient}s instead.
+     * {@code --stats off|on|alloc} chooses what the "stats" command measures, timing by
+     * default, and {@code --stats-json file} writes the stats to a file on exit.
+     */
     public static void main(String[] args) {
-        new MrYapper().run();
+        String filePath = FILE_PATH;
+        Durability durability = Durability.EVERY_COMMAND;
+        boolean isJournaled = true;
+        String batchFile = null;
+        int checkpoint = 0;
+        int servePort = -1;
+        CommandStats.Level statsLevel = CommandStats.Level.TIMING;
+        Path statsFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--serve")) {
+                servePort = YapperServer.DEFAULT_PORT;
+                if (i + 1 < args.length && args[i + 1].matches("\\d{1,5}")) {
+                    servePort = Integer.parseInt(args[i + 1]);
+                }
+            }
+        }
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--file")) {
+                filePath = args[i + 1];
+            } else if (args[i].equals("--durability") && Durability.fromName(args[i + 1]) != null) {
+                durability = Durability.fromName(args[i + 1]);
+            } else if (args[i].equals("--journal") && args[i + 1].matches("on|off")) {
+                isJournaled = args[i + 1].equals("on");
+            } else if (args[i].equals("--stats") && CommandStats.Level.fromName(args[i + 1]) != null) {
+                statsLevel = CommandStats.Level.fromName(args[i + 1]);
+            } else if (args[i].equals("--stats-json")) {
+                statsFile = Paths.get(args[i + 1]);
+            } else if (args[i].equals("--batch")) {
+                batchFile = args[i + 1];
+            } else if (args[i].equals("--checkpoint")) {
+                try {
+                    checkpoint = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Ignoring --checkpoint, which must be a number: " + args[i + 1]);
+                }
+            }
+        }
+        MrYapper yapper = new MrYapper(filePath, durability, isJournaled);
+        yapper.setStats(statsLevel, statsFile);
+        if (servePort >= 0) {
+            serve(yapper, servePort);
+        } else if (batchFile != null) {
+            yapper.runBatchFile(Paths.get(batchFile), checkpoint);
+        } else {
+            yapper.run();
+        }
     }
 }
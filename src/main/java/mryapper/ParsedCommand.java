@@ -0,0 +1,112 @@
+package mryapper;
+
+import java.util.Arrays;
+
+/**
+ * One line of input split up by {@link Parser#parse}: the command, its arguments, and the
+ * flags such as {@code /by} among them, all kept as positions in the line. Nothing is copied
+ * out of the line until a handler asks for it, and the same instance is reused for every
+ * line, so reading a command allocates nothing.
+ *
+ * A flag is a word of letters after a '/', standing on its own, as in {@code /by}; its value
+ * runs up to the next flag. Slashes inside words, as in {@code 2/12/2019}, are not flags.
+ */
+public final class ParsedCommand {
+    String line = "";
+    Command command = Command.INVALID;
+    int wordStart;
+    int wordEnd;
+    int argsStart;
+    int argsEnd;
+    int flagCount;
+    /** Where each flag starts, at its '/' */
+    int[] flagStarts = new int[4];
+    /** Where the name of each flag ends */
+    int[] flagEnds = new int[4];
+
+    public Command command() {
+        return command;
+    }
+
+    /**
+     * Returns the line without surrounding whitespace.
+     */
+    public String line() {
+        return line.substring(wordStart, argsEnd);
+    }
+
+    /**
+     * Returns the first word of the line as typed.
+     */
+    public String commandWord() {
+        return line.substring(wordStart, wordEnd);
+    }
+
+    /**
+     * Returns everything after the first word, without surrounding whitespace.
+     */
+    public String args() {
+        return line.substring(argsStart, argsEnd);
+    }
+
+    public boolean hasArgs() {
+        return argsEnd > argsStart;
+    }
+
+    /**
+     * Returns whether {@code flag}, e.g. {@code "/by"}, appears among the arguments.
+     */
+    public boolean hasFlag(String flag) {
+        return indexOfFlag(flag) >= 0;
+    }
+
+    /**
+     * Returns the text after the first {@code flag} up to the next flag, without surrounding
+     * whitespace, or null if the flag is not there.
+     */
+    public String flagValue(String flag) {
+        int i = indexOfFlag(flag);
+        if (i < 0) {
+            return null;
+        }
+        return trimmed(flagEnds[i], i + 1 < flagCount ? flagStarts[i + 1] : argsEnd);
+    }
+
+    /**
+     * Returns the arguments before the first {@code flag}, without surrounding whitespace,
+     * or all of them if the flag is not there.
+     */
+    public String textBefore(String flag) {
+        int i = indexOfFlag(flag);
+        return i < 0 ? args() : trimmed(argsStart, flagStarts[i]);
+    }
+
+    private int indexOfFlag(String flag) {
+        for (int i = 0; i < flagCount; i++) {
+            if (flagEnds[i] - flagStarts[i] == flag.length() && line.startsWith(flag, flagStarts[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String trimmed(int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return line.substring(start, end);
+    }
+
+    void addFlag(int start, int end) {
+        if (flagCount == flagStarts.length) {
+            flagStarts = Arrays.copyOf(flagStarts, flagCount * 2);
+            flagEnds = Arrays.copyOf(flagEnds, flagCount * 2);
+        }
+        flagStarts[flagCount] = start;
+        flagEnds[flagCount] = end;
+        flagCount++;
+    }
+}
@@ -10,9 +10,57 @@ public class Parser {
      * @return Two-element String array
      */
     public String[] parseCommand(String fullCommand) {
-        String[] parts = fullCommand.trim().split(" ", 2);
-        String command = parts[0];
-        String args = parts.length > 1 ? parts[1] : "";
-        return new String[]{command, args};
+        ParsedCommand parsed = parse(fullCommand, new ParsedCommand());
+        return new String[]{parsed.commandWord(), parsed.args()};
+    }
+
+    /**
+     * Splits a line into its command, arguments and flags in a single pass, filling in
+     * {@code into} instead of allocating a new result.
+     *
+     * @param line The entire user input.
+     * @param into The structure to fill in, which is reset first.
+     * @return {@code into}.
+     */
+    public ParsedCommand parse(String line, ParsedCommand into) {
+        int end = line.length();
+        int i = 0;
+        while (i < end && line.charAt(i) <= ' ') {
+            i++;
+        }
+        while (end > i && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        into.line = line;
+        into.wordStart = i;
+        while (i < end && line.charAt(i) != ' ') {
+            i++;
+        }
+        into.wordEnd = i;
+        into.command = Command.of(line, into.wordStart, i);
+        while (i < end && line.charAt(i) <= ' ') {
+            i++;
+        }
+        into.argsStart = i;
+        into.argsEnd = end;
+        into.flagCount = 0;
+
+        boolean isWordStart = true;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '/' && isWordStart) {
+                int nameEnd = i + 1;
+                while (nameEnd < end && Character.isLetter(line.charAt(nameEnd))) {
+                    nameEnd++;
+                }
+                if (nameEnd > i + 1 && (nameEnd == end || line.charAt(nameEnd) <= ' ')) {
+                    into.addFlag(i, nameEnd);
+                    i = nameEnd - 1;
+                    continue;
+                }
+            }
+            isWordStart = c <= ' ';
+        }
+        return into;
     }
 }
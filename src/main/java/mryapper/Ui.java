@@ -1,8 +1,12 @@
 package mryapper;
 
 import taskmanager.Task;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.function.IntFunction;
 
 /**
  * Handles all interactions with user, including reading input and printing outputs.
@@ -113,4 +117,23 @@ public class Ui {
     public void showText(String text) {
         System.out.println(LINE + "\n" + text + "\n" + LINE);
     }
+
+    /**
+     * Displays a heading followed by {@code count} lines, each produced by {@code lineAt} just
+     * before it is written, so that a long listing is never held in memory as a whole.
+     *
+     * @param heading The text before the lines.
+     * @param count The number of lines.
+     * @param lineAt Produces the line with the given zero-based number.
+     */
+    public void showLines(String heading, int count, IntFunction<String> lineAt) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        out.println(LINE);
+        out.println(heading);
+        for (int i = 0; i < count; i++) {
+            out.println(lineAt.apply(i));
+        }
+        out.println(LINE);
+        out.flush();
+    }
 }
@@ -0,0 +1,111 @@
+package mryapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A thin client for {@link YapperServer}: sends commands and reads back the responses, as
+ * described by the server's line protocol.
+ */
+public final class YapperClient implements Closeable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    /**
+     * Connects to a server on this machine.
+     *
+     * @param port The port the server listens on.
+     * @throws IOException If the server cannot be reached.
+     */
+    public YapperClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends one command and returns its response.
+     *
+     * @param command The command, on a single line.
+     * @return The lines of the response.
+     * @throws IOException If the connection fails.
+     */
+    public List<String> send(String command) throws IOException {
+        List<String> lines = new ArrayList<>();
+        send(command, lines::add);
+        return lines;
+    }
+
+    /**
+     * Sends one command and passes each line of the response to {@code onLine} as it arrives,
+     * so that a long listing never has to be held in memory.
+     *
+     * @param command The command, on a single line.
+     * @param onLine Receives each line of the response.
+     * @throws IOException If the connection fails.
+     */
+    public void send(String command, Consumer<String> onLine) throws IOException {
+        out.write(command.replace('\n', ' '));
+        out.write('\n');
+        out.flush();
+        while (true) {
+            String line = in.readLine();
+            if (line == null) {
+                throw new EOFException("The server closed the connection");
+            }
+            if (line.equals(".")) {
+                return;
+            }
+            onLine.accept(line.startsWith(".") ? line.substring(1) : line);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Chats with a server from the terminal until "bye". Takes the server's port as the only
+     * argument, or uses {@link YapperServer#DEFAULT_PORT}.
+     */
+    public static void main(String[] args) {
+        int port = YapperServer.DEFAULT_PORT;
+        if (args.length > 0) {
+            try {
+                port = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                System.out.println("The port must be a number: " + args[0]);
+                return;
+            }
+        }
+        BufferedReader console = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        try (YapperClient client = new YapperClient(port)) {
+            String line;
+            while ((line = console.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                client.send(line, System.out::println);
+                if (line.trim().equalsIgnoreCase("bye")) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error: Lost the connection to the server on port " + port + ": " + e.getMessage());
+        }
+    }
+}
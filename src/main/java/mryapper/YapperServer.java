@@ -0,0 +1,351 @@
+package mryapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves MrYapper to many clients at once over a TCP socket on the loopback interface.
+ *
+ * The protocol is line based and UTF-8. A client sends one command per line, and for each the
+ * server sends back the response one line at a time, followed by a line holding a single ".".
+ * A response line that itself starts with "." is sent with another "." in front, which the
+ * client strips. After the response to "bye" the server closes the connection.
+ *
+ * One thread does all the socket I/O for every connection, and the commands of all sessions
+ * run one at a time on a single command thread, so that they share one {@link taskmanager.TaskList}
+ * and one {@link taskmanager.Storage} writer. Each session has its own batch. A listing is turned
+ * into bytes only as the client's socket accepts them, from a snapshot of the list, so a slow
+ * client never holds up the others or makes the server buffer its whole reply.
+ */
+public final class YapperServer implements Closeable {
+    /** Port used when none is given */
+    public static final int DEFAULT_PORT = 4117;
+    /** Longest command line accepted, in bytes */
+    private static final int MAX_LINE_BYTES = 1 << 16;
+    /** Commands a client may send ahead of the responses before the server stops reading */
+    private static final int MAX_QUEUED_LINES = 1024;
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final MrYapper yapper;
+    private final Selector selector;
+    private final ServerSocketChannel listener;
+    private final ExecutorService commands = Executors.newSingleThreadExecutor(r -> new Thread(r, "yapper-commands"));
+    /** Work handed back to the I/O thread by the command thread */
+    private final Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+    private final Thread ioThread;
+    private volatile boolean isRunning = true;
+
+    /**
+     * Opens the server socket; call {@link #start} to begin serving.
+     *
+     * @param yapper The chatbot whose task list and storage all sessions share.
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public YapperServer(MrYapper yapper, int port) throws IOException {
+        this.yapper = yapper;
+        this.selector = Selector.open();
+        this.listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        listener.configureBlocking(false);
+        listener.register(selector, SelectionKey.OP_ACCEPT);
+        this.ioThread = new Thread(this::serve, "yapper-server");
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return listener.socket().getLocalPort();
+    }
+
+    /**
+     * Starts accepting clients on a background thread.
+     */
+    public void start() {
+        ioThread.start();
+    }
+
+    /**
+     * Disconnects every client, lets commands already running finish and saves the task list.
+     */
+    @Override
+    public void close() throws IOException {
+        isRunning = false;
+        selector.wakeup();
+        try {
+            ioThread.join();
+            commands.shutdown();
+            commands.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        try {
+            yapper.save();
+        } catch (YapperException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void serve() {
+        while (isRunning) {
+            try {
+                selector.select();
+                Runnable completion;
+                while ((completion = completions.poll()) != null) {
+                    completion.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            } catch (IOException e) {
+                System.out.println("Error: Server stopped: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            SocketChannel channel = listener.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                SelectionKey clientKey = channel.register(selector, SelectionKey.OP_READ);
+                clientKey.attach(new Session(clientKey, yapper.newSession()));
+            }
+            return;
+        }
+        Session session = (Session) key.attachment();
+        try {
+            if (key.isReadable()) {
+                session.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                session.write();
+            }
+        } catch (IOException e) {
+            // The client went away; any command it left running finishes without a reply.
+            session.close();
+        }
+    }
+
+    /**
+     * One connected client. Only ever touched on the I/O thread, apart from its chatbot, which
+     * only the command thread uses.
+     */
+    private final class Session {
+        private final SelectionKey key;
+        private final SocketChannel channel;
+        private final MrYapper session;
+        private ByteBuffer in = ByteBuffer.allocate(1024);
+        private final Queue<String> queuedLines = new ArrayDeque<>();
+        /** Whether a command is running or its response is still being sent */
+        private boolean isBusy;
+        private Iterator<String> reply;
+        private ByteBuffer out;
+        private boolean isClosingAfterReply;
+        /** Set once the client has shut down its side of the connection */
+        private boolean isInputDone;
+        private boolean isClosed;
+
+        Session(SelectionKey key, MrYapper session) {
+            this.key = key;
+            this.channel = (SocketChannel) key.channel();
+            this.session = session;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                // The client has sent all it will; answer what it sent before hanging up
+                isInputDone = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                runNext();
+                return;
+            }
+            int start = 0;
+            for (int i = 0; i < in.position(); i++) {
+                if (in.get(i) == '\n') {
+                    int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                    queuedLines.add(new String(in.array(), start, end - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+            in.limit(in.position()).position(start);
+            in.compact();
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_LINE_BYTES) {
+                    queuedLines.clear();
+                    isInputDone = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    if (!isBusy) {
+                        startReply(MrYapper.CommandResult.exit("Error: That line is too long, so I'm hanging up."));
+                    }
+                    return;
+                }
+                in = ByteBuffer.allocate(in.capacity() * 2).put(in.flip());
+            }
+            if (queuedLines.size() >= MAX_QUEUED_LINES) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            runNext();
+        }
+
+        /**
+         * Hands the next queued line to the command thread, unless one is already in progress.
+         */
+        private void runNext() {
+            if (isBusy || isClosingAfterReply) {
+                return;
+            }
+            if (queuedLines.isEmpty()) {
+                if (isInputDone) {
+                    close();
+                }
+                return;
+            }
+            isBusy = true;
+            String line = queuedLines.poll();
+            commands.execute(() -> {
+                MrYapper.CommandResult result;
+                try {
+                    result = session.processCommand(line);
+                } catch (RuntimeException e) {
+                    result = MrYapper.CommandResult.of("Error: I could not make sense of that line.");
+                }
+                MrYapper.CommandResult done = result;
+                completions.add(() -> startReply(done));
+                selector.wakeup();
+            });
+        }
+
+        private void startReply(MrYapper.CommandResult result) {
+            if (isClosed) {
+                return;
+            }
+            isBusy = true;
+            reply = new ReplyLines(result);
+            isClosingAfterReply = result.isExit;
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+
+        void write() throws IOException {
+            while (true) {
+                if (out == null || !out.hasRemaining()) {
+                    out = nextChunk();
+                    if (out == null) {
+                        finishReply();
+                        return;
+                    }
+                }
+                channel.write(out);
+                if (out.hasRemaining()) {
+                    return; // the socket is full; carry on when it is writable again
+                }
+            }
+        }
+
+        /**
+         * Encodes the next few lines of the reply, or returns null once it has all been sent.
+         */
+        private ByteBuffer nextChunk() {
+            if (reply == null || !reply.hasNext()) {
+                return null;
+            }
+            StringBuilder sb = new StringBuilder();
+            while (reply.hasNext() && sb.length() < CHUNK_SIZE) {
+                sb.append(reply.next()).append('\n');
+            }
+            return ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void finishReply() {
+            reply = null;
+            out = null;
+            isBusy = false;
+            if (isClosingAfterReply) {
+                close();
+                return;
+            }
+            int ops = key.interestOps() & ~SelectionKey.OP_WRITE;
+            if (!isInputDone && queuedLines.size() < MAX_QUEUED_LINES) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+            runNext();
+        }
+
+        void close() {
+            isClosed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone; nothing else to release.
+            }
+        }
+    }
+
+    /**
+     * The lines of a response as they go over the wire: the message, then each listed line,
+     * then the "." terminator, with lines starting with "." escaped.
+     */
+    private static final class ReplyLines implements Iterator<String> {
+        private final MrYapper.CommandResult result;
+        private final Iterator<String> messageLines;
+        private int listed;
+        private boolean isTerminated;
+
+        ReplyLines(MrYapper.CommandResult result) {
+            this.result = result;
+            this.messageLines = Arrays.asList(result.message.split("\n", -1)).iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !isTerminated;
+        }
+
+        @Override
+        public String next() {
+            String line;
+            if (messageLines.hasNext()) {
+                line = messageLines.next();
+            } else if (result.lineAt != null && listed < result.lineCount) {
+                line = result.lineAt.apply(listed++);
+            } else if (!isTerminated) {
+                isTerminated = true;
+                return ".";
+            } else {
+                throw new NoSuchElementException();
+            }
+            return line.startsWith(".") ? "." + line : line;
+        }
+    }
+}
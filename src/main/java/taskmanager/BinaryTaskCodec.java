@@ -0,0 +1,281 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * A compact, versioned binary format for very large task files. Dates are stored as epoch
+ * minutes so that loading never goes through a {@code DateTimeFormatter}.
+ *
+ * <pre>
+ * file   := "MRYB" version:u8 seq:i64 nextId:i32 record*
+ * record := length:varint type:u8 flags:u8 id:varint description:str dates rule
+ * dates  := (nothing for T) | date (for D) | date date (for E)
+ * rule   := (nothing) | str
+ * date   := 0:u8 epochMinute:i32 | 1:u8 raw:str
+ * str    := length:varint utf8-bytes
+ * </pre>
+ * Bit 0 of {@code flags} is the done flag, bit 1 says the record carries an id, and bit 2 says
+ * it ends with the rule of a recurring task, as its text form. A file that does not know which
+ * journal record it covers stores a seq of -1. Version 2 files have no rules, and version 1 files
+ * have neither {@code nextId} nor ids, so their tasks are numbered in order on loading.
+ */
+final class BinaryTaskCodec implements TaskCodec {
+    static final BinaryTaskCodec INSTANCE = new BinaryTaskCodec();
+    static final byte[] MAGIC = {'M', 'R', 'Y', 'B'};
+    private static final int VERSION = 3;
+    private static final int VERSION_WITHOUT_RULES = 2;
+    private static final int VERSION_WITHOUT_IDS = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + Long.BYTES + Integer.BYTES;
+    private static final int FLAG_DONE = 1;
+    private static final int FLAG_HAS_ID = 2;
+    private static final int FLAG_RECURS = 4;
+    private static final int DATE_MINUTES = 0;
+    private static final int DATE_RAW = 1;
+
+    private BinaryTaskCodec() { }
+
+    @Override
+    public byte[] encode(Task task) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + task.getDescription().length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (task instanceof Deadline) {
+                Deadline d = (Deadline) task;
+                writeHead(out, 'D', task);
+                writeDate(out, d.duration, d.stringDuration);
+            } else if (task instanceof Event) {
+                Event e = (Event) task;
+                writeHead(out, 'E', task);
+                boolean isTimed = toMinutes(e.from) != null && toMinutes(e.to) != null;
+                writeDate(out, isTimed ? e.from : null, e.stringFrom);
+                writeDate(out, isTimed ? e.to : null, e.stringTo);
+            } else {
+                writeHead(out, 'T', task);
+            }
+            if (task.recurrence != null) {
+                writeString(out, task.recurrence.toFileString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen with an in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Task decode(ByteBuffer buffer, int start, int length) throws YapperException {
+        ByteBuffer in = buffer.duplicate();
+        in.position(start).limit(start + length);
+        try {
+            char type = (char) in.get();
+            int flags = in.get();
+            boolean isDone = (flags & FLAG_DONE) != 0;
+            int id = (flags & FLAG_HAS_ID) != 0 ? readVarInt(in) : 0;
+            String description = readString(in);
+            Task task;
+            switch (type) {
+            case 'T':
+                task = new ToDo(description);
+                break;
+            case 'D':
+                task = readDeadline(in, description);
+                break;
+            case 'E':
+                task = readEvent(in, description);
+                break;
+            default:
+                throw new YapperException("Invalid task type! Task type was recognised as: " + type);
+            }
+            if (isDone) {
+                task.markDone();
+            }
+            if ((flags & FLAG_RECURS) != 0) {
+                task.recurrence = Recurrence.fromFileString(readString(in));
+            }
+            task.id = id;
+            return task;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new YapperException("Corrupted binary task record at byte " + start);
+        }
+    }
+
+    @Override
+    public void index(ByteBuffer buffer, LazyTaskList list) throws YapperException {
+        ByteBuffer in = buffer.duplicate();
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+            int version = in.get() & 0xFF;
+            if (!Arrays.equals(magic, MAGIC) || version < VERSION_WITHOUT_IDS || version > VERSION) {
+                throw new YapperException("Unsupported binary data file (version " + version + ")");
+            }
+            long seq = in.getLong();
+            list.setHeader(seq, version >= VERSION_WITHOUT_RULES ? in.getInt() : 1);
+        } catch (BufferUnderflowException e) {
+            throw new YapperException("Binary data file is missing its header");
+        }
+
+        try {
+            while (in.hasRemaining()) {
+                int length = readVarInt(in);
+                int start = in.position();
+                if (length < 2 || length > in.remaining()) {
+                    throw new YapperException("Corrupted binary task record at byte " + start);
+                }
+                in.position(start + 1);
+                int id = (in.get() & FLAG_HAS_ID) != 0 ? readVarInt(in) : 0;
+                list.appendSpan(start, length, id);
+                in.position(start + length);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new YapperException("Binary data file ends in the middle of a record");
+        }
+    }
+
+    @Override
+    public byte[] header(long seq, int nextId) {
+        return ByteBuffer.allocate(HEADER_LENGTH).put(MAGIC).put((byte) VERSION).putLong(seq).putInt(nextId).array();
+    }
+
+    @Override
+    public int writeRecord(OutputStream out, byte[] record) throws IOException {
+        int prefix = writeVarInt(out, record.length);
+        out.write(record);
+        return prefix;
+    }
+
+    @Override
+    public int trailerLength() {
+        return 0;
+    }
+
+    @Override
+    public int doneFlagOffset(Task task) {
+        return 1;
+    }
+
+    @Override
+    public byte doneFlag(Task task, boolean isDone) {
+        return (byte) ((flags(task) & ~FLAG_DONE) | (isDone ? FLAG_DONE : 0));
+    }
+
+    /**
+     * Every record is read back, so none can be blanked out.
+     */
+    @Override
+    public byte[] tombstone(int length) {
+        return null;
+    }
+
+    private static void writeHead(DataOutputStream out, char type, Task task) throws IOException {
+        out.writeByte(type);
+        out.writeByte(flags(task));
+        if (task.getId() > 0) {
+            writeVarInt(out, task.getId());
+        }
+        writeString(out, task.getDescription());
+    }
+
+    private static int flags(Task task) {
+        return (task.isDone ? FLAG_DONE : 0) | (task.getId() > 0 ? FLAG_HAS_ID : 0)
+                | (task.recurrence != null ? FLAG_RECURS : 0);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime date, String raw) throws IOException {
+        Integer minutes = toMinutes(date);
+        if (minutes != null) {
+            out.writeByte(DATE_MINUTES);
+            out.writeInt(minutes);
+        } else {
+            out.writeByte(DATE_RAW);
+            writeString(out, date != null ? date.toString() : raw == null ? "" : raw);
+        }
+    }
+
+    private static Deadline readDeadline(ByteBuffer in, String description) {
+        if (in.get() == DATE_MINUTES) {
+            return new Deadline(description, fromMinutes(in.getInt()), null);
+        }
+        return new Deadline(description, null, readString(in));
+    }
+
+    private static Event readEvent(ByteBuffer in, String description) {
+        if (in.get() == DATE_MINUTES) {
+            LocalDateTime from = fromMinutes(in.getInt());
+            in.get();
+            LocalDateTime to = fromMinutes(in.getInt());
+            return new Event(description, from, to, from.toString(), to.toString());
+        }
+        String rawFrom = readString(in);
+        in.get();
+        String rawTo = readString(in);
+        return new Event(description, null, null, rawFrom, rawTo);
+    }
+
+    /**
+     * Returns {@code date} in whole minutes since the epoch, or {@code null} if it carries
+     * seconds or does not fit, in which case it is stored as a raw string instead.
+     */
+    private static Integer toMinutes(LocalDateTime date) {
+        if (date == null || date.getSecond() != 0 || date.getNano() != 0) {
+            return null;
+        }
+        long minutes = date.toEpochSecond(ZoneOffset.UTC) / 60;
+        return minutes == (int) minutes ? (int) minutes : null;
+    }
+
+    private static LocalDateTime fromMinutes(int minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes {@code value} in as few bytes as it needs and returns how many that was.
+     */
+    private static int writeVarInt(OutputStream out, int value) throws IOException {
+        int written = 1;
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+            written++;
+        }
+        out.write(value);
+        return written;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+}
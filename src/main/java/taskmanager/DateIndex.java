@@ -0,0 +1,342 @@
+package taskmanager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An interval index over the days that deadlines and events occupy, for the "schedule" command.
+ *
+ * Each dated task is resolved once, when it is indexed, to an inclusive range of days; raw date
+ * strings such as "2/12/2019" are parsed at that point rather than on every query. The ranges
+ * live in a treap ordered by start day, where every node also records the latest end day in its
+ * subtree, so the tasks overlapping a day or a range of days are found in O(log n + k).
+ *
+ * A recurring task has a single entry spanning its whole series, from the start of its first
+ * occurrence to the end of its last, and it is left to its {@link Recurrence} to work out which
+ * occurrences fall within the days asked for.
+ */
+final class DateIndex {
+    /**
+     * A dated task together with the days it occupies.
+     */
+    static final class Entry {
+        final Task task;
+        final LocalDate startDay;
+        /** The last day of the task, or of its last occurrence if it repeats */
+        final LocalDate endDay;
+        /** How many days after its start the task, or each of its occurrences, ends */
+        final long spanDays;
+        /** Whether the task has exact times, as opposed to dates recovered from raw strings */
+        final boolean isTimed;
+        final long order;
+
+        Entry(Task task, LocalDate startDay, LocalDate endDay, long spanDays, boolean isTimed, long order) {
+            this.task = task;
+            this.startDay = startDay;
+            this.endDay = endDay;
+            this.spanDays = spanDays;
+            this.isTimed = isTimed;
+            this.order = order;
+        }
+
+        Entry(Task task, LocalDate startDay, LocalDate endDay, boolean isTimed, long order) {
+            this(task, startDay, endDay, ChronoUnit.DAYS.between(startDay, endDay), isTimed, order);
+        }
+
+        /**
+         * Returns the first and last number of the task's occurrences that occupy at least one
+         * day in {@code [from, to]}, or null if none does. A task that does not repeat has only
+         * occurrence 0.
+         */
+        int[] occurrencesBetween(LocalDate from, LocalDate to) {
+            Recurrence recurrence = task.getRecurrence();
+            if (recurrence == null) {
+                return endDay.isBefore(from) || startDay.isAfter(to) ? null : new int[] {0, 0};
+            }
+            return recurrence.between(startDay, spanDays, from, to);
+        }
+
+        /**
+         * Returns the day occurrence {@code n} of the task starts on.
+         */
+        LocalDate startDayOf(int n) {
+            Recurrence recurrence = task.getRecurrence();
+            return recurrence == null ? startDay : recurrence.shift(startDay, n);
+        }
+    }
+
+    private static final class Node {
+        final Entry entry;
+        final long start;
+        final long end;
+        final int priority;
+        long maxEnd;
+        Node left;
+        Node right;
+
+        Node(Entry entry, int priority) {
+            this.entry = entry;
+            this.start = entry.startDay.toEpochDay();
+            this.end = entry.endDay.toEpochDay();
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private final IdentityHashMap<Task, Entry> entries = new IdentityHashMap<>();
+    private final Random random = new Random(0x5EED);
+    private Node root;
+
+    /**
+     * Builds the index over {@code tasks}, which must be in list order.
+     *
+     * @param tasks The tasks to index; undated ones are skipped.
+     */
+    DateIndex(List<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Indexes a task added to the list, if it has resolvable dates. Entries are ordered by
+     * task id, which follows list order, so a task whose delete is undone returns to its place.
+     *
+     * @param task The added task.
+     */
+    void add(Task task) {
+        Entry entry = resolve(task, task.getId());
+        if (entry == null) {
+            return;
+        }
+        entries.put(task, entry);
+        root = insert(root, new Node(entry, random.nextInt()));
+    }
+
+    /**
+     * Removes a deleted task from the index.
+     *
+     * @param task The deleted task.
+     */
+    void remove(Task task) {
+        Entry entry = entries.remove(task);
+        if (entry != null) {
+            root = delete(root, entry.startDay.toEpochDay(), entry.order);
+        }
+    }
+
+    /**
+     * Puts {@code replacement} in the place of {@code task}, which has the same dates and,
+     * if it repeats, the same rule, though not necessarily the same occurrences done.
+     *
+     * @param task The task being replaced.
+     * @param replacement The task taking its place in the list.
+     */
+    void replace(Task task, Task replacement) {
+        Entry entry = entries.remove(task);
+        if (entry == null) {
+            return;
+        }
+        root = delete(root, entry.startDay.toEpochDay(), entry.order);
+        Entry moved = new Entry(replacement, entry.startDay, entry.endDay, entry.spanDays, entry.isTimed,
+                entry.order);
+        entries.put(replacement, moved);
+        root = insert(root, new Node(moved, random.nextInt()));
+    }
+
+    /**
+     * Returns the entries occupying at least one day in {@code [from, to]}, in list order.
+     *
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The overlapping entries.
+     */
+    List<Entry> overlapping(LocalDate from, LocalDate to) {
+        List<Entry> out = new ArrayList<>();
+        collect(root, from.toEpochDay(), to.toEpochDay(), out);
+        out.sort(Comparator.comparingLong(e -> e.order));
+        return out;
+    }
+
+    /**
+     * Returns the number of the occurrence of a recurring task that occupies {@code day}, the
+     * latest to start if several do.
+     *
+     * @param task The recurring task.
+     * @param day The day to look at.
+     * @return The number of the occurrence, or -1 if none occupies the day.
+     */
+    static int occurrenceOn(Task task, LocalDate day) {
+        Entry entry = resolveOnce(task, 0);
+        Recurrence recurrence = task.getRecurrence();
+        if (entry == null || recurrence == null) {
+            return -1;
+        }
+        int[] occurrences = recurrence.between(entry.startDay, entry.spanDays, day, day);
+        return occurrences == null ? -1 : occurrences[1];
+    }
+
+    /**
+     * Returns whether {@link #overlapping} would return an entry for {@code task} that has an
+     * occurrence in {@code [from, to]}, without looking at the index.
+     *
+     * @param task The task to check.
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     */
+    static boolean occupies(Task task, LocalDate from, LocalDate to) {
+        Entry entry = resolve(task, 0);
+        return entry != null && entry.occurrencesBetween(from, to) != null;
+    }
+
+    /**
+     * Resolves the days a task occupies, or returns {@code null} if it has none.
+     */
+    private static Entry resolve(Task task, long order) {
+        Entry once = resolveOnce(task, order);
+        Recurrence recurrence = task.getRecurrence();
+        if (once == null || recurrence == null) {
+            return once;
+        }
+        return new Entry(task, once.startDay, recurrence.lastDay(once.startDay, once.spanDays), once.spanDays,
+                once.isTimed, order);
+    }
+
+    /**
+     * Resolves the days a task, or the first occurrence of a recurring task, occupies.
+     */
+    private static Entry resolveOnce(Task task, long order) {
+        if (task instanceof Deadline) {
+            Deadline d = (Deadline) task;
+            if (d.duration != null) {
+                LocalDate day = d.duration.toLocalDate();
+                return new Entry(task, day, day, true, order);
+            }
+            LocalDate day = DateParser.parseDateLenient(d.stringDuration);
+            return day == null ? null : new Entry(task, day, day, false, order);
+        }
+        if (task instanceof Event) {
+            Event e = (Event) task;
+            if (e.from != null && e.to != null) {
+                return e.to.isBefore(e.from)
+                        ? null
+                        : new Entry(task, e.from.toLocalDate(), e.to.toLocalDate(), true, order);
+            }
+            LocalDate fromDay = DateParser.parseDateLenient(e.stringFrom);
+            LocalDate toDay = DateParser.parseDateLenient(e.stringTo);
+            if (fromDay == null) {
+                return null;
+            }
+            if (toDay == null) {
+                return new Entry(task, fromDay, fromDay, false, order);
+            }
+            return toDay.isBefore(fromDay) ? null : new Entry(task, fromDay, toDay, false, order);
+        }
+        return null;
+    }
+
+    private static void collect(Node node, long from, long to, List<Entry> out) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        collect(node.left, from, to, out);
+        if (node.start > to) {
+            return; // everything to the right starts even later
+        }
+        if (node.end >= from) {
+            out.add(node.entry);
+        }
+        collect(node.right, from, to, out);
+    }
+
+    private static Node insert(Node node, Node fresh) {
+        if (node == null) {
+            return fresh;
+        }
+        if (compare(fresh.start, fresh.entry.order, node) < 0) {
+            node.left = insert(node.left, fresh);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, fresh);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, long start, long order) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, order, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, order);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, order);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static int compare(long start, long order, Node node) {
+        int cmp = Long.compare(start, node.start);
+        return cmp != 0 ? cmp : Long.compare(order, node.entry.order);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        long max = node.end;
+        if (node.left != null) {
+            max = Math.max(max, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            max = Math.max(max, node.right.maxEnd);
+        }
+        node.maxEnd = max;
+    }
+}
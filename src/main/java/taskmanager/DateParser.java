@@ -0,0 +1,196 @@
+package taskmanager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses and formats every date the chatbot deals with, in one place.
+ *
+ * The accepted formats are checked character by character and built directly with
+ * {@code LocalDate.of}, so a string that is not a date (such as "Monday") costs a few character
+ * comparisons instead of a thrown {@code DateTimeParseException} per attempted format. Failure
+ * is signalled by returning {@code null}. Lenient lookups, which try several formats, are also
+ * remembered in a small bounded cache since the same raw strings recur across many tasks.
+ *
+ * The rules mirror the formatters used previously: patterns such as {@code d/M/yyyy} move an
+ * out-of-range day to the end of the month (so 31/4 is 30 April), while ISO dates must be exact.
+ */
+public final class DateParser {
+    /** How dates and times are shown in task descriptions, e.g. "Dec 02 2019, 6PM" */
+    public static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy, ha");
+    private static final int CACHE_SIZE = 1024;
+    private static final LocalDate UNPARSEABLE = LocalDate.MIN;
+
+    private static final Map<String, LocalDate> LENIENT_CACHE =
+            new LinkedHashMap<String, LocalDate>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LocalDate> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private DateParser() { }
+
+    /**
+     * Parses a date typed by the user for a deadline or event: {@code d/M/yyyy HHmm} when it
+     * contains a space, otherwise {@code yyyy-MM-dd} at the start of the day.
+     *
+     * @param s The user's date string.
+     * @return The date and time, or {@code null} if it matches neither format.
+     */
+    public static LocalDateTime parseInput(String s) {
+        if (s == null) {
+            return null;
+        }
+        int space = s.indexOf(' ');
+        if (space < 0) {
+            LocalDate date = parseIsoDate(s, true);
+            return date == null ? null : date.atStartOfDay();
+        }
+        return atTime(parseDayMonthYear(s, 0, space), s, space + 1, s.length(), false);
+    }
+
+    /**
+     * Parses a date and time as stored in the data file, i.e. {@code yyyy-MM-dd'T'HH:mm}.
+     *
+     * @param s The stored string.
+     * @return The date and time, or {@code null} if it is not in that format.
+     */
+    public static LocalDateTime parseStored(String s) {
+        if (s == null || s.length() != 16 || s.charAt(10) != 'T') {
+            return null;
+        }
+        return atTime(parseIsoDate(s.substring(0, 10), true), s, 11, 16, true);
+    }
+
+    /**
+     * Parses a date given to a command: an exact ISO date ({@code yyyy-MM-dd}) or {@code d/M/yyyy}.
+     *
+     * @param s The date string.
+     * @return The date, or {@code null} if it matches neither format.
+     */
+    public static LocalDate parseDate(String s) {
+        if (s == null) {
+            return null;
+        }
+        String trimmed = s.trim();
+        LocalDate iso = parseIsoDate(trimmed, false);
+        return iso != null ? iso : parseDayMonthYear(trimmed, 0, trimmed.length());
+    }
+
+    /**
+     * Recovers a date from a string stored as-is because it did not parse as a deadline or
+     * event: an ISO date, {@code d/M/yyyy HHmm} or {@code d/M/yyyy}. Results are cached.
+     *
+     * @param s The raw string.
+     * @return The date, or {@code null} if none matches.
+     */
+    public static LocalDate parseDateLenient(String s) {
+        if (s == null) {
+            return null;
+        }
+        String trimmed = s.trim();
+        synchronized (LENIENT_CACHE) {
+            LocalDate cached = LENIENT_CACHE.get(trimmed);
+            if (cached != null) {
+                return cached == UNPARSEABLE ? null : cached;
+            }
+        }
+
+        LocalDate date = parseDate(trimmed);
+        if (date == null) {
+            LocalDateTime dateTime = parseInput(trimmed);
+            date = dateTime != null && trimmed.indexOf(' ') >= 0 ? dateTime.toLocalDate() : null;
+        }
+        synchronized (LENIENT_CACHE) {
+            LENIENT_CACHE.put(trimmed, date == null ? UNPARSEABLE : date);
+        }
+        return date;
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd}. A lenient parse clamps the day to the end of the month as
+     * {@code DateTimeFormatter.ofPattern} does; a strict one rejects it like {@code LocalDate.parse}.
+     */
+    private static LocalDate parseIsoDate(String s, boolean isLenient) {
+        if (s.length() != 10 || s.charAt(4) != '-' || s.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 7);
+        int day = digits(s, 8, 10);
+        return toDate(year, month, day, isLenient);
+    }
+
+    /**
+     * Parses {@code d/M/yyyy} occupying {@code s[start, end)}, with one or two digits for the day
+     * and month and four for the year.
+     */
+    private static LocalDate parseDayMonthYear(String s, int start, int end) {
+        int firstSlash = s.indexOf('/', start);
+        int secondSlash = firstSlash < 0 ? -1 : s.indexOf('/', firstSlash + 1);
+        if (secondSlash < 0 || secondSlash >= end || end - secondSlash - 1 != 4
+                || firstSlash - start < 1 || firstSlash - start > 2
+                || secondSlash - firstSlash - 1 < 1 || secondSlash - firstSlash - 1 > 2) {
+            return null;
+        }
+        int day = digits(s, start, firstSlash);
+        int month = digits(s, firstSlash + 1, secondSlash);
+        int year = digits(s, secondSlash + 1, end);
+        return toDate(year, month, day, true);
+    }
+
+    /**
+     * Combines {@code date} with the time {@code HHmm}, or {@code HH:mm} when {@code hasColon},
+     * occupying {@code s[start, end)}. As with the formatters, 2400 means midnight the next day.
+     */
+    private static LocalDateTime atTime(LocalDate date, String s, int start, int end, boolean hasColon) {
+        if (date == null || end - start != (hasColon ? 5 : 4) || (hasColon && s.charAt(start + 2) != ':')) {
+            return null;
+        }
+        int hour = digits(s, start, start + 2);
+        int minute = digits(s, end - 2, end);
+        if (hour == 24 && minute == 0) {
+            return date.plusDays(1).atStartOfDay();
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+        return date.atTime(hour, minute);
+    }
+
+    private static LocalDate toDate(int year, int month, int day, boolean isLenient) {
+        // Lenient patterns use year-of-era, which has no year zero
+        if (year < (isLenient ? 1 : 0) || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        int monthLength = Month.of(month).length(Year.isLeap(year));
+        if (day > monthLength) {
+            if (!isLenient) {
+                return null;
+            }
+            day = monthLength;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Returns the decimal value of {@code s[start, end)}, or -1 if it is not all ASCII digits.
+     */
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
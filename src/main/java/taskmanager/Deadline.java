@@ -1,42 +1,44 @@
 package taskmanager;
 
+import mryapper.YapperException;
 import java.time.LocalDateTime;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 /**
  * Represents a deadline task on the task list
  */
 public class Deadline extends Task{
     protected LocalDateTime duration;
-    // Formats in which we recognise dates and time by the User and stored as a LocalDateTime object.
-    private static final DateTimeFormatter INPUT_FORMATTER_WITH_TIME = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
-    private static final DateTimeFormatter INPUT_FORMATTER_WITHOUT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     // If not recognised in suitable DateTime format, we will simply store the deadline as a string 
     protected String stringDuration;
 
     /**
-     * Constructs a new Deadline using user's input. Uses the keyword "/by" to
-     * split up the user's input. Stores the Deadline details as two parts: its description 
-     * and its duration.
-     * 
-     * @param input The entire string that the user keyed in, less the command.
+     * Constructs a new Deadline from the parts of the user's input, already split up.
+     *
+     * @param description String description of the task.
+     * @param by The deadline as the user typed it.
+     * @return The deadline, whose date is kept as typed if it is not in a recognised format.
      */
-    public Deadline(String input) {
-        super(input.split("/by")[0].trim());
-        assert this.description != null : "description must be initialised";
+    public static Deadline fromInput(String description, String by) {
+        LocalDateTime duration = DateParser.parseInput(by);
+        return new Deadline(description, duration, duration == null ? by : null);
+    }
 
-        String dateString = input.split("/by")[1].trim();
-        try {
-            if (dateString.contains(" ")) {
-                this.duration = LocalDateTime.parse(dateString, INPUT_FORMATTER_WITH_TIME);
-            } else {
-                this.duration = LocalDate.parse(dateString, INPUT_FORMATTER_WITHOUT_TIME).atStartOfDay();
-            }
-        } catch (DateTimeParseException e) {
-            this.stringDuration = dateString;
+    /**
+     * Constructs a new Deadline that repeats, from the parts of the user's input.
+     *
+     * @param description String description of the task.
+     * @param by The first deadline as the user typed it.
+     * @param recurrence How the deadline repeats, or {@code null} if it does not.
+     * @return The deadline.
+     * @throws YapperException If it repeats but its date is not in a recognised format.
+     */
+    public static Deadline fromInput(String description, String by, Recurrence recurrence) throws YapperException {
+        Deadline deadline = fromInput(description, by);
+        if (recurrence != null && deadline.duration == null) {
+            throw new YapperException("I can only repeat a deadline with a proper date, e.g. /by 30/9/2025 2359");
         }
+        deadline.recurrence = recurrence;
+        return deadline;
     }
 
     /**
@@ -50,19 +52,33 @@ public class Deadline extends Task{
         assert description != null : "description cannot be null";
         assert durationString != null : "durationString cannot be null";
         
-        try {
-            this.duration = LocalDateTime.parse(durationString, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm"));
-        } catch (DateTimeParseException e) {
+        this.duration = DateParser.parseStored(durationString);
+        if (this.duration == null) {
             this.stringDuration = durationString;
         }
     }
 
+    /**
+     * Constructs a Deadline from already-decoded fields, e.g. from the binary data file.
+     *
+     * @param description String description of the task.
+     * @param duration The deadline, or {@code null} if it is only known as a string.
+     * @param stringDuration The deadline as a string, used when {@code duration} is {@code null}.
+     */
+    Deadline(String description, LocalDateTime duration, String stringDuration) {
+        super(description);
+        assert duration != null || stringDuration != null : "deadline needs a duration";
+        this.duration = duration;
+        this.stringDuration = stringDuration;
+    }
+
     @Override 
     public String toString() {
         if (duration == null) {
             return "[D]" + super.toString() + " (by: " + this.stringDuration + ")";
         } else {
-            return "[D]" + super.toString() + " (by: " + this.duration.format(DateTimeFormatter.ofPattern("MMM dd yyyy, ha")) + ")";
+            return "[D]" + super.toString() + " (by: " + this.duration.format(DateParser.DISPLAY_FORMAT)
+                    + recurrenceText() + ")";
         }
     }   
 
@@ -77,7 +93,7 @@ public class Deadline extends Task{
         if (duration == null) {
             return "D" + super.toFileString() + " | " + this.stringDuration;
         } else {
-            return "D" + super.toFileString() + " | " + this.duration.toString();
+            return "D" + super.toFileString() + " | " + this.duration.toString() + recurrenceField();
         }
     }
 }
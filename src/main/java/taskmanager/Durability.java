@@ -0,0 +1,32 @@
+package taskmanager;
+
+/**
+ * How eagerly {@link Storage} forces changes onto the disk.
+ */
+public enum Durability {
+    /** Every change is forced to disk before the command returns. */
+    EVERY_COMMAND,
+    /** Changes are forced at most once per group-commit interval. */
+    GROUP_COMMIT,
+    /** Changes are only forced when the tasks are saved on exit. */
+    ON_EXIT;
+
+    /**
+     * Parses a durability name as typed on the command line, e.g. {@code "group"}.
+     *
+     * @param name One of {@code every}, {@code group} or {@code exit}, case-insensitive.
+     * @return The matching durability, or {@code null} if none matches.
+     */
+    public static Durability fromName(String name) {
+        switch (name.trim().toLowerCase()) {
+        case "every":
+            return EVERY_COMMAND;
+        case "group":
+            return GROUP_COMMIT;
+        case "exit":
+            return ON_EXIT;
+        default:
+            return null;
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package taskmanager;
 
 import mryapper.YapperException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 /**
  * Represents an Event task on the tasklist.
@@ -17,46 +15,45 @@ public class Event extends Task{
     protected LocalDateTime to;
     protected String stringTo;
 
-    // Formats in which we recognise dates and time by the User and stored as a LocalDateTime object.
-    private static final DateTimeFormatter INPUT_FORMATTER_WITH_TIME = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
-    private static final DateTimeFormatter INPUT_FORMATTER_WITHOUT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
     /**
-     * Constructs a new Event using user's input. Uses the keyword "/from" and "/to" to
-     * split up the user's input. Stores the Task details as three parts: its description, 
-     * from when, and to when.
-     * 
-     * @param input The entire string that the user keyed in, less the command.
+     * Constructs a new Event from the parts of the user's input, already split up.
+     *
+     * @param description String description of the task.
+     * @param from The start as the user typed it.
+     * @param to The end as the user typed it.
+     * @return The event, whose dates are kept as typed unless both are in a recognised format.
+     * @throws YapperException If the event ends before it starts.
      */
-    public Event(String input) throws YapperException {
-        super(input.split("/from")[0].trim());
-        assert this.description != null : "description must be initialised";
-
-        String[] parts = input.split("/from")[1].split("/to");
-        this.stringFrom = parts[0].trim();
-        this.stringTo = parts[1].trim();
-        try {
-            if (this.stringFrom.contains(" ")) {
-                this.from = LocalDateTime.parse(this.stringFrom, INPUT_FORMATTER_WITH_TIME);
-            } else {
-                this.from = LocalDate.parse(this.stringFrom, INPUT_FORMATTER_WITHOUT_TIME).atStartOfDay();
-            }
-
-            if (this.stringTo.contains(" ")) {
-                this.to = LocalDateTime.parse(this.stringTo, INPUT_FORMATTER_WITH_TIME);
-            } else {
-                this.to = LocalDate.parse(this.stringTo, INPUT_FORMATTER_WITHOUT_TIME).atStartOfDay();
-            }
-
-        } catch (DateTimeParseException | ArrayIndexOutOfBoundsException e) {
-            this.from = null;
-            this.to = null;
+    public static Event fromInput(String description, String from, String to) throws YapperException {
+        LocalDateTime start = DateParser.parseInput(from);
+        LocalDateTime end = DateParser.parseInput(to);
+        if (start == null || end == null) {
+            return new Event(description, null, null, from, to);
         }
+        if (end.isBefore(start)) {
+            throw new YapperException("The end time cannot be before the start time.");
+        }
+        return new Event(description, start, end, from, to);
+    }
 
-        // ensure correctness of the start and end times if they are structured properly
-        if (from != null && to != null && to.isBefore(from)) {
-            throw new YapperException("The end time cannot be before the start time."); 
+    /**
+     * Constructs a new Event that repeats, from the parts of the user's input.
+     *
+     * @param description String description of the task.
+     * @param from The start of the first occurrence as the user typed it.
+     * @param to The end of the first occurrence as the user typed it.
+     * @param recurrence How the event repeats, or {@code null} if it does not.
+     * @return The event.
+     * @throws YapperException If the event ends before it starts, or repeats without proper dates.
+     */
+    public static Event fromInput(String description, String from, String to, Recurrence recurrence)
+            throws YapperException {
+        Event event = fromInput(description, from, to);
+        if (recurrence != null && event.from == null) {
+            throw new YapperException("I can only repeat an event with proper dates, e.g. /from 22/9/2025 1400");
         }
+        event.recurrence = recurrence;
+        return event;
     }
 
     /**
@@ -73,10 +70,9 @@ public class Event extends Task{
 
         this.stringFrom = fromString;
         this.stringTo = toString;
-        try {
-            this.from = LocalDateTime.parse(fromString, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm"));
-            this.to = LocalDateTime.parse(toString, DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm"));
-        } catch (DateTimeParseException e) {
+        this.from = DateParser.parseStored(fromString);
+        this.to = DateParser.parseStored(toString);
+        if (this.from == null || this.to == null) {
             this.from = null;
             this.to = null;
         }
@@ -87,13 +83,45 @@ public class Event extends Task{
         }
     }
 
+    /**
+     * Constructs an Event from already-decoded fields, e.g. from the binary data file.
+     *
+     * @param description String description of the task.
+     * @param from The start, or {@code null} if the event is only known by strings.
+     * @param to The end, or {@code null} if the event is only known by strings.
+     * @param stringFrom The start as a string.
+     * @param stringTo The end as a string.
+     */
+    Event(String description, LocalDateTime from, LocalDateTime to, String stringFrom, String stringTo) {
+        super(description);
+        assert (from == null) == (to == null) : "from and to are either both known or both unknown";
+        this.from = from;
+        this.to = to;
+        this.stringFrom = stringFrom;
+        this.stringTo = stringTo;
+    }
+
+    /**
+     * Returns when occurrence {@code n} starts; the event must have exact times.
+     */
+    LocalDateTime startOf(int n) {
+        return recurrence == null ? from : recurrence.shift(from, n);
+    }
+
+    /**
+     * Returns when occurrence {@code n} ends, as long after its start as the first lasts.
+     */
+    LocalDateTime endOf(int n) {
+        return recurrence == null ? to : startOf(n).plus(Duration.between(from, to));
+    }
+
     @Override 
     public String toString() {
         if (from == null || to == null) {
             return "[E]" + super.toString() + " (from: " + this.stringFrom + " to: " + this.stringTo + ")";
         } else {
-            return "[E]" + super.toString() + " (from: " + this.from.format(DateTimeFormatter.ofPattern("MMM dd yyyy, ha")) +
-                " to: " + this.to.format(DateTimeFormatter.ofPattern("MMM dd yyyy, ha")) + ")";
+            return "[E]" + super.toString() + " (from: " + this.from.format(DateParser.DISPLAY_FORMAT) +
+                " to: " + this.to.format(DateParser.DISPLAY_FORMAT) + recurrenceText() + ")";
         }
     }
 
@@ -108,7 +136,8 @@ public class Event extends Task{
         if (from == null || to == null) {
             return "E" + super.toFileString() + " | " + this.stringFrom + " | " + this.stringTo;
         } else {
-            return "E" + super.toFileString() + " | " + this.from.toString() + " | " + this.to.toString();
+            return "E" + super.toFileString() + " | " + this.from.toString() + " | " + this.to.toString()
+                    + recurrenceField();
         }
     }
 }
@@ -0,0 +1,223 @@
+package taskmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of task mutations kept beside the snapshot file.
+ * Each record sits on its own line as {@code "<seq> <op> <crc> <payload>"}, where the
+ * CRC32 covers the sequence number, op and payload. A record that is incomplete or fails
+ * its checksum marks the end of the log, so a write torn by a crash is simply dropped.
+ */
+class Journal {
+    static final char OP_ADD = 'A';
+    static final char OP_MARK = 'M';
+    static final char OP_UNMARK = 'U';
+    static final char OP_DELETE = 'X';
+    /** Puts a deleted task back in its place, to undo a delete */
+    static final char OP_RESTORE = 'R';
+    /** Puts a changed copy of a task in its place, e.g. with an occurrence marked done */
+    static final char OP_REPLACE = 'P';
+
+    private final Path path;
+    private FileChannel channel;
+    private long size;
+    private long lastSeq;
+
+    /**
+     * A single decoded journal record.
+     */
+    static final class Record {
+        final long seq;
+        final char op;
+        final String payload;
+
+        Record(long seq, char op, String payload) {
+            this.seq = seq;
+            this.op = op;
+            this.payload = payload;
+        }
+    }
+
+    Journal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads every intact record in the journal. Anything after the first torn or corrupted
+     * record is truncated away so that later appends start from a clean tail.
+     *
+     * @return The intact records, in the order they were appended.
+     * @throws IOException If the journal cannot be read or truncated.
+     */
+    List<Record> readRecords() throws IOException {
+        List<Record> records = new ArrayList<>();
+        if (!Files.exists(path)) {
+            size = 0;
+            return records;
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        long prevSeq = 0;
+        int start = 0;
+        while (start < bytes.length) {
+            int end = indexOfNewline(bytes, start);
+            if (end < 0) {
+                break; // torn tail: the final newline never made it to disk
+            }
+            Record record = decode(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+            if (record == null || record.seq <= prevSeq) {
+                break;
+            }
+            records.add(record);
+            prevSeq = record.seq;
+            start = end + 1;
+        }
+
+        if (start < bytes.length) {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                ch.truncate(start);
+            }
+        }
+        size = start;
+        lastSeq = Math.max(lastSeq, prevSeq);
+        return records;
+    }
+
+    /**
+     * Appends a record and returns its sequence number.
+     *
+     * @param op The operation code.
+     * @param payload The operation argument, which must not contain a newline.
+     * @return The sequence number assigned to the record.
+     * @throws IOException If the record cannot be written.
+     */
+    long append(char op, String payload) throws IOException {
+        assert payload.indexOf('\n') < 0 : "journal payload must fit on one line";
+        long seq = lastSeq + 1;
+        byte[] line = encode(seq, op, payload);
+        FileChannel ch = openChannel();
+        ByteBuffer buf = ByteBuffer.wrap(line);
+        while (buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        size += line.length;
+        lastSeq = seq;
+        return seq;
+    }
+
+    /**
+     * Forces appended records onto the disk.
+     *
+     * @throws IOException If the records cannot be forced.
+     */
+    void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Drops every record up to and including {@code seq}, which a snapshot now covers.
+     *
+     * @param seq The last sequence number included in the snapshot.
+     * @throws IOException If the journal cannot be rewritten.
+     */
+    void retainAfter(long seq) throws IOException {
+        close();
+        List<Record> kept = new ArrayList<>();
+        for (Record r : readRecords()) {
+            if (r.seq > seq) {
+                kept.add(r);
+            }
+        }
+
+        Path tmp = SnapshotWriter.writeTemp(path, out -> {
+            for (Record r : kept) {
+                out.write(encode(r.seq, r.op, r.payload));
+            }
+        });
+        size = Files.size(tmp);
+        SnapshotWriter.install(tmp, path);
+    }
+
+    /**
+     * Ensures sequence numbers continue past {@code seq}, e.g. after loading a snapshot
+     * whose journal has already been compacted away.
+     */
+    void advanceTo(long seq) {
+        lastSeq = Math.max(lastSeq, seq);
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    long size() {
+        return size;
+    }
+
+    void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private static byte[] encode(long seq, char op, String payload) {
+        String body = seq + " " + op + " " + payload;
+        String line = seq + " " + op + " " + checksum(body) + " " + payload + "\n";
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes one record line, or returns {@code null} if it is malformed or corrupted.
+     */
+    private static Record decode(String line) {
+        String[] parts = line.split(" ", 4);
+        if (parts.length < 4 || parts[1].length() != 1) {
+            return null;
+        }
+        try {
+            long seq = Long.parseLong(parts[0]);
+            String body = parts[0] + " " + parts[1] + " " + parts[3];
+            if (!checksum(body).equals(parts[2])) {
+                return null;
+            }
+            return new Record(seq, parts[1].charAt(0), parts[3]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static int indexOfNewline(byte[] bytes, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
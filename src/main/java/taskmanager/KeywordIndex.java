@@ -0,0 +1,375 @@
+package taskmanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * An inverted index over task descriptions for the "find" command.
+ *
+ * Descriptions are split into lowercase whitespace-separated tokens, and each token points at
+ * the tasks containing it. Since a query word has no whitespace, it occurs in a description
+ * exactly when it occurs inside one of its tokens, so the original substring semantics are kept
+ * by matching words against the token vocabulary rather than against every task. A trigram
+ * index over the vocabulary narrows that match further for words of three or more characters.
+ *
+ * The same trigram index serves typo-tolerant searches: tokens that share the most trigrams
+ * with a misspelt word are the likeliest to be a few edits away from it, so only a bounded
+ * number of them have their edit distance computed, however large the vocabulary. Tokens are
+ * padded with spaces at both ends before being cut into trigrams, so a short word with a typo
+ * in every one of its own trigrams, like "bokk" for "book", still shares the ones at its edges.
+ */
+final class KeywordIndex {
+    private static final int GRAM = 3;
+    /** Pads tokens so their first and last letters are in as many trigrams as the rest; no token has a space */
+    private static final String PAD = "  ";
+    /** Most vocabulary tokens whose edit distance to one fuzzy query word is computed */
+    private static final int MAX_FUZZY_CANDIDATES = 256;
+
+    private final Map<String, Set<Task>> postings = new HashMap<>();
+    private final Map<String, Set<String>> tokensByTrigram = new HashMap<>();
+    /** The id of each indexed task, which orders the results since ids follow list order */
+    private final IdentityHashMap<Task, Long> order = new IdentityHashMap<>();
+
+    /**
+     * Builds the index over {@code tasks}, which must be in list order.
+     *
+     * @param tasks The tasks to index.
+     */
+    KeywordIndex(List<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Indexes a task added to the list, either at the end or, when a delete is undone, back
+     * in its old place.
+     *
+     * @param task The added task.
+     */
+    void add(Task task) {
+        order.put(task, (long) task.getId());
+        for (String token : tokenize(task.getDescription())) {
+            Set<Task> tasks = postings.get(token);
+            if (tasks == null) {
+                tasks = new HashSet<>();
+                postings.put(token, tasks);
+                for (String gram : paddedTrigrams(token)) {
+                    tokensByTrigram.computeIfAbsent(gram, g -> new HashSet<>()).add(token);
+                }
+            }
+            tasks.add(task);
+        }
+    }
+
+    /**
+     * Removes a deleted task from the index.
+     *
+     * @param task The deleted task.
+     */
+    void remove(Task task) {
+        if (order.remove(task) == null) {
+            return;
+        }
+        for (String token : tokenize(task.getDescription())) {
+            Set<Task> tasks = postings.get(token);
+            if (tasks == null || !tasks.remove(task) || !tasks.isEmpty()) {
+                continue;
+            }
+            postings.remove(token);
+            for (String gram : paddedTrigrams(token)) {
+                Set<String> tokens = tokensByTrigram.get(gram);
+                tokens.remove(token);
+                if (tokens.isEmpty()) {
+                    tokensByTrigram.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts {@code replacement} in the place of {@code task}, which has the same description.
+     *
+     * @param task The task being replaced.
+     * @param replacement The task taking its place in the list.
+     */
+    void replace(Task task, Task replacement) {
+        Long position = order.remove(task);
+        if (position == null) {
+            return;
+        }
+        order.put(replacement, position);
+        for (String token : tokenize(task.getDescription())) {
+            Set<Task> tasks = postings.get(token);
+            tasks.remove(task);
+            tasks.add(replacement);
+        }
+    }
+
+    /**
+     * Finds the tasks whose description contains every word of {@code query}, ignoring case.
+     *
+     * @param query One or more whitespace-separated words.
+     * @return The matching tasks in list order.
+     */
+    ArrayList<Task> find(String query) {
+        Set<Task> result = null;
+        for (String word : tokenize(query)) {
+            Set<Task> matches = tasksContaining(word);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.retainAll(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+
+        ArrayList<Task> found = result == null ? new ArrayList<>() : new ArrayList<>(result);
+        found.sort(Comparator.comparingLong(order::get));
+        return found;
+    }
+
+    /**
+     * Returns an upper bound on the number of tasks {@link #find} returns for {@code query},
+     * from the sizes of the postings it would read but without merging them.
+     *
+     * @param query One or more whitespace-separated words.
+     * @return The bound, at most the number of tasks indexed.
+     */
+    int estimate(String query) {
+        int bound = order.size();
+        for (String word : tokenize(query)) {
+            int sum = 0;
+            for (String token : candidateTokens(word)) {
+                if (token.contains(word)) {
+                    sum += postings.get(token).size();
+                }
+            }
+            bound = Math.min(bound, sum);
+        }
+        return bound;
+    }
+
+    /**
+     * Returns whether {@link #find} would return {@code task} for {@code query}, without
+     * looking at the index.
+     *
+     * @param task The task to check.
+     * @param words The lowercase words of the query, as split by {@link #tokenize}.
+     */
+    static boolean matches(Task task, Set<String> words) {
+        Set<String> tokens = tokenize(task.getDescription());
+        for (String word : words) {
+            if (tokens.stream().noneMatch(token -> token.contains(word))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the tasks whose description has, for every word of {@code query}, a word within a
+     * few typos of it or containing it, ignoring case. Closer matches rank first.
+     *
+     * @param query One or more whitespace-separated words.
+     * @param limit The most tasks to return.
+     * @return The best matches, fewest typos first, ties in list order.
+     */
+    List<Task> findFuzzy(String query, int limit) {
+        Map<Task, int[]> best = null;
+        Set<String> words = tokenize(query);
+        for (String word : words) {
+            Map<Task, int[]> matches = new HashMap<>();
+            for (Map.Entry<String, Integer> token : tokensNear(word).entrySet()) {
+                for (Task task : postings.get(token.getKey())) {
+                    int[] distance = matches.computeIfAbsent(task, t -> new int[] {Integer.MAX_VALUE});
+                    distance[0] = Math.min(distance[0], token.getValue());
+                }
+            }
+            if (best == null) {
+                best = matches;
+            } else {
+                // Keep the tasks that match this word too, adding up how far off they are
+                best.keySet().retainAll(matches.keySet());
+                for (Map.Entry<Task, int[]> match : best.entrySet()) {
+                    match.getValue()[0] += matches.get(match.getKey())[0];
+                }
+            }
+            if (best.isEmpty()) {
+                break;
+            }
+        }
+        if (best == null) {
+            return new ArrayList<>();
+        }
+
+        Map<Task, int[]> scores = best;
+        Comparator<Task> rank = Comparator.comparingInt((Task t) -> scores.get(t)[0]).thenComparingLong(order::get);
+        // Keep the best few in a heap whose head is the worst of them
+        PriorityQueue<Task> top = new PriorityQueue<>(rank.reversed());
+        for (Task task : scores.keySet()) {
+            top.add(task);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Task> found = new ArrayList<>(top);
+        found.sort(rank);
+        return found;
+    }
+
+    /**
+     * Returns the vocabulary tokens that contain {@code word} or are within its typo allowance
+     * of it, each with its edit distance, 0 for those that contain it. Only the tokens sharing
+     * the most trigrams with the word are checked for typos.
+     */
+    private Map<String, Integer> tokensNear(String word) {
+        Map<String, Integer> near = new HashMap<>();
+        for (String token : candidateTokens(word)) {
+            if (token.contains(word)) {
+                near.put(token, 0);
+            }
+        }
+        int allowed = typosAllowed(word);
+        if (allowed == 0) {
+            return near;
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : paddedTrigrams(word)) {
+            for (String token : tokensByTrigram.getOrDefault(gram, Collections.emptySet())) {
+                if (Math.abs(token.length() - word.length()) <= allowed && !near.containsKey(token)) {
+                    shared.merge(token, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>(shared.entrySet());
+        candidates.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        for (Map.Entry<String, Integer> candidate : candidates.subList(0,
+                Math.min(candidates.size(), MAX_FUZZY_CANDIDATES))) {
+            int distance = distance(word, candidate.getKey(), allowed);
+            if (distance <= allowed) {
+                near.put(candidate.getKey(), distance);
+            }
+        }
+        return near;
+    }
+
+    /**
+     * Returns how many typos a word may have and still match: none for words too short to
+     * tell apart, one for short words and two for longer ones.
+     */
+    private static int typosAllowed(String word) {
+        return word.length() <= GRAM ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Returns the number of insertions, deletions, substitutions and swaps of adjacent
+     * letters that turn {@code a} into {@code b}, or {@code max + 1} once it exceeds {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        int[] twoBack = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, twoBack[j - 2] + 1);
+                }
+                current[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = twoBack;
+            twoBack = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private Set<Task> tasksContaining(String word) {
+        Set<Task> matches = new HashSet<>();
+        for (String token : candidateTokens(word)) {
+            if (token.contains(word)) {
+                matches.addAll(postings.get(token));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns a superset of the vocabulary tokens that contain {@code word}. Words shorter than
+     * a trigram fall back to scanning the whole vocabulary. The word is not padded, since it may
+     * sit anywhere inside a token, but its trigrams are among the padded ones of every such token.
+     */
+    private Set<String> candidateTokens(String word) {
+        if (word.length() < GRAM) {
+            return postings.keySet();
+        }
+        Set<String> smallest = null;
+        for (String gram : trigrams(word)) {
+            Set<String> tokens = tokensByTrigram.get(gram);
+            if (tokens == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || tokens.size() < smallest.size()) {
+                smallest = tokens;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Splits text into its distinct lowercase whitespace-separated tokens.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new HashSet<>();
+        String lower = text.toLowerCase();
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean isSpace = i == lower.length() || Character.isWhitespace(lower.charAt(i));
+            if (isSpace && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            } else if (!isSpace && start < 0) {
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> trigrams(String token) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Returns the trigrams of {@code token} with {@link #PAD} on both sides, which is how the
+     * vocabulary is indexed.
+     */
+    private static Set<String> paddedTrigrams(String token) {
+        return trigrams(PAD + token + PAD);
+    }
+}
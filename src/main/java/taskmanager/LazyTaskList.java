@@ -0,0 +1,515 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A task list backed by the contents of a data file, read into memory in one go. Opening it
+ * only records where each record starts; a record is decoded into a {@link Task} by the file's
+ * {@link TaskCodec} the first time it is accessed. Tasks added later live purely in memory, and
+ * untouched records can be written back out verbatim.
+ *
+ * Every task also has a stable id. Tasks are kept in slots in the order they were added, and
+ * since ids are handed out in that same order, removing a task only marks its slot as free
+ * instead of shifting everything after it. A Fenwick tree over the occupied slots then maps a
+ * list position to its slot, and back, in O(log n); free slots are reclaimed in one pass once
+ * they outnumber the tasks.
+ *
+ * A list can be frozen to serve as a snapshot, after which it is never changed again and may be
+ * read from any number of threads; the only writes left are the lazy decodes, which are
+ * published safely and race harmlessly to the same result. A writer continues on a
+ * {@link #copy}.
+ *
+ * The file itself is closed again as soon as it has been read, rather than mapped, since Windows
+ * refuses to replace or truncate a file while any mapping of it is alive. {@link Storage} is then
+ * free to change the file in place or rename a new one over it while the list is in use.
+ */
+class LazyTaskList extends AbstractList<Task> implements RandomAccess {
+    private static final int NOT_LOADED = -1;
+    /** Free slots are left in place until there are at least this many of them */
+    private static final int MIN_FREE_SLOTS_TO_RECLAIM = 64;
+    private static final VarHandle DECODED = MethodHandles.arrayElementVarHandle(Task[].class);
+
+    private final ByteBuffer buffer;
+    private final TaskCodec codec;
+    private final Path source;
+    private int[] recordStarts;
+    private int[] recordLengths;
+    private int[] ids;
+    private Task[] decoded;
+    /** Slots whose task has been removed */
+    private final BitSet freeSlots = new BitSet();
+    /** Slots whose id was assigned on loading, so their record in the file does not carry it */
+    private BitSet unsavedIds = new BitSet();
+    /** Fenwick tree counting occupied slots; null while no slot is free */
+    private int[] occupied;
+    /** Built on the first lookup by id */
+    private Map<Integer, Integer> slotsById;
+    private int slotCount;
+    private int size;
+    private int nextId = 1;
+    /** The next id as stored in the file header, which records appended since may have passed */
+    private int storedNextId = 1;
+    private long seq = TaskCodec.NO_SEQ;
+    private boolean isFrozen;
+
+    private LazyTaskList(ByteBuffer buffer, TaskCodec codec, Path source, int capacity) {
+        this.buffer = buffer;
+        this.codec = codec;
+        this.source = source;
+        this.recordStarts = new int[Math.max(capacity, 10)];
+        this.recordLengths = new int[recordStarts.length];
+        this.ids = new int[recordStarts.length];
+        this.decoded = new Task[recordStarts.length];
+    }
+
+    /**
+     * Reads {@code file} and indexes its records without decoding any of them.
+     *
+     * @param file The data file to read.
+     * @param codec The format of the data file.
+     * @return The indexed list.
+     * @throws IOException If the file cannot be read.
+     * @throws YapperException If the file is malformed.
+     */
+    static LazyTaskList open(Path file, TaskCodec codec) throws IOException, YapperException {
+        ByteBuffer contents;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new YapperException("Data file is too large to load: " + length + " bytes");
+            }
+            contents = ByteBuffer.allocate((int) length);
+            while (contents.hasRemaining()) {
+                if (ch.read(contents, contents.position()) < 0) {
+                    break;
+                }
+            }
+            contents.flip();
+        }
+
+        LazyTaskList list = new LazyTaskList(contents, codec, file, contents.limit() / 32);
+        codec.index(contents, list);
+        return list;
+    }
+
+    /**
+     * Returns an empty list that is not backed by any file.
+     */
+    static LazyTaskList inMemory() {
+        return new LazyTaskList(null, null, null, 10);
+    }
+
+    /**
+     * Makes the list read-only, so that it can be shared with other threads.
+     */
+    void freeze() {
+        isFrozen = true;
+    }
+
+    /**
+     * Returns a modifiable copy of the list, sharing the file contents and every decoded task.
+     * Free slots are left out, so the copy takes time linear in the number of tasks.
+     */
+    LazyTaskList copy() {
+        LazyTaskList copy = new LazyTaskList(buffer, codec, source, size);
+        copy.seq = seq;
+        copy.nextId = nextId;
+        for (int slot = freeSlots.nextClearBit(0); slot < slotCount; slot = freeSlots.nextClearBit(slot + 1)) {
+            int to = copy.slotCount++;
+            copy.recordStarts[to] = recordStarts[slot];
+            copy.recordLengths[to] = recordLengths[slot];
+            copy.ids[to] = ids[slot];
+            copy.decoded[to] = (Task) DECODED.getAcquire(decoded, slot);
+            if (unsavedIds.get(slot)) {
+                copy.unsavedIds.set(to);
+            }
+        }
+        copy.size = copy.slotCount;
+        return copy;
+    }
+
+    /**
+     * Returns the snapshot sequence number stored in the file header, or
+     * {@link TaskCodec#NO_SEQ} if the file had none.
+     */
+    long seq() {
+        return seq;
+    }
+
+    /**
+     * Returns the id the next added task will get.
+     */
+    int nextId() {
+        return nextId;
+    }
+
+    /**
+     * Records the values read from the file header; called by the codec before any record.
+     *
+     * @param seq The snapshot sequence number, or {@link TaskCodec#NO_SEQ}.
+     * @param nextId The next id to hand out, or 1 if the file did not store one.
+     */
+    void setHeader(long seq, int nextId) {
+        this.seq = seq;
+        this.nextId = Math.max(this.nextId, nextId);
+        this.storedNextId = nextId;
+    }
+
+    /**
+     * Returns the next id as the file header stored it, or 1 if it had none.
+     */
+    int storedNextId() {
+        return storedNextId;
+    }
+
+    /**
+     * Returns the id of the task at {@code index} without decoding it.
+     */
+    int idAt(int index) {
+        return ids[slotAt(index)];
+    }
+
+    /**
+     * Returns the offset in the file of the record the task at {@code index} was loaded
+     * from, or -1 if it was not loaded from one or the record lacks the id the task was given.
+     */
+    int loadedStart(int index) {
+        int slot = slotAt(index);
+        return unsavedIds.get(slot) ? NOT_LOADED : recordStarts[slot];
+    }
+
+    /**
+     * Returns the length of the record that {@link #loadedStart} locates.
+     */
+    int loadedLength(int index) {
+        return recordLengths[slotAt(index)];
+    }
+
+    /**
+     * Registers the next record of the file; called by the codec while indexing.
+     *
+     * @param start The offset of the record in the file.
+     * @param length The length of the record.
+     * @param id The id stored in the record, or 0 if it has none and should be given one.
+     */
+    void appendSpan(int start, int length, int id) {
+        int slot = newSlot(id);
+        recordStarts[slot] = start;
+        recordLengths[slot] = length;
+        if (ids[slot] != id) {
+            unsavedIds.set(slot);
+        }
+    }
+
+    @Override
+    public Task get(int index) {
+        return taskAt(slotAt(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends {@code task}, giving it the next id unless it already has a larger one.
+     * Tasks can only be added at the end, so that slots stay in id order.
+     */
+    @Override
+    public void add(int index, Task task) {
+        checkModifiable();
+        if (index != size) {
+            throw new UnsupportedOperationException("Tasks can only be added to the end of the list");
+        }
+        int slot = newSlot(task.id);
+        recordStarts[slot] = NOT_LOADED;
+        decoded[slot] = task;
+        task.id = ids[slot];
+        modCount++;
+    }
+
+    /**
+     * Replaces the task at {@code index}, which keeps the id of the task it replaces.
+     */
+    @Override
+    public Task set(int index, Task task) {
+        checkModifiable();
+        int slot = slotAt(index);
+        Task replaced = taskAt(slot);
+        task.id = ids[slot];
+        decoded[slot] = task;
+        return replaced;
+    }
+
+    @Override
+    public Task remove(int index) {
+        checkModifiable();
+        int slot = slotAt(index);
+        Task removed = taskAt(slot);
+        if (occupied == null) {
+            buildTree();
+        }
+        addToTree(slot, -1);
+        freeSlots.set(slot);
+        decoded[slot] = null;
+        if (slotsById != null) {
+            slotsById.remove(ids[slot]);
+        }
+        size--;
+        modCount++;
+
+        int free = slotCount - size;
+        if (free >= MIN_FREE_SLOTS_TO_RECLAIM && free > size) {
+            reclaimFreeSlots();
+        }
+        return removed;
+    }
+
+    /**
+     * Puts a removed task back among the others in the place its id gives it, e.g. to undo a
+     * delete. Usually the slot it was removed from is still free and is simply taken back in
+     * O(log n); only if free slots have been reclaimed since are later slots moved up.
+     *
+     * @param task A task with an id that is not in the list.
+     * @return The position the task now has.
+     */
+    int restore(Task task) {
+        checkModifiable();
+        assert task.id > 0 : "only a task that was in a list can be restored";
+        int found = Arrays.binarySearch(ids, 0, slotCount, task.id);
+        int slot;
+        if (found >= 0) {
+            if (!freeSlots.get(found)) {
+                throw new IllegalStateException("Task #" + task.id + " is already in the list");
+            }
+            slot = found;
+            freeSlots.clear(slot);
+            addToTree(slot, 1);
+            size++;
+            if (slotsById != null) {
+                slotsById.put(task.id, slot);
+            }
+        } else if (-found - 1 == slotCount) {
+            slot = newSlot(task.id);
+        } else {
+            slot = -found - 1;
+            insertSlot(slot, task.id);
+        }
+        recordStarts[slot] = NOT_LOADED;
+        unsavedIds.clear(slot);
+        decoded[slot] = task;
+        modCount++;
+        return occupied == null ? slot : countOccupiedBefore(slot);
+    }
+
+    /**
+     * Returns the current position of the task with the given id.
+     *
+     * @param id The id of the task.
+     * @return The zero-based position, or -1 if no task in the list has that id.
+     */
+    int indexOfId(int id) {
+        if (slotsById == null) {
+            slotsById = new HashMap<>();
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (!freeSlots.get(slot)) {
+                    slotsById.put(ids[slot], slot);
+                }
+            }
+        }
+        Integer slot = slotsById.get(id);
+        if (slot == null) {
+            return -1;
+        }
+        return occupied == null ? slot : countOccupiedBefore(slot);
+    }
+
+    /**
+     * Returns the task at {@code index} encoded by {@code target}, copying the loaded record
+     * as-is when it is in the same format and has never been decoded, so cannot have changed.
+     *
+     * @param index The zero-based index of the task.
+     * @param target The codec of the file being written.
+     * @return The record to write.
+     */
+    byte[] record(int index, TaskCodec target) {
+        int slot = slotAt(index);
+        if (decoded[slot] == null && target == codec && !unsavedIds.get(slot)) {
+            byte[] bytes = new byte[recordLengths[slot]];
+            buffer.get(recordStarts[slot], bytes);
+            return bytes;
+        }
+        return target.encode(taskAt(slot));
+    }
+
+    private Task taskAt(int slot) {
+        Task task = (Task) DECODED.getAcquire(decoded, slot);
+        if (task == null) {
+            try {
+                task = codec.decode(buffer, recordStarts[slot], recordLengths[slot]);
+            } catch (YapperException e) {
+                throw new IllegalStateException("Corrupted task #" + ids[slot] + " in " + source, e);
+            }
+            task.id = ids[slot];
+            // Readers of a frozen list may decode the same record at once; all keep the first
+            Task winner = (Task) DECODED.compareAndExchangeRelease(decoded, slot, null, task);
+            if (winner != null) {
+                task = winner;
+            }
+        }
+        return task;
+    }
+
+    private void checkModifiable() {
+        if (isFrozen) {
+            throw new UnsupportedOperationException("A snapshot of the task list cannot be changed");
+        }
+    }
+
+    /**
+     * Takes the next slot for a task with the given id. An id that is missing, or that would
+     * break the ascending order of slots (only possible in a hand-edited file), is replaced
+     * with a fresh one.
+     */
+    private int newSlot(int id) {
+        ensureCapacity(slotCount + 1);
+        int slot = slotCount++;
+        boolean isFresh = id <= 0 || (slot > 0 && id <= ids[slot - 1]);
+        ids[slot] = isFresh ? nextId : id;
+        nextId = Math.max(nextId, ids[slot] + 1);
+        if (slotsById != null) {
+            slotsById.put(ids[slot], slot);
+        }
+        if (occupied != null) {
+            addToTree(slot, 1);
+        }
+        size++;
+        return slot;
+    }
+
+    /**
+     * Opens up a slot at {@code slot} for a task with the given id, moving every later slot up.
+     */
+    private void insertSlot(int slot, int id) {
+        ensureCapacity(slotCount + 1);
+        int moved = slotCount - slot;
+        System.arraycopy(recordStarts, slot, recordStarts, slot + 1, moved);
+        System.arraycopy(recordLengths, slot, recordLengths, slot + 1, moved);
+        System.arraycopy(ids, slot, ids, slot + 1, moved);
+        System.arraycopy(decoded, slot, decoded, slot + 1, moved);
+        for (BitSet bits : new BitSet[] {freeSlots, unsavedIds}) {
+            for (int i = bits.previousSetBit(slotCount - 1); i >= slot; i = bits.previousSetBit(i - 1)) {
+                bits.clear(i);
+                bits.set(i + 1);
+            }
+        }
+        ids[slot] = id;
+        slotCount++;
+        size++;
+        nextId = Math.max(nextId, id + 1);
+        slotsById = null;
+        if (occupied != null) {
+            buildTree();
+        }
+    }
+
+    private int slotAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (occupied == null) {
+            return index; // no slot is free, so positions and slots coincide
+        }
+        // Descend the tree for the last slot with at most index occupied slots before it
+        int slot = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(occupied.length - 1); step > 0; step >>= 1) {
+            int next = slot + step;
+            if (next < occupied.length && occupied[next] < remaining) {
+                slot = next;
+                remaining -= occupied[next];
+            }
+        }
+        return slot;
+    }
+
+    private int countOccupiedBefore(int slot) {
+        int count = 0;
+        for (int i = slot; i > 0; i -= i & -i) {
+            count += occupied[i];
+        }
+        return count;
+    }
+
+    private void addToTree(int slot, int delta) {
+        for (int i = slot + 1; i < occupied.length; i += i & -i) {
+            occupied[i] += delta;
+        }
+    }
+
+    private void buildTree() {
+        occupied = new int[ids.length + 1];
+        for (int i = 1; i < occupied.length; i++) {
+            if (i <= slotCount && !freeSlots.get(i - 1)) {
+                occupied[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent < occupied.length) {
+                occupied[parent] += occupied[i];
+            }
+        }
+    }
+
+    /**
+     * Moves every task down over the free slots, keeping their order.
+     */
+    private void reclaimFreeSlots() {
+        BitSet unsaved = new BitSet();
+        int to = 0;
+        for (int from = 0; from < slotCount; from++) {
+            if (freeSlots.get(from)) {
+                continue;
+            }
+            recordStarts[to] = recordStarts[from];
+            recordLengths[to] = recordLengths[from];
+            ids[to] = ids[from];
+            decoded[to] = decoded[from];
+            if (unsavedIds.get(from)) {
+                unsaved.set(to);
+            }
+            to++;
+        }
+        Arrays.fill(decoded, to, slotCount, null);
+        slotCount = to;
+        unsavedIds = unsaved;
+        freeSlots.clear();
+        occupied = null;
+        slotsById = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > recordStarts.length) {
+            int grown = Math.max(capacity, recordStarts.length + (recordStarts.length >> 1));
+            recordStarts = Arrays.copyOf(recordStarts, grown);
+            recordLengths = Arrays.copyOf(recordLengths, grown);
+            ids = Arrays.copyOf(ids, grown);
+            decoded = Arrays.copyOf(decoded, grown);
+            if (occupied != null) {
+                buildTree();
+            }
+        }
+    }
+}
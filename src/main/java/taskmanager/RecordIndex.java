@@ -0,0 +1,158 @@
+package taskmanager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Where each task's record lies in a data file that {@link Storage} changes in place, so that
+ * marking, adding or deleting a task only writes the bytes of that one task.
+ *
+ * Records are kept in file order, which is also the order of their ids, so a record is found
+ * by binary search. A deleted record keeps its entry, marked dead, until the file is rewritten:
+ * its bytes are blanked out but still take up room, and undoing the delete only has to write
+ * them back.
+ */
+final class RecordIndex {
+    private int[] ids;
+    private long[] offsets;
+    private int[] lengths;
+    private final BitSet dead = new BitSet();
+    private int count;
+    private long deadBytes;
+    /** Where the next record is appended, i.e. the length of the file */
+    private long end;
+    private final long headerSeq;
+    private final int headerLength;
+    private int headerNextId;
+
+    /**
+     * Creates an index of a file without records yet.
+     *
+     * @param capacity How many records to make room for.
+     * @param headerSeq The snapshot sequence number in the file header.
+     * @param headerLength The length of the file header.
+     * @param headerNextId The next id in the file header.
+     */
+    RecordIndex(int capacity, long headerSeq, int headerLength, int headerNextId) {
+        this.ids = new int[Math.max(capacity, 10)];
+        this.offsets = new long[ids.length];
+        this.lengths = new int[ids.length];
+        this.headerSeq = headerSeq;
+        this.headerLength = headerLength;
+        this.headerNextId = headerNextId;
+        this.end = headerLength;
+    }
+
+    /**
+     * Writes a whole file as {@link TaskCodec#write} does, indexing each record as it goes.
+     *
+     * @param ids The id of each record.
+     * @return The index of the file written.
+     */
+    static RecordIndex write(OutputStream out, TaskCodec codec, long seq, int nextId, List<byte[]> records,
+            int[] ids) throws IOException {
+        byte[] header = codec.header(seq, nextId);
+        out.write(header);
+        RecordIndex index = new RecordIndex(records.size(), seq, header.length, nextId);
+        for (int i = 0; i < records.size(); i++) {
+            byte[] record = records.get(i);
+            long offset = index.end + codec.writeRecord(out, record);
+            index.add(ids[i], offset, record.length);
+            index.end = offset + record.length + codec.trailerLength();
+        }
+        return index;
+    }
+
+    /**
+     * Adds a record after all the others.
+     *
+     * @param id The id of the task, larger than that of every record so far.
+     * @param offset Where the record starts in the file.
+     * @param length The length of the record, without framing.
+     */
+    void add(int id, long offset, int length) {
+        assert count == 0 || id > ids[count - 1] : "records must be added in id order";
+        if (count == ids.length) {
+            int grown = count + (count >> 1);
+            ids = Arrays.copyOf(ids, grown);
+            offsets = Arrays.copyOf(offsets, grown);
+            lengths = Arrays.copyOf(lengths, grown);
+        }
+        ids[count] = id;
+        offsets[count] = offset;
+        lengths[count] = length;
+        count++;
+    }
+
+    /**
+     * Returns the position of the record of the task with the given id, or -1 if the file has
+     * none, dead or alive.
+     */
+    int find(int id) {
+        int found = Arrays.binarySearch(ids, 0, count, id);
+        return found >= 0 ? found : -1;
+    }
+
+    long offset(int record) {
+        return offsets[record];
+    }
+
+    int length(int record) {
+        return lengths[record];
+    }
+
+    boolean isDead(int record) {
+        return dead.get(record);
+    }
+
+    /**
+     * Records that a record has been blanked out, or written back.
+     */
+    void setDead(int record, boolean isDead) {
+        if (dead.get(record) != isDead) {
+            dead.set(record, isDead);
+            deadBytes += isDead ? lengths[record] : -lengths[record];
+        }
+    }
+
+    /**
+     * Returns the bytes of blanked-out records, which a rewrite of the file would reclaim.
+     */
+    long deadBytes() {
+        return deadBytes;
+    }
+
+    /**
+     * Returns the largest id of any record, dead or alive, or 0 if there are none.
+     */
+    int lastId() {
+        return count == 0 ? 0 : ids[count - 1];
+    }
+
+    long end() {
+        return end;
+    }
+
+    void setEnd(long end) {
+        this.end = end;
+    }
+
+    long headerSeq() {
+        return headerSeq;
+    }
+
+    int headerLength() {
+        return headerLength;
+    }
+
+    int headerNextId() {
+        return headerNextId;
+    }
+
+    void setHeaderNextId(int headerNextId) {
+        this.headerNextId = headerNextId;
+    }
+}
@@ -0,0 +1,333 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * A rule by which a deadline or event repeats, such as every 2 weeks until the end of June,
+ * together with which of its occurrences are done.
+ *
+ * Occurrences are numbered from 0, the one the task's own dates describe, and are never
+ * materialized: the n-th is found by adding n intervals to the first, and the ones that fall
+ * within a range of days by dividing rather than by stepping through those before. Only the
+ * numbers of the occurrences marked done are kept, so a series costs the same however long
+ * it runs.
+ *
+ * Immutable; marking an occurrence gives a new rule, so that tasks are still replaced rather
+ * than changed in place.
+ */
+public final class Recurrence {
+    /** The longest interval accepted, in units of the frequency */
+    public static final int MAX_INTERVAL = 1000;
+
+    private static final int[] NONE_DONE = new int[0];
+
+    /**
+     * How far apart occurrences are, before multiplying by the interval.
+     */
+    public enum Frequency {
+        DAILY('d', "day", 1),
+        WEEKLY('w', "week", 7),
+        MONTHLY('m', "month", 0);
+
+        final char code;
+        final String unit;
+        /** Days per unit, or 0 for months, which vary */
+        final int days;
+
+        Frequency(char code, String unit, int days) {
+            this.code = code;
+            this.unit = unit;
+            this.days = days;
+        }
+
+        /**
+         * Returns the frequency a word such as "weeks" or "monthly" names, or null if none.
+         */
+        static Frequency fromWord(String word) {
+            for (Frequency f : values()) {
+                if (word.equals(f.unit) || word.equals(f.unit + "s")
+                        || word.equals(f == DAILY ? "daily" : f.unit + "ly")) {
+                    return f;
+                }
+            }
+            return null;
+        }
+
+        static Frequency fromCode(char code) {
+            for (Frequency f : values()) {
+                if (f.code == code) {
+                    return f;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Frequency frequency;
+    private final int interval;
+    /** The last day an occurrence may start on, or null for no such limit */
+    private final LocalDate until;
+    /** How many occurrences there are at most, or 0 for no such limit */
+    private final int times;
+    /** The numbers of the occurrences marked done, in ascending order */
+    private final int[] done;
+
+    private Recurrence(Frequency frequency, int interval, LocalDate until, int times, int[] done) {
+        assert interval >= 1 && interval <= MAX_INTERVAL : "interval out of range";
+        assert times >= 0 : "times must not be negative";
+        this.frequency = frequency;
+        this.interval = interval;
+        this.until = until;
+        this.times = times;
+        this.done = done;
+    }
+
+    /**
+     * Parses a rule as the user types it.
+     *
+     * @param every How often, e.g. "week", "2 weeks", "monthly" or "3 days".
+     * @param until The last day an occurrence may start on, or null for no end date.
+     * @param times How many occurrences there are at most, or null for no limit.
+     * @return The rule, with no occurrence done.
+     * @throws YapperException If any part is not understood.
+     */
+    public static Recurrence parse(String every, String until, String times) throws YapperException {
+        String[] words = every.trim().toLowerCase().split("\\s+");
+        int interval = 1;
+        if (words.length == 2) {
+            interval = parseCount(words[0], MAX_INTERVAL);
+        }
+        Frequency frequency = words.length <= 2 ? Frequency.fromWord(words[words.length - 1]) : null;
+        if (frequency == null || interval < 1) {
+            throw new YapperException("I can repeat things every day, week or month, e.g. /every 2 weeks."
+                    + " What's \"" + every.trim() + "\"?");
+        }
+        LocalDate last = null;
+        if (until != null) {
+            last = DateParser.parseDate(until);
+            if (last == null) {
+                throw new YapperException("Huh? I couldn't understand that /until date. Try e.g. /until 2025-12-31");
+            }
+        }
+        int count = 0;
+        if (times != null) {
+            count = parseCount(times.trim(), Integer.MAX_VALUE);
+            if (count < 1) {
+                throw new YapperException("How many /times? Give me a number from 1 up.");
+            }
+        }
+        return new Recurrence(frequency, interval, last, count, NONE_DONE);
+    }
+
+    /**
+     * Returns the day occurrence {@code n} starts on, for a series whose first occurrence starts
+     * on {@code first}. Always counted from the first, so a month-end day is not lost to a
+     * shorter month on the way.
+     */
+    LocalDate shift(LocalDate first, int n) {
+        long steps = (long) n * interval;
+        return frequency == Frequency.MONTHLY ? first.plusMonths(steps) : first.plusDays(steps * frequency.days);
+    }
+
+    /**
+     * Returns the start of occurrence {@code n} of a series whose first occurrence starts at
+     * {@code first}; the time of day stays the same.
+     */
+    LocalDateTime shift(LocalDateTime first, int n) {
+        return shift(first.toLocalDate(), n).atTime(first.toLocalTime());
+    }
+
+    /**
+     * Returns the number of the last occurrence of a series whose first occurrence starts on
+     * {@code firstDay}, or {@link Integer#MAX_VALUE} if it never ends. The first occurrence is
+     * the task's own, so there is always at least that one.
+     */
+    int last(LocalDate firstDay) {
+        int last = times > 0 ? times - 1 : Integer.MAX_VALUE;
+        return until == null ? last : Math.max(0, Math.min(last, lastStartingBy(firstDay, until)));
+    }
+
+    /**
+     * Returns the day the last occurrence ends, or {@link LocalDate#MAX} if the series never
+     * ends or ends beyond the dates that can be represented.
+     *
+     * @param firstDay The day the first occurrence starts.
+     * @param spanDays How many days after its start each occurrence ends.
+     */
+    LocalDate lastDay(LocalDate firstDay, long spanDays) {
+        int last = last(firstDay);
+        if (last == Integer.MAX_VALUE) {
+            return LocalDate.MAX;
+        }
+        try {
+            return shift(firstDay, last).plusDays(spanDays);
+        } catch (DateTimeException e) {
+            return LocalDate.MAX;
+        }
+    }
+
+    /**
+     * Returns the first and last number of the occurrences that occupy at least one day in
+     * {@code [from, to]}, or null if none does.
+     *
+     * @param firstDay The day the first occurrence starts.
+     * @param spanDays How many days after its start each occurrence ends.
+     */
+    int[] between(LocalDate firstDay, long spanDays, LocalDate from, LocalDate to) {
+        int lastN = Math.min(last(firstDay), lastStartingBy(firstDay, to));
+        // An occurrence that starts by the day before from minus its span ends before from
+        int firstN = lastStartingBy(firstDay, from.minusDays(spanDays + 1)) + 1;
+        return firstN <= lastN ? new int[] {firstN, lastN} : null;
+    }
+
+    /**
+     * Returns the number of the last occurrence that starts on or before {@code day}, or -1
+     * if the first starts after it. Computed by division, with a correction for months,
+     * which differ in length.
+     */
+    private int lastStartingBy(LocalDate firstDay, LocalDate day) {
+        if (day.isBefore(firstDay)) {
+            return -1;
+        }
+        long n;
+        if (frequency == Frequency.MONTHLY) {
+            n = ChronoUnit.MONTHS.between(firstDay, day) / interval;
+            // A first day late in the month lands on an earlier day in shorter months
+            while (n < Integer.MAX_VALUE && !shift(firstDay, (int) n + 1).isAfter(day)) {
+                n++;
+            }
+        } else {
+            n = ChronoUnit.DAYS.between(firstDay, day) / ((long) interval * frequency.days);
+        }
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns whether occurrence {@code n} is marked done.
+     */
+    boolean isDone(int n) {
+        return Arrays.binarySearch(done, n) >= 0;
+    }
+
+    /**
+     * Returns this rule with occurrence {@code n} marked done or not done.
+     */
+    Recurrence withDone(int n, boolean isDone) {
+        int at = Arrays.binarySearch(done, n);
+        if ((at >= 0) == isDone) {
+            return this;
+        }
+        int[] changed;
+        if (isDone) {
+            int insertAt = -at - 1;
+            changed = new int[done.length + 1];
+            System.arraycopy(done, 0, changed, 0, insertAt);
+            changed[insertAt] = n;
+            System.arraycopy(done, insertAt, changed, insertAt + 1, done.length - insertAt);
+        } else {
+            changed = new int[done.length - 1];
+            System.arraycopy(done, 0, changed, 0, at);
+            System.arraycopy(done, at + 1, changed, at, done.length - at - 1);
+        }
+        return new Recurrence(frequency, interval, until, times, changed);
+    }
+
+    /**
+     * Returns the rule as stored in the data file, e.g. {@code "every=2w until=2025-06-30 done=0,3"}.
+     */
+    String toFileString() {
+        StringBuilder sb = new StringBuilder("every=");
+        if (interval > 1) {
+            sb.append(interval);
+        }
+        sb.append(frequency.code);
+        if (until != null) {
+            sb.append(" until=").append(until);
+        }
+        if (times > 0) {
+            sb.append(" times=").append(times);
+        }
+        if (done.length > 0) {
+            StringJoiner numbers = new StringJoiner(",", " done=", "");
+            for (int n : done) {
+                numbers.add(Integer.toString(n));
+            }
+            sb.append(numbers);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses a rule written by {@link #toFileString}.
+     *
+     * @throws YapperException If the rule is malformed.
+     */
+    static Recurrence fromFileString(String s) throws YapperException {
+        Frequency frequency = null;
+        int interval = 1;
+        LocalDate until = null;
+        int times = 0;
+        int[] done = NONE_DONE;
+        try {
+            for (String field : s.trim().split(" ")) {
+                int equals = field.indexOf('=');
+                String key = equals < 0 ? field : field.substring(0, equals);
+                String value = field.substring(equals + 1);
+                switch (key) {
+                case "every":
+                    frequency = Frequency.fromCode(value.charAt(value.length() - 1));
+                    interval = value.length() > 1 ? Integer.parseInt(value.substring(0, value.length() - 1)) : 1;
+                    break;
+                case "until":
+                    until = LocalDate.parse(value);
+                    break;
+                case "times":
+                    times = Integer.parseInt(value);
+                    break;
+                case "done":
+                    done = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).sorted().distinct().toArray();
+                    break;
+                default:
+                    throw new IllegalArgumentException(key);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new YapperException("Corrupted repeat rule: " + s);
+        }
+        if (frequency == null || interval < 1 || interval > MAX_INTERVAL || times < 0) {
+            throw new YapperException("Corrupted repeat rule: " + s);
+        }
+        return new Recurrence(frequency, interval, until, times, done);
+    }
+
+    /**
+     * Describes the rule for the user, e.g. "every 2 weeks until 2025-06-30".
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("every ");
+        sb.append(interval == 1 ? frequency.unit : interval + " " + frequency.unit + "s");
+        if (until != null) {
+            sb.append(" until ").append(until);
+        }
+        if (times > 0) {
+            sb.append(", ").append(times).append(times == 1 ? " time" : " times");
+        }
+        return sb.toString();
+    }
+
+    private static int parseCount(String digits, int max) {
+        try {
+            int value = Integer.parseInt(digits);
+            return value <= max ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package taskmanager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Finds events whose times overlap, for the "conflicts" command and to warn when an event is
+ * added on top of another.
+ *
+ * The events in question are fetched from the list's interval index, expanding recurring ones
+ * into only the occurrences in the dates asked for, and then swept in order of start time.
+ * The sweep keeps the events still in progress in a heap ordered by end time, so each event
+ * is compared only with those it actually overlaps: O(n log n + k) for n events and k
+ * conflicts. An event ending exactly when another starts does not conflict with it, and events
+ * known only by raw date strings have no times to overlap.
+ */
+public final class ScheduleConflicts {
+    private static final DateTimeFormatter DAY_TIME_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("HH:mm");
+    /** Most clashes listed when warning about a newly added event */
+    private static final int MAX_WARNINGS = 5;
+
+    private ScheduleConflicts() { }
+
+    /**
+     * One occurrence of an event, with its times.
+     */
+    private static final class Slot {
+        final Event event;
+        final LocalDateTime start;
+        final LocalDateTime end;
+
+        Slot(Event event, LocalDateTime start, LocalDateTime end) {
+            this.event = event;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Lists every pair of overlapping events in {@code [from, to]}, in order of when the
+     * overlap starts, one line per pair.
+     *
+     * @param taskList The list of tasks to check.
+     * @param from The first date, inclusive.
+     * @param to The last date, inclusive.
+     * @return A line describing each conflict, empty if there are none.
+     */
+    public static List<String> between(TaskList taskList, LocalDate from, LocalDate to) {
+        List<String> lines = new ArrayList<>();
+        for (Slot[] pair : sweep(slotsBetween(taskList, from, to), null)) {
+            lines.add(format(pair[0]) + " " + pair[0].event.getDescription() + "  overlaps  "
+                    + format(pair[1]) + " " + pair[1].event.getDescription());
+        }
+        return lines;
+    }
+
+    /**
+     * Describes the events that {@code event}, just added to the list, overlaps. Only the
+     * occurrences in the first {@link ViewSchedules#MAX_RANGE_DAYS} days of a recurring event
+     * are checked.
+     *
+     * @param taskList The list the event was added to.
+     * @param event The added event.
+     * @return A warning to show after adding the event, or an empty string if it overlaps nothing.
+     */
+    public static String warningFor(TaskList taskList, Event event) {
+        if (event.from == null || event.to == null) {
+            return "";
+        }
+        LocalDate from = event.from.toLocalDate();
+        LocalDate to = event.to.toLocalDate();
+        if (event.getRecurrence() != null) {
+            LocalDate lastDay = event.getRecurrence().lastDay(from, to.toEpochDay() - from.toEpochDay());
+            LocalDate limit = from.plusDays(ViewSchedules.MAX_RANGE_DAYS - 1);
+            to = lastDay.isAfter(limit) ? limit : lastDay;
+        }
+        List<Slot[]> clashes = sweep(slotsBetween(taskList, from, to), event);
+        if (clashes.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("\nHeads up! This clashes with:");
+        for (Slot[] pair : clashes.subList(0, Math.min(clashes.size(), MAX_WARNINGS))) {
+            Slot other = pair[0].event == event ? pair[1] : pair[0];
+            sb.append("\n  ").append(format(other)).append(" ").append(other.event.getDescription());
+        }
+        if (clashes.size() > MAX_WARNINGS) {
+            sb.append("\n  ...and ").append(clashes.size() - MAX_WARNINGS).append(" more. Try the conflicts command.");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collects the occurrences of timed events that overlap {@code [from, to]}, using the list's
+     * interval index to skip the rest.
+     */
+    private static List<Slot> slotsBetween(TaskList taskList, LocalDate from, LocalDate to) {
+        LocalDateTime rangeStart = from.atStartOfDay();
+        LocalDateTime rangeEnd = to.plusDays(1).atStartOfDay();
+        List<Slot> slots = new ArrayList<>();
+        for (DateIndex.Entry entry : taskList.scheduledBetween(from, to)) {
+            if (!(entry.task instanceof Event) || !entry.isTimed) {
+                continue;
+            }
+            Event event = (Event) entry.task;
+            int[] occurrences = entry.occurrencesBetween(from, to);
+            if (occurrences == null) {
+                continue;
+            }
+            for (int n = occurrences[0]; n <= occurrences[1]; n++) {
+                LocalDateTime start = event.startOf(n);
+                LocalDateTime end = event.endOf(n);
+                if (start.isBefore(rangeEnd) && (end.isAfter(rangeStart) || !start.isBefore(rangeStart))) {
+                    slots.add(new Slot(event, start, end));
+                }
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Sweeps the slots in order of start time and returns each pair that overlaps, in the order
+     * the overlaps start, with the slot that started earlier first in each pair. Occurrences of
+     * the same event are not reported against each other.
+     *
+     * @param only If not null, only pairs involving this event are returned.
+     */
+    private static List<Slot[]> sweep(List<Slot> slots, Event only) {
+        slots.sort(Comparator.comparing((Slot s) -> s.start).thenComparing(s -> s.end));
+        PriorityQueue<Slot> active = new PriorityQueue<>(Comparator.comparing((Slot s) -> s.end));
+        List<Slot[]> pairs = new ArrayList<>();
+        List<Slot> overlapping = new ArrayList<>();
+        for (Slot slot : slots) {
+            while (!active.isEmpty() && !active.peek().end.isAfter(slot.start)) {
+                active.poll();
+            }
+            overlapping.clear();
+            for (Slot other : active) {
+                if (other.event != slot.event && (only == null || other.event == only || slot.event == only)) {
+                    overlapping.add(other);
+                }
+            }
+            // The heap iterates in no particular order, so list the earlier starts first
+            overlapping.sort(Comparator.comparing((Slot s) -> s.start).thenComparing(s -> s.end));
+            for (Slot other : overlapping) {
+                pairs.add(new Slot[] {other, slot});
+            }
+            active.add(slot);
+        }
+        return pairs;
+    }
+
+    /**
+     * Formats the times of a slot, giving the end day only if it differs from the start day.
+     */
+    private static String format(Slot slot) {
+        String end = slot.end.toLocalDate().equals(slot.start.toLocalDate())
+                ? slot.end.format(TIME_FMT)
+                : slot.end.format(DAY_TIME_FMT);
+        return slot.start.format(DAY_TIME_FMT) + "–" + end;
+    }
+}
@@ -0,0 +1,174 @@
+package taskmanager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes whole data files crash-safely: the content goes to a temporary file in the same
+ * directory, is forced to disk, and only then renamed over the live file. A crash at any
+ * point leaves either the old file or the new one, never a truncated mix.
+ *
+ * The temporary file takes over the permissions of the file it replaces, so that saving never
+ * changes who may read the tasks. One left behind by a crash is removed by {@link #removeStale}.
+ */
+final class SnapshotWriter {
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** Temporary files being written or waiting to be installed, which are not stale */
+    private static final Set<Path> IN_FLIGHT = ConcurrentHashMap.newKeySet();
+
+    private SnapshotWriter() { }
+
+    /**
+     * Produces the content of a snapshot file.
+     */
+    interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes {@code body} to {@code target} atomically.
+     *
+     * @param target The file to replace.
+     * @param body The content to write.
+     * @throws IOException If the file cannot be written or renamed.
+     */
+    static void write(Path target, Body body) throws IOException {
+        install(writeTemp(target, body), target);
+    }
+
+    /**
+     * Writes and forces the snapshot into a temporary file beside {@code target} without
+     * installing it, so the slow part can run outside any lock.
+     *
+     * @return The temporary file, to be passed to {@link #install} or deleted.
+     */
+    static Path writeTemp(Path target, Body body) throws IOException {
+        Path tmp = createTemp(target);
+        try {
+            copyPermissions(target, tmp);
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE);
+                 OutputStream out = new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16)) {
+                body.writeTo(out);
+                out.flush();
+                ch.force(true);
+            }
+        } catch (IOException e) {
+            discard(tmp);
+            throw e;
+        }
+        return tmp;
+    }
+
+    /**
+     * Renames a temporary file from {@link #writeTemp} over {@code target} and syncs the
+     * directory entry where the platform allows it.
+     */
+    static void install(Path tmp, Path target) throws IOException {
+        try {
+            moveAtomically(tmp, target);
+        } finally {
+            IN_FLIGHT.remove(tmp);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Deletes a temporary file from {@link #writeTemp} that is not going to be installed.
+     */
+    static void discard(Path tmp) throws IOException {
+        try {
+            Files.deleteIfExists(tmp);
+        } finally {
+            IN_FLIGHT.remove(tmp);
+        }
+    }
+
+    /**
+     * Deletes the temporary files that a run which crashed before installing them left beside
+     * {@code target}, including those of the files named after it, such as its journal.
+     *
+     * @param target The data file.
+     * @throws IOException If the directory cannot be listed or a file cannot be deleted.
+     */
+    static void removeStale(Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        String prefix = target.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, file -> {
+            String name = file.getFileName().toString();
+            return name.startsWith(prefix) && name.endsWith(TEMP_SUFFIX) && !IN_FLIGHT.contains(file);
+        })) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Creates an empty file with a name of its own beside {@code target}, with the permissions
+     * that any new file gets, unlike {@link Files#createTempFile} which makes it private.
+     */
+    private static Path createTemp(Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        while (true) {
+            String unique = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+            Path tmp = dir.resolve(target.getFileName() + "." + unique + TEMP_SUFFIX);
+            IN_FLIGHT.add(tmp);
+            try {
+                return Files.createFile(tmp);
+            } catch (FileAlreadyExistsException e) {
+                IN_FLIGHT.remove(tmp);
+            } catch (IOException e) {
+                IN_FLIGHT.remove(tmp);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Gives {@code tmp} the permissions of {@code target}, where the file system has POSIX
+     * permissions and {@code target} already exists.
+     */
+    private static void copyPermissions(Path target, Path tmp) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (view != null && Files.exists(target)) {
+            Files.setPosixFilePermissions(tmp, view.readAttributes().permissions());
+        }
+    }
+
+    /**
+     * Moves {@code source} over {@code target}, atomically where the file system allows it.
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Forces the directory so the rename itself survives a power loss. Not every platform
+     * can open a directory as a channel (Windows cannot), so failures are tolerated.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // The rename has happened; only its durability across power loss is weaker here.
+        }
+    }
+}
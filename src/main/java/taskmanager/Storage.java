@@ -1,22 +1,82 @@
 package taskmanager;
 
 import mryapper.YapperException;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Control all functionalities of storing the lists of tasks offline on the device.
+ *
+ * In journal mode every mutation is appended to a small log beside the data file instead of
+ * rewriting the whole file. The data file then acts as a snapshot, tagged with the sequence
+ * number of the last journal record it covers, and is rebuilt in the background once the
+ * journal grows past the compaction threshold. A data file that does not say which record it
+ * covers, e.g. because it predates the journal, gets a fresh snapshot on the first change
+ * instead, and a journal found beside such a file is refused rather than replayed blindly.
+ *
+ * Without a journal, changes are written straight into the data file where they fit: a mark
+ * overwrites the done flag of the task's record, an added task is appended, and a deleted one is
+ * blanked out where the format allows it. The file is only rewritten once blanked-out records
+ * take up half of it, or for changes that cannot be written in place. A journal left beside the
+ * file by an earlier session is applied and deleted on loading, and the file keeps the sequence
+ * number of its last record, so that switching back to a journal carries on from there.
+ *
+ * Every full write goes through {@link SnapshotWriter}, so the data file is replaced atomically.
+ * How often changes are forced to disk is governed by the {@link Durability} policy.
+ * The undo history of the list is saved to a third file beside the data file on request.
  */
 public class Storage {
+    /** Journal size in bytes after which the data file is rebuilt and the journal trimmed */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1L << 20;
+    /** Default interval between forced writes under {@link Durability#GROUP_COMMIT} */
+    public static final long DEFAULT_GROUP_COMMIT_MILLIS = 100;
+
     private final Path filePath;
+    private final TaskCodec codec;
+    private final Journal journal;
+    private final long compactionThreshold;
+    private final Durability durability;
+    private final long groupCommitMillis;
+    private ScheduledExecutorService background;
+    /** The last journal record the data file covers, or {@link TaskCodec#NO_SEQ} if it does not say */
+    private long snapshotSeq = TaskCodec.NO_SEQ;
+    /** Why nothing may be written, if loading found a journal that cannot be trusted; null otherwise */
+    private String refusal;
+    /** One past the largest id loaded, saved or recorded, which a plain list of tasks may have lost */
+    private int seenNextId = 1;
+    private long lastCommitMillis;
+    /** Without a journal, whether the data file is missing changes that a rewrite has to catch up on */
+    private boolean isDirty;
+    private boolean isForceScheduled;
+    /** Without a journal, supplies the list for a rewrite that group commit has scheduled; null if none */
+    private Supplier<? extends List<Task>> pendingRewrite;
+    /** Without a journal, where each record lies in the data file; null while it cannot be changed in place */
+    private RecordIndex recordIndex;
+    /** Open on the data file while it is changed in place */
+    private FileChannel dataChannel;
+    private volatile boolean isCompacting;
+    private volatile IOException backgroundError;
+    /** Bytes of data files and journal records written so far, including background writes */
+    private final AtomicLong bytesWritten = new AtomicLong();
+    /** Times that journal records or changes written in place have been forced to disk */
+    private final AtomicLong forces = new AtomicLong();
 
     /**
      * Constructs a Storage object with the specified file path.
@@ -24,95 +84,887 @@ public class Storage {
      * @param filePath The path to the data file.
      */
     public Storage(String filePath) {
+        this(filePath, false, DEFAULT_COMPACTION_THRESHOLD, Durability.EVERY_COMMAND, DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+
+    /**
+     * Constructs a Storage object that optionally records mutations in a journal and forces
+     * every change to disk before returning.
+     *
+     * @param filePath The path to the data file.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     * @param compactionThreshold Journal size in bytes that triggers a background compaction.
+     */
+    public Storage(String filePath, boolean isJournaled, long compactionThreshold) {
+        this(filePath, isJournaled, compactionThreshold, Durability.EVERY_COMMAND, DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+
+    /**
+     * Constructs a Storage object that optionally records mutations in a journal.
+     *
+     * @param filePath The path to the data file.
+     * @param isJournaled Whether mutations are appended to a journal instead of rewriting the file.
+     * @param compactionThreshold Journal size in bytes that triggers a background compaction.
+     * @param durability How eagerly changes are forced to disk.
+     * @param groupCommitMillis Interval between forced writes under {@link Durability#GROUP_COMMIT}.
+     */
+    public Storage(String filePath, boolean isJournaled, long compactionThreshold,
+                   Durability durability, long groupCommitMillis) {
         this.filePath = Paths.get(filePath);
         assert this.filePath != null : "filePath must resolve to a Path";
+        assert groupCommitMillis > 0 : "group commit interval must be positive";
+        this.codec = TaskCodec.forPath(this.filePath);
+        this.journal = isJournaled ? new Journal(journalPath(this.filePath)) : null;
+        this.compactionThreshold = compactionThreshold;
+        this.durability = Objects.requireNonNull(durability, "durability");
+        this.groupCommitMillis = groupCommitMillis;
     }
 
     /**
-     * Loads tasks from the data file.
+     * Loads tasks from the data file, replaying any journal records the file does not cover yet.
      * If the file does not exist, it creates a new one and returns an empty list.
      *
-     * @return An ArrayList of Task objects loaded from the file.
+     * The file is read into memory and only indexed by record here; each task is decoded the first
+     * time the returned list hands it out, so startup does not scale with parsing every task.
+     *
+     * @return A List of Task objects loaded from the file.
      * @throws YapperException If there is an error creating or reading the file.
      */
-    public ArrayList<Task> loadTasks() throws YapperException {
-        ArrayList<Task> tasks = new ArrayList<>();
+    public synchronized List<Task> loadTasks() throws YapperException {
+        LazyTaskList tasks;
         File taskFile = this.filePath.toFile();
         assert taskFile != null : "taskFile should not be null";
 
+        try {
+            SnapshotWriter.removeStale(filePath);
+        } catch (IOException e) {
+            // Only disk space is lost; the files are not read, and new ones get names of their own.
+        }
         if (!taskFile.exists()) {
             try {
-                Files.createDirectories(this.filePath.getParent());
+                Files.createDirectories(this.filePath.toAbsolutePath().getParent());
                 Files.createFile(this.filePath); // use NIO to create file
             } catch (IOException e) {
                 throw new YapperException("Could not create data file: " + e.getMessage());
             }
-            return tasks;
+            tasks = LazyTaskList.inMemory();
+        } else {
+            tasks = readSnapshot();
         }
 
-        try (BufferedReader r = Files.newBufferedReader(this.filePath, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = r.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                }       
-                tasks.add(parseLine(line));
-            }
-        } catch (IOException e) {
-            throw new YapperException("Error loading tasks! " + e.getMessage());
+        if (journal != null) {
+            replayJournal(tasks);
+        } else {
+            recordIndex = indexRecords(tasks);
+            foldStrayJournal(tasks);
         }
+        seenNextId = tasks.nextId();
         return tasks;
     }
 
     /**
-     * Saves the current list of tasks to the data file.
+     * Saves the current list of tasks to the data file, regardless of the durability policy.
+     * In journal mode this writes a fresh snapshot and empties the journal.
      *
-     * @param tasks The ArrayList of Task objects to be saved.
+     * @param tasks The List of Task objects to be saved.
      * @throws YapperException If there is an error writing to the file.
      */
-    public void saveTasks(ArrayList<Task> tasks) throws YapperException {
+    public synchronized void saveTasks(List<Task> tasks) throws YapperException {
         Objects.requireNonNull(tasks, "tasks");
-        try (BufferedWriter w = Files.newBufferedWriter(this.filePath, StandardCharsets.UTF_8)) {
-            for (Task task : tasks) {
-                w.write(task.toFileString());
-                w.newLine();
+        checkWritable();
+        try {
+            List<byte[]> records = encodeRecords(tasks, codec);
+            int nextId = nextIdFor(tasks);
+            if (journal == null) {
+                // Stamped with the last journal record applied, so that a journal never replays twice
+                long seq = Math.max(snapshotSeq, 0);
+                int[] ids = idsOf(tasks);
+                RecordIndex[] written = new RecordIndex[1];
+                Path tmp = SnapshotWriter.writeTemp(filePath,
+                        out -> written[0] = RecordIndex.write(out, codec, seq, nextId, records, ids));
+                bytesWritten.addAndGet(Files.size(tmp));
+                closeDataChannel();
+                recordIndex = null;
+                SnapshotWriter.install(tmp, filePath);
+                recordIndex = written[0];
+                snapshotSeq = seq;
+            } else {
+                long seq = journal.lastSeq();
+                Path tmp = SnapshotWriter.writeTemp(filePath, out -> codec.write(out, seq, nextId, records));
+                bytesWritten.addAndGet(Files.size(tmp));
+                commitSnapshot(tmp, seq);
             }
         } catch (IOException e) {
             throw new YapperException("Error saving tasks to a file! " + e.getMessage());
         }
+        isDirty = false;
+        pendingRewrite = null;
+        lastCommitMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Saves {@code tasks} if the journal holds changes that the data file does not have yet,
+     * which empties the journal, and returns the seq the data file covers from then on.
+     *
+     * @param tasks The tasks as loaded, with the journal replayed.
+     * @return The seq to stamp on a copy of the data file, or -1 if it does not record one.
+     * @throws YapperException If the tasks cannot be saved.
+     */
+    synchronized long foldJournal(List<Task> tasks) throws YapperException {
+        if (journal != null && journal.lastSeq() > Math.max(snapshotSeq, 0)) {
+            saveTasks(tasks);
+        }
+        return snapshotSeq;
+    }
+
+    /**
+     * Returns how many bytes of data files and journal records have been written so far.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * Returns how many times journal records or changes written in place have been forced to
+     * disk, which the durability policy decides. Full rewrites are always forced and not counted.
+     */
+    long getForceCount() {
+        return forces.get();
+    }
+
+    /**
+     * Persists a task that has just been appended to {@code tasks}.
+     *
+     * @param tasks Supplies the task list after the addition, if the whole list has to be written.
+     * @param task The task that was added.
+     * @throws YapperException If the change cannot be written.
+     */
+    public synchronized void recordAdd(Supplier<? extends List<Task>> tasks, Task task) throws YapperException {
+        record(tasks, Journal.OP_ADD, List.of(task));
+    }
+
+    /**
+     * Persists a change in the done status of {@code task}.
+     *
+     * @param tasks Supplies the task list after the change, if the whole list has to be written.
+     * @param task The task that was marked or unmarked.
+     * @param isDone The new done status.
+     * @throws YapperException If the change cannot be written.
+     */
+    public synchronized void recordMark(Supplier<? extends List<Task>> tasks, Task task, boolean isDone)
+            throws YapperException {
+        recordMark(tasks, List.of(task), isDone);
     }
 
     /**
-     * Parses a single line from the data file and creates a Task object.
-     * The line format is expected to be "Type | isDone | Description | ...".
+     * Persists a change in the done status of several tasks at once, forcing them to disk together.
      *
-     * @param line The string line to be parsed.
-     * @return A Task object corresponding to the parsed line.
-     * @throws YapperException If the task type is invalid.
+     * @param tasks Supplies the task list after the change, if the whole list has to be written.
+     * @param changed The tasks that were marked or unmarked.
+     * @param isDone The new done status.
+     * @throws YapperException If the change cannot be written.
      */
-    private Task parseLine(String line) throws YapperException {
-        String[] parts = line.split(" \\| ");
-        assert parts.length >= 3 : "Malformed line (need at least type, isDone, description)";
+    public synchronized void recordMark(Supplier<? extends List<Task>> tasks, List<Task> changed, boolean isDone)
+            throws YapperException {
+        record(tasks, isDone ? Journal.OP_MARK : Journal.OP_UNMARK, changed);
+    }
 
-        String type = parts[0];
-        boolean isDone = parts[1].equals("1");
+    /**
+     * Persists the removal of {@code task}.
+     *
+     * @param tasks Supplies the task list after the removal, if the whole list has to be written.
+     * @param task The task that was removed.
+     * @throws YapperException If the change cannot be written.
+     */
+    public synchronized void recordDelete(Supplier<? extends List<Task>> tasks, Task task) throws YapperException {
+        recordDelete(tasks, List.of(task));
+    }
 
-        switch (type) {
-        case "T":
-            ToDo todo = new ToDo(parts[2]);
-            if (isDone) todo.markDone();
-            return todo;
-        case "D":
-            Deadline deadline = new Deadline(parts[2], parts[3]);
-            if (isDone) deadline.markDone();
-            return deadline;
-        case "E":
-            Event event = new Event(parts[2], parts[3], parts[4]);
-            if (isDone) event.markDone();
-            return event;
+    /**
+     * Persists the removal of several tasks at once, forcing them to disk together.
+     *
+     * @param tasks Supplies the task list after the removal, if the whole list has to be written.
+     * @param removed The tasks that were removed.
+     * @throws YapperException If the change cannot be written.
+     */
+    public synchronized void recordDelete(Supplier<? extends List<Task>> tasks, List<Task> removed)
+            throws YapperException {
+        record(tasks, Journal.OP_DELETE, removed);
+    }
+
+    /**
+     * Persists tasks put back into the list, e.g. by undoing their deletion.
+     *
+     * @param tasks Supplies the task list after the change, if the whole list has to be written.
+     * @param restored The tasks put back, with the ids they had before.
+     * @throws YapperException If the change cannot be written.
+     */
+    public synchronized void recordRestore(Supplier<? extends List<Task>> tasks, List<Task> restored)
+            throws YapperException {
+        record(tasks, Journal.OP_RESTORE, restored);
+    }
+
+    /**
+     * Persists tasks replaced by changed copies of themselves, e.g. with an occurrence of a
+     * recurring task marked done.
+     *
+     * @param tasks Supplies the task list after the change, if the whole list has to be written.
+     * @param replaced The copies now in the list, with the ids of the tasks they replaced.
+     * @throws YapperException If the change cannot be written.
+     */
+    public synchronized void recordReplace(Supplier<? extends List<Task>> tasks, List<Task> replaced)
+            throws YapperException {
+        record(tasks, Journal.OP_REPLACE, replaced);
+    }
+
+    /**
+     * Saves the undo history of {@code tasks} beside the data file, so that it survives a
+     * restart, or removes the saved one if there is nothing to undo or redo.
+     *
+     * @param tasks The task list whose history to save.
+     * @throws YapperException If the history cannot be written.
+     */
+    public void saveHistory(TaskList tasks) throws YapperException {
+        List<String> lines = tasks.encodeHistory();
+        Path path = historyPath(filePath);
+        try {
+            if (lines.isEmpty()) {
+                Files.deleteIfExists(path);
+                return;
+            }
+            SnapshotWriter.write(path, out -> {
+                for (String line : lines) {
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    out.write('\n');
+                }
+            });
+        } catch (IOException e) {
+            throw new YapperException("Error saving the undo history! " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gives {@code tasks} the undo history saved beside the data file, unless there is none or
+     * it was saved for a different state of the list, e.g. before a crash.
+     *
+     * @param tasks The task list just loaded from this storage.
+     * @throws YapperException If the history cannot be read.
+     */
+    public void loadHistory(TaskList tasks) throws YapperException {
+        Path path = historyPath(filePath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            tasks.decodeHistory(Files.readAllLines(path, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new YapperException("Error loading the undo history! " + e.getMessage());
+        }
+    }
+
+    private void record(Supplier<? extends List<Task>> tasks, char op, List<Task> changed) throws YapperException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        IOException failure = backgroundError;
+        if (failure != null) {
+            backgroundError = null;
+            throw new YapperException("Error writing tasks in the background! " + failure.getMessage());
+        }
+        checkWritable();
+        for (Task task : changed) {
+            seenNextId = Math.max(seenNextId, task.getId() + 1);
+        }
+        if (journal == null) {
+            recordWithoutJournal(tasks, op, changed);
+            return;
+        }
+        if (snapshotSeq == TaskCodec.NO_SEQ) {
+            // Records only make sense on top of a snapshot that says where they start
+            saveTasks(tasks.get());
+            return;
+        }
+
+        try {
+            long journalSize = journal.size();
+            for (Task task : changed) {
+                journal.append(op, payloadOf(op, task));
+            }
+            bytesWritten.addAndGet(journal.size() - journalSize);
+            force(journal::force);
+        } catch (IOException e) {
+            throw new YapperException("Error saving tasks to a file! " + e.getMessage());
+        }
+        if (journal.size() >= compactionThreshold && !isCompacting) {
+            scheduleCompaction(tasks.get());
+        }
+    }
+
+    private void checkWritable() throws YapperException {
+        if (refusal != null) {
+            throw new YapperException(refusal);
+        }
+    }
+
+    /**
+     * Forces what was just written according to the durability policy.
+     */
+    private void force(IoAction forceChanges) throws IOException {
+        if (durability == Durability.EVERY_COMMAND) {
+            forceChanges.run();
+            forces.incrementAndGet();
+        } else if (durability == Durability.GROUP_COMMIT && !isForceScheduled) {
+            isForceScheduled = true;
+            background().schedule(this::forceScheduled, groupCommitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * An action on the disk, such as forcing a file.
+     */
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Writes the change into the data file in place if it can, and otherwise rewrites the data
+     * file according to the durability policy. A rewrite has nothing cheap to force later, so
+     * group commit rewrites at most once per interval, catching up on every change held back
+     * when the interval is up; until then nothing is written in place.
+     */
+    private void recordWithoutJournal(Supplier<? extends List<Task>> tasks, char op, List<Task> changed)
+            throws YapperException {
+        if (!isDirty && recordIndex != null) {
+            try {
+                if (writeInPlace(op, changed)) {
+                    if (recordIndex.deadBytes() > (recordIndex.end() - recordIndex.headerLength()) / 2) {
+                        saveTasks(tasks.get());
+                    } else {
+                        force(() -> dataChannel.force(false));
+                    }
+                    return;
+                }
+            } catch (IOException e) {
+                recordIndex = null;
+                isDirty = true;
+                throw new YapperException("Error saving tasks to a file! " + e.getMessage());
+            }
+            // Whatever was written in place so far is caught up on by the rewrite
+            recordIndex = null;
+        }
+        isDirty = true;
+        switch (durability) {
+        case EVERY_COMMAND:
+            saveTasks(tasks.get());
+            break;
+        case GROUP_COMMIT:
+            long untilDue = lastCommitMillis + groupCommitMillis - System.currentTimeMillis();
+            if (untilDue <= 0) {
+                saveTasks(tasks.get());
+            } else {
+                scheduleRewrite(tasks, untilDue);
+            }
+            break;
         default:
-            throw new YapperException("Invalid task type! Task type was recognised as: " + type);
+            break;
+        }
+    }
+
+    /**
+     * Rewrites the data file after {@code delayMillis} with the list as it is by then, unless a
+     * rewrite is already due, so that a change held back by group commit is not held back for
+     * good when no command follows it.
+     */
+    private void scheduleRewrite(Supplier<? extends List<Task>> tasks, long delayMillis) {
+        boolean isScheduled = pendingRewrite != null;
+        pendingRewrite = tasks;
+        if (!isScheduled) {
+            background().schedule(this::rewriteScheduled, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void rewriteScheduled() {
+        Supplier<? extends List<Task>> tasks = pendingRewrite;
+        pendingRewrite = null;
+        if (tasks == null || !isDirty) {
+            return;
+        }
+        try {
+            saveTasks(tasks.get());
+        } catch (YapperException e) {
+            backgroundError = new IOException(e.getMessage(), e);
+        }
+    }
+
+    private synchronized void forceScheduled() {
+        isForceScheduled = false;
+        try {
+            if (journal != null) {
+                journal.force();
+            } else if (dataChannel != null) {
+                dataChannel.force(false);
+            }
+            forces.incrementAndGet();
+        } catch (IOException e) {
+            backgroundError = e;
+        }
+    }
+
+    /**
+     * Writes each changed task into the data file in place, in the order given.
+     *
+     * @return Whether every change was written; if not, the file has to be rewritten.
+     */
+    private boolean writeInPlace(char op, List<Task> changed) throws IOException {
+        for (Task task : changed) {
+            boolean isWritten;
+            switch (op) {
+            case Journal.OP_ADD:
+                isWritten = appendInPlace(task);
+                break;
+            case Journal.OP_MARK:
+            case Journal.OP_UNMARK:
+                isWritten = markInPlace(task, op == Journal.OP_MARK);
+                break;
+            case Journal.OP_DELETE:
+                isWritten = deleteInPlace(task);
+                break;
+            case Journal.OP_RESTORE:
+                isWritten = restoreInPlace(task);
+                break;
+            case Journal.OP_REPLACE:
+                isWritten = replaceInPlace(task);
+                break;
+            default:
+                isWritten = false;
+                break;
+            }
+            if (!isWritten) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean appendInPlace(Task task) throws IOException {
+        if (task.getId() <= recordIndex.lastId()) {
+            return false;
+        }
+        byte[] record = codec.encode(task);
+        ByteArrayOutputStream framed = new ByteArrayOutputStream(record.length + 8);
+        int prefix = codec.writeRecord(framed, record);
+        long at = recordIndex.end();
+        writeAt(framed.toByteArray(), at);
+        recordIndex.add(task.getId(), at + prefix, record.length);
+        recordIndex.setEnd(at + framed.size());
+        return true;
+    }
+
+    /**
+     * Overwrites the done flag of the task's record, after checking that the byte there holds
+     * a done flag at all, in case the record was not written the way the codec writes it.
+     */
+    private boolean markInPlace(Task task, boolean isDone) throws IOException {
+        int record = recordIndex.find(task.getId());
+        if (record < 0 || recordIndex.isDead(record)) {
+            return false;
+        }
+        long at = recordIndex.offset(record) + codec.doneFlagOffset(task);
+        byte flag = codec.doneFlag(task, isDone);
+        byte found = readAt(at, 1)[0];
+        if (found != flag && found != codec.doneFlag(task, !isDone)) {
+            return false;
+        }
+        writeAt(new byte[] {flag}, at);
+        return true;
+    }
+
+    /**
+     * Blanks out the task's record. The header must then account for its id, or the id could be
+     * handed out again after a restart.
+     */
+    private boolean deleteInPlace(Task task) throws IOException {
+        int record = recordIndex.find(task.getId());
+        byte[] tombstone = record < 0 ? null : codec.tombstone(recordIndex.length(record));
+        if (tombstone == null || recordIndex.isDead(record)
+                || readAt(recordIndex.offset(record) + codec.doneFlagOffset(task), 1)[0]
+                        != codec.doneFlag(task, task.isDone())) {
+            return false;
+        }
+        int nextId = recordIndex.lastId() + 1;
+        if (nextId > recordIndex.headerNextId()) {
+            byte[] header = codec.header(recordIndex.headerSeq(), nextId);
+            if (header.length != recordIndex.headerLength()) {
+                return false;
+            }
+            writeAt(header, 0);
+            recordIndex.setHeaderNextId(nextId);
+        }
+        writeAt(tombstone, recordIndex.offset(record));
+        recordIndex.setDead(record, true);
+        return true;
+    }
+
+    /**
+     * Writes a deleted task back over its blanked-out record, which is only possible as long as
+     * no rewrite has reclaimed the space.
+     */
+    private boolean restoreInPlace(Task task) throws IOException {
+        int record = recordIndex.find(task.getId());
+        if (record < 0 || !recordIndex.isDead(record)) {
+            return false;
+        }
+        byte[] bytes = codec.encode(task);
+        int length = recordIndex.length(record);
+        if (bytes.length != length
+                || !Arrays.equals(readAt(recordIndex.offset(record), length), codec.tombstone(length))) {
+            return false;
+        }
+        writeAt(bytes, recordIndex.offset(record));
+        recordIndex.setDead(record, false);
+        return true;
+    }
+
+    /**
+     * Overwrites the task's record with that of its replacement, which is only possible if the
+     * two are the same length. The start of the record, up to the done flag, must already be
+     * that of the task, in case the record was not written the way the codec writes it.
+     */
+    private boolean replaceInPlace(Task task) throws IOException {
+        int record = recordIndex.find(task.getId());
+        if (record < 0 || recordIndex.isDead(record)) {
+            return false;
+        }
+        byte[] bytes = codec.encode(task);
+        int length = recordIndex.length(record);
+        int prefix = codec.doneFlagOffset(task);
+        if (bytes.length != length || !Arrays.equals(readAt(recordIndex.offset(record), prefix),
+                Arrays.copyOf(bytes, prefix))) {
+            return false;
+        }
+        writeAt(bytes, recordIndex.offset(record));
+        return true;
+    }
+
+    private byte[] readAt(long position, int length) throws IOException {
+        return readFully(dataChannel(), position, length);
+    }
+
+    /**
+     * Reads {@code length} bytes at {@code position}, leaving zeros for any past the end.
+     */
+    private static byte[] readFully(FileChannel ch, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (ch.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    private void writeAt(byte[] bytes, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            dataChannel().write(buffer, position + buffer.position());
+        }
+        bytesWritten.addAndGet(bytes.length);
+    }
+
+    /**
+     * Opens the data file for changing it in place. Loaded lists hold a copy of what they read,
+     * so they do not see the change.
+     */
+    private FileChannel dataChannel() throws IOException {
+        if (dataChannel == null) {
+            dataChannel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return dataChannel;
+    }
+
+    private void closeDataChannel() throws IOException {
+        if (dataChannel != null) {
+            dataChannel.close();
+            dataChannel = null;
+        }
+    }
+
+    /**
+     * Indexes the records of a freshly loaded data file for changing them in place, or returns
+     * null if the file is not laid out exactly the way the codec writes it, e.g. because it
+     * predates task ids or was edited by hand. Such a file is rewritten on the first change.
+     */
+    private RecordIndex indexRecords(LazyTaskList tasks) {
+        byte[] header = codec.header(tasks.seq(), tasks.storedNextId());
+        try (FileChannel ch = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (!Arrays.equals(readFully(ch, 0, header.length), header)) {
+                return null;
+            }
+            RecordIndex index = new RecordIndex(tasks.size(), tasks.seq(), header.length, tasks.storedNextId());
+            for (int i = 0; i < tasks.size(); i++) {
+                int start = tasks.loadedStart(i);
+                if (start < index.end() || tasks.idAt(i) <= index.lastId()) {
+                    return null;
+                }
+                index.add(tasks.idAt(i), start, tasks.loadedLength(i));
+                index.setEnd(start + tasks.loadedLength(i) + codec.trailerLength());
+            }
+            return index.end() == ch.size() ? index : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private ScheduledExecutorService background() {
+        if (background == null) {
+            background = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "storage-background");
+                t.setDaemon(true);
+                return t;
+            });
         }
+        return background;
+    }
+
+    /**
+     * Captures the current state on the caller's thread and rebuilds the snapshot in the background.
+     * Records appended while the snapshot is being written stay in the journal.
+     */
+    private void scheduleCompaction(List<Task> tasks) {
+        isCompacting = true;
+        long seq = journal.lastSeq();
+        int nextId = nextIdFor(tasks);
+        List<byte[]> records = encodeRecords(tasks, codec);
+        background().execute(() -> {
+            try {
+                Path tmp = SnapshotWriter.writeTemp(filePath, out -> codec.write(out, seq, nextId, records));
+                bytesWritten.addAndGet(Files.size(tmp));
+                synchronized (this) {
+                    commitSnapshot(tmp, seq);
+                }
+            } catch (IOException e) {
+                backgroundError = e;
+            } finally {
+                isCompacting = false;
+            }
+        });
+    }
+
+    /**
+     * Installs a snapshot written by {@link SnapshotWriter#writeTemp} unless a newer one has already
+     * been installed, then trims the journal records it covers. Must hold the lock.
+     */
+    private void commitSnapshot(Path tmp, long seq) throws IOException {
+        if (seq < snapshotSeq) {
+            SnapshotWriter.discard(tmp);
+            return;
+        }
+        SnapshotWriter.install(tmp, filePath);
+        snapshotSeq = seq;
+        journal.retainAfter(seq);
+    }
+
+    private LazyTaskList readSnapshot() throws YapperException {
+        try {
+            LazyTaskList tasks = LazyTaskList.open(filePath, codec);
+            snapshotSeq = tasks.seq();
+            return tasks;
+        } catch (IOException e) {
+            throw new YapperException("Error loading tasks! " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the journal records the data file does not cover yet. A data file that does not say
+     * which records it covers could have been edited by hand or converted after some of them,
+     * so a journal beside it is left alone, and nothing is written until it has been dealt with.
+     */
+    private void replayJournal(LazyTaskList tasks) throws YapperException {
+        try {
+            List<Journal.Record> records = journal.readRecords();
+            if (snapshotSeq == TaskCodec.NO_SEQ && !records.isEmpty()) {
+                throw refuseJournal();
+            }
+            for (Journal.Record r : records) {
+                if (r.seq > snapshotSeq) {
+                    applyRecord(tasks, r);
+                }
+            }
+        } catch (IOException e) {
+            throw new YapperException("Error loading tasks! " + e.getMessage());
+        }
+        journal.advanceTo(snapshotSeq);
+    }
+
+    /**
+     * Without a journal, applies the records of one that an earlier session left beside the data
+     * file, saves the tasks stamped with the last of them and deletes the journal. Left in place,
+     * it would be replayed by the next session with a journal, on top of any changes made since.
+     */
+    private void foldStrayJournal(LazyTaskList tasks) throws YapperException {
+        Path journalFile = journalPath(filePath);
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        try {
+            Journal stray = new Journal(journalFile);
+            List<Journal.Record> records = stray.readRecords();
+            if (snapshotSeq == TaskCodec.NO_SEQ && !records.isEmpty()) {
+                throw refuseJournal();
+            }
+            boolean isApplied = false;
+            for (Journal.Record r : records) {
+                if (r.seq > snapshotSeq) {
+                    applyRecord(tasks, r);
+                    isApplied = true;
+                }
+            }
+            if (isApplied) {
+                snapshotSeq = stray.lastSeq();
+                saveTasks(tasks);
+            }
+            Files.delete(journalFile);
+        } catch (IOException e) {
+            throw new YapperException("Error loading tasks! " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops everything from being written, since the journal beside the data file may or may
+     * not have been applied to it already, and returns the error to report.
+     */
+    private YapperException refuseJournal() {
+        Path journalFile = journalPath(filePath);
+        refusal = "I won't save anything until " + journalFile + " is sorted out, or it could get lost.";
+        return new YapperException("Girl " + journalFile + " has changes that " + filePath
+                + " may or may not have already, since it does not say. Was it edited or converted? "
+                + "Move one of them aside and start me again.");
+    }
+
+    private void applyRecord(LazyTaskList tasks, Journal.Record r) throws YapperException {
+        try {
+            switch (r.op) {
+            case Journal.OP_ADD:
+                tasks.add(TextTaskCodec.parseLine(r.payload));
+                break;
+            case Journal.OP_MARK:
+                tasks.get(indexOf(tasks, r.payload)).markDone();
+                break;
+            case Journal.OP_UNMARK:
+                tasks.get(indexOf(tasks, r.payload)).markUndone();
+                break;
+            case Journal.OP_DELETE:
+                tasks.remove(indexOf(tasks, r.payload));
+                break;
+            case Journal.OP_RESTORE:
+                tasks.restore(TextTaskCodec.parseLine(r.payload));
+                break;
+            case Journal.OP_REPLACE:
+                Task replacement = TextTaskCodec.parseLine(r.payload);
+                tasks.set(tasks.indexOfId(replacement.getId()), replacement);
+                break;
+            default:
+                throw new YapperException("Unknown journal operation: " + r.op);
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException | IllegalStateException e) {
+            throw new YapperException("Corrupted journal record #" + r.seq + ": " + r.payload);
+        }
+    }
+
+    /**
+     * Returns the position a mark or delete record refers to: a task id such as {@code "#12"},
+     * or a zero-based position in journals written before tasks had ids.
+     */
+    private static int indexOf(LazyTaskList tasks, String payload) {
+        return payload.startsWith("#")
+                ? tasks.indexOfId(Integer.parseInt(payload.substring(1)))
+                : Integer.parseInt(payload);
+    }
+
+    /**
+     * Returns the journal payload of a change: the whole task for an addition, restore or
+     * replacement, and otherwise just its id.
+     */
+    private static String payloadOf(char op, Task task) {
+        if (op == Journal.OP_ADD || op == Journal.OP_RESTORE || op == Journal.OP_REPLACE) {
+            return TextTaskCodec.formatLine(task);
+        }
+        assert task.getId() > 0 : "task must belong to a list";
+        return "#" + task.getId();
+    }
+
+    /**
+     * Returns the id of every task in {@code tasks}, without decoding those of a lazy list.
+     */
+    private static int[] idsOf(List<Task> tasks) {
+        LazyTaskList lazy = lazyOf(tasks);
+        int[] ids = new int[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = lazy != null ? lazy.idAt(i) : tasks.get(i).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the next id to store with {@code tasks}. A {@link TaskList} counts ids itself, but a
+     * plain list cannot tell that its last task was deleted, so the ids seen here count as well.
+     */
+    private int nextIdFor(List<Task> tasks) {
+        seenNextId = Math.max(seenNextId, nextIdOf(tasks));
+        return seenNextId;
+    }
+
+    /**
+     * Returns the next id to hand out for {@code tasks}: one past the largest id ever used if it
+     * is a {@link TaskList}'s, or one past the largest id in it otherwise.
+     */
+    static int nextIdOf(List<Task> tasks) {
+        LazyTaskList lazy = lazyOf(tasks);
+        if (lazy != null) {
+            return lazy.nextId();
+        }
+        int max = 0;
+        for (Task task : tasks) {
+            max = Math.max(max, task.getId());
+        }
+        return max + 1;
+    }
+
+    /**
+     * Encodes every task for {@code target}. Runs on the caller's thread so that the result
+     * is an immutable copy that a background writer can use safely.
+     */
+    static List<byte[]> encodeRecords(List<Task> tasks, TaskCodec target) {
+        List<byte[]> records = new ArrayList<>(tasks.size());
+        LazyTaskList lazy = lazyOf(tasks);
+        if (lazy != null) {
+            // Records that were never decoded are copied straight from the loaded file.
+            for (int i = 0; i < lazy.size(); i++) {
+                records.add(lazy.record(i, target));
+            }
+            return records;
+        }
+        for (Task task : tasks) {
+            records.add(target.encode(task));
+        }
+        return records;
+    }
+
+    /**
+     * Returns the lazy list behind {@code tasks}, or {@code null} if it is some other list.
+     */
+    private static LazyTaskList lazyOf(List<Task> tasks) {
+        if (tasks instanceof TaskSnapshot) {
+            return ((TaskSnapshot) tasks).tasks();
+        }
+        return tasks instanceof LazyTaskList ? (LazyTaskList) tasks : null;
+    }
+
+    static Path journalPath(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + ".journal");
+    }
+
+    private static Path historyPath(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + ".undo");
     }
 }
@@ -4,10 +4,14 @@ package taskmanager;
  * Represents a task on the task list which could be either a
  * todo, deadline or an event task
  */
-public class Task {
+public class Task implements Cloneable {
     protected String description;
     //Flag to know if a task is marked done or undone
     protected boolean isDone; 
+    /** Stable id assigned when the task first joins a list, or 0 before that */
+    protected int id;
+    /** How the task repeats, or null if it happens once; only deadlines and events repeat */
+    protected Recurrence recurrence;
 
     public Task(String description) {
         this.description = description;
@@ -18,6 +22,50 @@ public class Task {
         return this.description;
     }
 
+    /**
+     * Returns the task's id, which unlike its list number never changes once assigned.
+     *
+     * @return The id, or 0 if the task has not been added to a list yet.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns a copy of this task with the same id, so that it can be changed without
+     * affecting snapshots of the list that still hold the original.
+     */
+    Task copy() {
+        try {
+            return (Task) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns how the task repeats.
+     *
+     * @return The rule, or {@code null} if the task happens only once.
+     */
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    /**
+     * Returns a copy of this task with occurrence {@code n} of its series marked done or not.
+     */
+    Task withOccurrenceDone(int n, boolean isDone) {
+        assert recurrence != null : "only a recurring task has occurrences";
+        Task copy = copy();
+        copy.recurrence = recurrence.withDone(n, isDone);
+        return copy;
+    }
+
+    public boolean isDone() {
+        return isDone;
+    }
+
     public String getStatusIcon() {
         return isDone
                 ? "X" 
@@ -30,7 +78,7 @@ public class Task {
      * 
      * @return Resulting boolean of the mark status to MrYapper to print corresponding message
      */
-    public boolean markDone() {
+    boolean markDone() {
         if (isDone) {
             return false;
         }
@@ -44,7 +92,7 @@ public class Task {
      * 
      * @return Resulting boolean of the mark status to MrYapper to print corresponding message
      */
-    public boolean markUndone() {
+    boolean markUndone() {
         if (!isDone) {
             return false;
         }
@@ -66,4 +114,19 @@ public class Task {
     public String toFileString() {
         return " | " + (isDone ? "1" : "0") + " | " + description;
     }
+
+    /**
+     * Returns the field that follows the dates of a recurring task in the data file, or an
+     * empty string if the task happens only once.
+     */
+    String recurrenceField() {
+        return recurrence == null ? "" : " | " + recurrence.toFileString();
+    }
+
+    /**
+     * Returns how the task repeats as shown after its dates, or an empty string if it does not.
+     */
+    String recurrenceText() {
+        return recurrence == null ? "" : ", " + recurrence;
+    }
 }
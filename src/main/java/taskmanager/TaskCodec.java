@@ -0,0 +1,130 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes tasks into, and decodes them out of, one on-disk data file format.
+ * A file is a header followed by one record per task; {@link LazyTaskList} indexes the
+ * records and asks the codec to decode each one only when it is first needed.
+ * Each record carries the task's id, and the header the next id to hand out, so that ids
+ * are never reused even after the task with the largest one is deleted.
+ */
+interface TaskCodec {
+    /** Snapshot sequence number written when a file is not paired with a journal */
+    long NO_SEQ = -1;
+
+    /**
+     * Encodes a single task, including its id if it has one, as one record without any framing.
+     *
+     * @param task The task to encode.
+     * @return The record bytes.
+     */
+    byte[] encode(Task task);
+
+    /**
+     * Decodes the record at {@code buffer[start, start + length)}.
+     *
+     * @throws YapperException If the record is malformed.
+     */
+    Task decode(ByteBuffer buffer, int start, int length) throws YapperException;
+
+    /**
+     * Reads the header of a loaded file into {@code list}, then registers each record span
+     * and the id stored in it.
+     *
+     * @param buffer The whole file.
+     * @param list The list to register the header and record spans with.
+     * @throws YapperException If the header or a record frame is malformed.
+     */
+    void index(ByteBuffer buffer, LazyTaskList list) throws YapperException;
+
+    /**
+     * Returns the header a file starts with.
+     *
+     * @param seq The snapshot sequence number, or {@link #NO_SEQ}.
+     * @param nextId The id the next added task will get.
+     * @return The header bytes.
+     */
+    byte[] header(long seq, int nextId);
+
+    /**
+     * Writes one record framed as it appears in a file, e.g. to append it to the end of one.
+     *
+     * @param out The destination stream.
+     * @param record A record produced by {@link #encode} or copied from a file of this format.
+     * @return How many bytes of framing were written before the record itself.
+     * @throws IOException If the stream cannot be written.
+     */
+    int writeRecord(OutputStream out, byte[] record) throws IOException;
+
+    /**
+     * Returns how many bytes of framing follow each record, e.g. a line separator.
+     */
+    int trailerLength();
+
+    /**
+     * Returns where in the record of {@code task} the byte holding its done flag lies, so that
+     * marking the task can overwrite that byte alone. No other byte depends on the flag.
+     */
+    int doneFlagOffset(Task task);
+
+    /**
+     * Returns the byte at {@link #doneFlagOffset} in the record of {@code task} when its done
+     * flag is {@code isDone}.
+     */
+    byte doneFlag(Task task, boolean isDone);
+
+    /**
+     * Returns bytes that overwrite a record of {@code length} bytes so that the file reads as
+     * if the record was never there, or {@code null} if the format has no way to do so.
+     */
+    byte[] tombstone(int length);
+
+    /**
+     * Writes a whole file: the header followed by the framed records.
+     *
+     * @param out The destination stream.
+     * @param seq The snapshot sequence number, or {@link #NO_SEQ}.
+     * @param nextId The id the next added task will get.
+     * @param records Records produced by {@link #encode} or copied from a file of this format.
+     * @throws IOException If the stream cannot be written.
+     */
+    default void write(OutputStream out, long seq, int nextId, List<byte[]> records) throws IOException {
+        out.write(header(seq, nextId));
+        for (byte[] record : records) {
+            writeRecord(out, record);
+        }
+    }
+
+    /**
+     * Picks the codec for a data file. An existing file is recognised by its contents;
+     * a new one by its extension, with {@code .bin} selecting the binary format.
+     *
+     * @param file The data file.
+     * @return The codec to read and write the file with.
+     */
+    static TaskCodec forPath(Path file) {
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                byte[] magic = in.readNBytes(BinaryTaskCodec.MAGIC.length);
+                if (Arrays.equals(magic, BinaryTaskCodec.MAGIC)) {
+                    return BinaryTaskCodec.INSTANCE;
+                }
+                if (magic.length > 0) {
+                    return TextTaskCodec.INSTANCE;
+                }
+            } catch (IOException e) {
+                // Fall back to the extension; reading the file will report the real problem.
+            }
+        }
+        return file.getFileName().toString().endsWith(".bin") ? BinaryTaskCodec.INSTANCE : TextTaskCodec.INSTANCE;
+    }
+}
@@ -0,0 +1,70 @@
+package taskmanager;
+
+import java.util.List;
+
+/**
+ * How many tasks of each type are done and not done, so that a query can tell how selective
+ * its type and done filters are without looking at any task.
+ */
+final class TaskCounts {
+    static final int TODO = 0;
+    static final int DEADLINE = 1;
+    static final int EVENT = 2;
+    /** Stands for either type, or either done state */
+    static final int ANY = -1;
+
+    /** Indexed by type, then by 1 if done and 0 if not */
+    private final int[][] counts = new int[3][2];
+
+    /**
+     * Counts the given tasks.
+     *
+     * @param tasks The tasks, all of which are decoded.
+     */
+    TaskCounts(List<Task> tasks) {
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    void add(Task task) {
+        counts[typeOf(task)][task.isDone() ? 1 : 0]++;
+    }
+
+    void remove(Task task) {
+        counts[typeOf(task)][task.isDone() ? 1 : 0]--;
+    }
+
+    void replace(Task task, Task replacement) {
+        remove(task);
+        add(replacement);
+    }
+
+    /**
+     * Returns how many tasks have the given type and done state.
+     *
+     * @param type One of {@link #TODO}, {@link #DEADLINE} and {@link #EVENT}, or {@link #ANY}.
+     * @param done 1 for done tasks, 0 for the rest, or {@link #ANY}.
+     */
+    int count(int type, int done) {
+        int total = 0;
+        for (int t = 0; t < counts.length; t++) {
+            for (int d = 0; d < 2; d++) {
+                if ((type == ANY || type == t) && (done == ANY || done == d)) {
+                    total += counts[t][d];
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the type of a task, as one of {@link #TODO}, {@link #DEADLINE} and {@link #EVENT}.
+     */
+    static int typeOf(Task task) {
+        if (task instanceof Deadline) {
+            return DEADLINE;
+        }
+        return task instanceof Event ? EVENT : TODO;
+    }
+}
@@ -0,0 +1,71 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Converts a task data file between the text and binary formats. The source format is detected
+ * from its contents and the target format is chosen by extension ({@code .bin} for binary).
+ * Any journal beside the source is folded into it first, so the output reflects every saved
+ * change and carries the same seq, and neither file has changes left that could be replayed twice.
+ */
+public final class TaskFileConverter {
+
+    private TaskFileConverter() { }
+
+    /**
+     * Converts {@code source} into {@code target}.
+     *
+     * @param source The existing data file.
+     * @param target The file to write, replaced atomically if it exists.
+     * @return The number of tasks converted.
+     * @throws YapperException If the source cannot be read, the target has a journal of its own, or
+     *     the target cannot be written.
+     */
+    public static int convert(Path source, Path target) throws YapperException {
+        if (!Files.isRegularFile(source)) {
+            throw new YapperException("No data file found at " + source);
+        }
+        Path targetJournal = Storage.journalPath(target);
+        boolean isInPlace = target.toAbsolutePath().normalize().equals(source.toAbsolutePath().normalize());
+        if (!isInPlace && Files.exists(targetJournal)) {
+            throw new YapperException("Girl " + targetJournal + " would be replayed on top of the converted tasks! "
+                    + "Move it aside first.");
+        }
+        Storage storage = new Storage(source.toString(), true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        List<Task> tasks = storage.loadTasks();
+        long seq = storage.foldJournal(tasks);
+        TaskCodec codec = target.getFileName().toString().endsWith(".bin")
+                ? BinaryTaskCodec.INSTANCE
+                : TextTaskCodec.INSTANCE;
+        List<byte[]> records = Storage.encodeRecords(tasks, codec);
+        int nextId = Storage.nextIdOf(tasks);
+        try {
+            SnapshotWriter.write(target, out -> codec.write(out, seq, nextId, records));
+        } catch (IOException e) {
+            throw new YapperException("Error writing converted tasks! " + e.getMessage());
+        }
+        return records.size();
+    }
+
+    /**
+     * Converts a data file from the command line, e.g.
+     * {@code java taskmanager.TaskFileConverter data/tasks.txt data/tasks.bin}.
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: TaskFileConverter <source> <target>");
+            return;
+        }
+        try {
+            int count = convert(Paths.get(args[0]), Paths.get(args[1]));
+            System.out.println("Converted " + count + " tasks into " + args[1]);
+        } catch (YapperException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+}
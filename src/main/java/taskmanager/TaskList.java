@@ -1,36 +1,82 @@
 package taskmanager;
 
 import mryapper.YapperException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
- * Represents the lists of tasks and functions operation on a the task list
+ * Represents the lists of tasks and functions operation on a the task list.
+ *
+ * Every task gets a stable id when it is added, which it keeps for good, unlike its list
+ * number. Deleting a task is O(log n) and does not shift the tasks after it in memory.
+ *
+ * The list is safe to use from several threads. Changes are made one at a time, while readers
+ * work on a {@link TaskSnapshot}: taking one is free as long as nothing has changed since the
+ * last, and the first change after a snapshot was taken copies the list instead of altering
+ * it. Tasks are never changed in place either, so marking one replaces it with a copy.
+ *
+ * Every change is also recorded in an {@link UndoHistory}, so that it can be undone and redone
+ * without keeping copies of the whole list: undoing an add or a mark costs a lookup by id, and
+ * undoing a delete puts the task back into the slot it left, in O(log n).
  */
 public class TaskList {
-    private ArrayList<Task> tasks;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Only touched while holding the write lock */
+    private LazyTaskList tasks;
+    /** Whether {@link #tasks} is frozen in a snapshot, so must be copied before changing */
+    private boolean isShared;
+    private long version;
+    private volatile int size;
+    /** The snapshot of the current version, or null if none has been taken yet */
+    private volatile TaskSnapshot published;
+    /** Built on the first search so that loading never has to decode every description */
+    private volatile KeywordIndex keywordIndex;
+    /** Built on the first schedule query, for the same reason */
+    private volatile DateIndex dateIndex;
+    /** Built on the first query with filters, for the same reason */
+    private volatile TaskCounts taskCounts;
+    private final UndoHistory history = new UndoHistory(UndoHistory.DEFAULT_BUDGET_BYTES);
 
     /**
      * Constructs a new TaskList assuming no TaskList can be found from existing data.
      */
     public TaskList() {
-        this.tasks = new ArrayList<>();
+        this.tasks = LazyTaskList.inMemory();
     }
 
     /**
      * Constructs a new TaskList given that tasks can be found from existing data
      * @param tasks Tasks found from existing data.
      */
-    public TaskList(ArrayList<Task> tasks) {
-        this.tasks = tasks;
+    public TaskList(List<Task> tasks) {
+        if (tasks instanceof LazyTaskList) {
+            this.tasks = (LazyTaskList) tasks;
+        } else {
+            this.tasks = LazyTaskList.inMemory();
+            this.tasks.addAll(tasks);
+        }
+        this.size = this.tasks.size();
     }
 
     /**
-     * Adds a task.
+     * Adds a task to the end of the list, giving it the next id.
      *
      * @param task The task to add.
      */
     public void add(Task task) {
-        tasks.add(task);
+        lock.writeLock().lock();
+        try {
+            beforeChange();
+            tasks.add(task);
+            indexAdded(task);
+            history.record(UndoHistory.ADDED, task, null);
+            afterChange();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -41,10 +87,17 @@ public class TaskList {
      * @throws YapperException If the index is out of range (0 <= index < number of tasks).
      */
     public Task delete(int index) throws YapperException {
-        if (index < 0 || index >= tasks.size()) {
-            throw new YapperException("Task number out of bounds!");
+        lock.writeLock().lock();
+        try {
+            checkIndex(index);
+            beforeChange();
+            Task removed = removeAt(index);
+            history.record(UndoHistory.REMOVED, removed, null);
+            afterChange();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return tasks.remove(index);
     }
 
     /**
@@ -55,47 +108,491 @@ public class TaskList {
      * @throws YapperException If the index is out of range.
      */
     public boolean markTaskAsDone(int index) throws YapperException {
-        if (index < 0 || index >= tasks.size()) {
-            throw new YapperException("Task number out of bounds!");
-        }
-        return tasks.get(index).markDone();
+        return setDone(index, true);
     }
 
     /**
      * Unmark a task on the TaskList as undone, from the command "unmark"
-     * 
-     * @param index The index number of the task to be unmarked on the TaskList. 
+     *
+     * @param index The index number of the task to be unmarked on the TaskList.
      * @return a string representation when the method markUndone() is called on the Task specified.
      * @throws YapperException when index is invalid. Valid range: 0 <= index < number of tasks.
      */
     public boolean markTaskAsUndone(int index) throws YapperException {
-        if (index < 0 || index >= tasks.size()) {
-            throw new YapperException("Task number out of bounds!");
+        return setDone(index, false);
+    }
+
+    /**
+     * Marks one occurrence of a recurring deadline or event as done or not done, leaving the
+     * others as they are.
+     *
+     * @param index The zero-based index of the task.
+     * @param day A day the occurrence occupies.
+     * @param isDone Whether the occurrence is now done.
+     * @return The task as it is now, or {@code null} if the occurrence already was as asked.
+     * @throws YapperException If the index is out of range, the task does not repeat, or it
+     *     has no occurrence on {@code day}.
+     */
+    public Task markOccurrence(int index, LocalDate day, boolean isDone) throws YapperException {
+        lock.writeLock().lock();
+        try {
+            checkIndex(index);
+            Task task = tasks.get(index);
+            if (task.getRecurrence() == null) {
+                throw new YapperException("That task doesn't repeat, so just " + (isDone ? "mark" : "unmark")
+                        + " it without /on!");
+            }
+            int n = DateIndex.occurrenceOn(task, day);
+            if (n < 0) {
+                throw new YapperException("That task doesn't happen on " + day + "!");
+            }
+            if (task.getRecurrence().isDone(n) == isDone) {
+                return null;
+            }
+            beforeChange();
+            Task changed = task.withOccurrenceDone(n, isDone);
+            replaceAt(index, changed);
+            history.record(UndoHistory.REPLACED, task, changed);
+            afterChange();
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean setDone(int index, boolean isDone) throws YapperException {
+        lock.writeLock().lock();
+        try {
+            checkIndex(index);
+            Task task = tasks.get(index);
+            if (task.isDone == isDone) {
+                return false;
+            }
+            beforeChange();
+            Task changed = task.copy();
+            changed.isDone = isDone;
+            replaceAt(index, changed);
+            history.record(UndoHistory.REPLACED, task, changed);
+            afterChange();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Groups the changes made from now until {@link #endStep} into one step of the undo history,
+     * so that a command changing several tasks is undone as a whole.
+     *
+     * @param label Describes the step to the user, e.g. the command that makes it.
+     */
+    public void beginStep(String label) {
+        lock.writeLock().lock();
+        try {
+            history.beginStep(label);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ends the step begun by {@link #beginStep}; later changes are each a step of their own.
+     */
+    public void endStep() {
+        lock.writeLock().lock();
+        try {
+            history.endStep();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reverses the most recent step of changes that has not been undone yet.
+     *
+     * @return What was done to reverse it.
+     * @throws YapperException If there is nothing to undo, or the list no longer matches the
+     *     history, which is then forgotten.
+     */
+    public UndoHistory.Applied undo() throws YapperException {
+        return step(false);
+    }
+
+    /**
+     * Makes the changes of the step undone last again.
+     *
+     * @return What was done to redo it.
+     * @throws YapperException If there is nothing to redo, or the list no longer matches the
+     *     history, which is then forgotten.
+     */
+    public UndoHistory.Applied redo() throws YapperException {
+        return step(true);
+    }
+
+    private UndoHistory.Applied step(boolean isRedo) throws YapperException {
+        lock.writeLock().lock();
+        try {
+            if (isRedo ? !history.canRedo() : !history.canUndo()) {
+                throw new YapperException(isRedo ? "There is nothing to redo!" : "There is nothing to undo!");
+            }
+            UndoHistory.Step step = isRedo ? history.popRedo() : history.popUndo();
+            List<UndoHistory.Change> changes = step.changes;
+            for (UndoHistory.Change change : changes) {
+                if (!canApply(change, isRedo)) {
+                    history.clear();
+                    throw new YapperException("The list has changed since, so I can't "
+                            + (isRedo ? "redo" : "undo") + " that any more.");
+                }
+            }
+            beforeChange();
+            UndoHistory.Applied applied = new UndoHistory.Applied(step.label);
+            for (int i = 0; i < changes.size(); i++) {
+                apply(changes.get(isRedo ? i : changes.size() - 1 - i), isRedo, applied);
+            }
+            afterChange();
+            if (isRedo) {
+                history.pushUndo(step);
+            } else {
+                history.pushRedo(step);
+            }
+            return applied;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks that the list is as {@code change} left it, when undoing, or as it found it,
+     * when redoing. Tasks are compared by content, since a history loaded from disk holds
+     * copies of them.
+     */
+    private boolean canApply(UndoHistory.Change change, boolean isRedo) {
+        int index = tasks.indexOfId(change.task.getId());
+        Task current = index < 0 ? null : tasks.get(index);
+        boolean isAddedTaskThere = change.kind == UndoHistory.ADDED ? !isRedo : isRedo;
+        switch (change.kind) {
+        case UndoHistory.ADDED:
+        case UndoHistory.REMOVED:
+            return isAddedTaskThere ? isSame(current, change.task) : current == null;
+        default:
+            return isSame(current, isRedo ? change.task : change.replacement);
+        }
+    }
+
+    private void apply(UndoHistory.Change change, boolean isRedo, UndoHistory.Applied applied) {
+        int index = tasks.indexOfId(change.task.getId());
+        boolean isAdding = (change.kind == UndoHistory.ADDED) == isRedo;
+        switch (change.kind) {
+        case UndoHistory.ADDED:
+        case UndoHistory.REMOVED:
+            if (isAdding) {
+                tasks.restore(change.task);
+                indexAdded(change.task);
+                applied.restored.add(change.task);
+            } else {
+                applied.removed.add(removeAt(index));
+            }
+            break;
+        default:
+            Task replacement = isRedo ? change.replacement : change.task;
+            replaceAt(index, replacement);
+            applied.replaced.add(replacement);
+            break;
+        }
+    }
+
+    private static boolean isSame(Task current, Task expected) {
+        return current == expected
+                || (current != null && current.toFileString().equals(expected.toFileString()));
+    }
+
+    /**
+     * Encodes the undo history for saving, headed by a line identifying the state of the list
+     * it applies to.
+     */
+    List<String> encodeHistory() {
+        lock.writeLock().lock();
+        try {
+            List<String> lines = history.encode();
+            if (!lines.isEmpty()) {
+                lines.add(0, historyHeader());
+            }
+            return lines;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the undo history with a saved one, if it was saved for the list as it is now.
+     *
+     * @return Whether the history was taken.
+     * @throws YapperException If the saved history is malformed.
+     */
+    boolean decodeHistory(List<String> lines) throws YapperException {
+        lock.writeLock().lock();
+        try {
+            if (lines.isEmpty() || !lines.get(0).equals(historyHeader())) {
+                return false;
+            }
+            history.decode(lines.subList(1, lines.size()));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
         }
-        return tasks.get(index).markUndone();
+    }
+
+    private String historyHeader() {
+        return "# next=" + tasks.nextId() + " size=" + tasks.size();
     }
 
     /**
-     * Find all the tasks in a tasklist that has the specified keyword.
-     * 
-     * @param keyword The keyword we are searching for in the task description.
-     * @return a mataching ArrayList of tasks.
+     * Find all the tasks in a tasklist whose description contains every word of the keyword,
+     * ignoring case. Answered from an inverted index kept up to date by add and delete.
+     *
+     * @param keyword The keyword(s) we are searching for in the task description.
+     * @return a matching ArrayList of tasks, in list order.
      */
     public ArrayList<Task> findTasks(String keyword) {
-        ArrayList<Task> found = new ArrayList<>();
-        for (Task task : tasks) {
-            if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
-                found.add(task);
+        KeywordIndex index = keywordIndex();
+        lock.readLock().lock();
+        try {
+            return index.find(keyword);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the tasks whose descriptions match every word of {@code query} best, allowing for
+     * a typo or two in each word.
+     *
+     * @param query One or more whitespace-separated words.
+     * @param limit The most tasks to return.
+     * @return The best matches, closest first.
+     */
+    public List<Task> findTasksFuzzy(String query, int limit) {
+        KeywordIndex index = keywordIndex();
+        lock.readLock().lock();
+        try {
+            return index.findFuzzy(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the keyword index, building it on first use.
+     */
+    private KeywordIndex keywordIndex() {
+        if (keywordIndex == null) {
+            lock.writeLock().lock();
+            try {
+                if (keywordIndex == null) {
+                    keywordIndex = new KeywordIndex(tasks);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return keywordIndex;
+    }
+
+    /**
+     * Returns the deadlines and events occupying at least one day in {@code [from, to]},
+     * answered from an interval index kept up to date by add and delete.
+     *
+     * @param from The first day, inclusive.
+     * @param to The last day, inclusive.
+     * @return The matching entries in list order.
+     */
+    List<DateIndex.Entry> scheduledBetween(LocalDate from, LocalDate to) {
+        DateIndex index = dateIndex();
+        lock.readLock().lock();
+        try {
+            return index.overlapping(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a query, answering what it can from the indexes and reading tasks only for the rest.
+     *
+     * @param query The parsed query.
+     * @param explain Receives a line for each step taken, or null.
+     * @return The matching tasks in list order.
+     */
+    public List<Task> query(TaskQuery query, Consumer<String> explain) {
+        TaskCounts counts = taskCounts();
+        KeywordIndex keywords = query.hasText() ? keywordIndex() : null;
+        DateIndex dates = query.hasDates() ? dateIndex() : null;
+        lock.readLock().lock();
+        try {
+            return query.execute(tasks, counts, keywords, dates, explain);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the date index, building it on first use.
+     */
+    private DateIndex dateIndex() {
+        if (dateIndex == null) {
+            lock.writeLock().lock();
+            try {
+                if (dateIndex == null) {
+                    dateIndex = new DateIndex(tasks);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return dateIndex;
+    }
+
+    /**
+     * Returns the counts of tasks by type and done state, counting them on first use.
+     */
+    private TaskCounts taskCounts() {
+        if (taskCounts == null) {
+            lock.writeLock().lock();
+            try {
+                if (taskCounts == null) {
+                    taskCounts = new TaskCounts(tasks);
+                }
+            } finally {
+                lock.writeLock().unlock();
             }
         }
-        return found;
+        return taskCounts;
+    }
+
+    /**
+     * Returns the current zero-based position of the task with the given id.
+     *
+     * @param id The id of the task.
+     * @return The position of the task.
+     * @throws YapperException If no task has that id.
+     */
+    public int indexOfId(int id) throws YapperException {
+        int index;
+        // Takes the write lock since the first lookup builds the id table
+        lock.writeLock().lock();
+        try {
+            index = tasks.indexOfId(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (index < 0) {
+            throw new YapperException("There is no task #" + id + "!");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the task currently at {@code index}.
+     *
+     * @param index The zero-based index of the task.
+     * @return The task, which is never changed in place.
+     * @throws YapperException If the index is out of range.
+     */
+    public Task get(int index) throws YapperException {
+        lock.readLock().lock();
+        try {
+            checkIndex(index);
+            return tasks.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
-    public ArrayList<Task> getTasks() {
-        return tasks;
+    /**
+     * Returns an immutable snapshot of the list as it is now, which later changes do not affect.
+     */
+    public TaskSnapshot snapshot() {
+        TaskSnapshot snapshot = published;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        lock.writeLock().lock();
+        try {
+            if (published == null) {
+                published = new TaskSnapshot(tasks, version);
+                isShared = true;
+            }
+            return published;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public int getSize() {
-        return tasks.size();
+        return size;
+    }
+
+    private void checkIndex(int index) throws YapperException {
+        if (index < 0 || index >= tasks.size()) {
+            throw new YapperException("Task number out of bounds!");
+        }
+    }
+
+    private Task removeAt(int index) {
+        Task removed = tasks.remove(index);
+        if (keywordIndex != null) {
+            keywordIndex.remove(removed);
+        }
+        if (dateIndex != null) {
+            dateIndex.remove(removed);
+        }
+        if (taskCounts != null) {
+            taskCounts.remove(removed);
+        }
+        return removed;
+    }
+
+    private void replaceAt(int index, Task replacement) {
+        Task replaced = tasks.set(index, replacement);
+        if (keywordIndex != null) {
+            keywordIndex.replace(replaced, replacement);
+        }
+        if (dateIndex != null) {
+            dateIndex.replace(replaced, replacement);
+        }
+        if (taskCounts != null) {
+            taskCounts.replace(replaced, replacement);
+        }
+    }
+
+    private void indexAdded(Task task) {
+        if (keywordIndex != null) {
+            keywordIndex.add(task);
+        }
+        if (dateIndex != null) {
+            dateIndex.add(task);
+        }
+        if (taskCounts != null) {
+            taskCounts.add(task);
+        }
+    }
+
+    /**
+     * Copies the list if a snapshot still holds it. Must hold the write lock.
+     */
+    private void beforeChange() {
+        if (isShared) {
+            tasks = tasks.copy();
+            isShared = false;
+        }
+    }
+
+    /**
+     * Retires the snapshot of the previous version. Must hold the write lock.
+     */
+    private void afterChange() {
+        version++;
+        size = tasks.size();
+        published = null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,415 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A "find" query made of filters such as {@code type:deadline done:no after:2025-09-01
+ * before:2025-10-01 text:report}, all of which a task must pass.
+ *
+ * A query is parsed once into its clauses, which are then run against a list as follows. Each
+ * clause first says how many tasks it could let through, from whichever index can tell: the
+ * type counts for {@code type:} and {@code done:}, the date index for dates and the keyword
+ * index for text. The most selective clause that an index can answer outright fetches its
+ * tasks, and the others are checked on just those, most selective first, so that the fewest
+ * tasks are looked at. Only a query with no such clause, or none narrower than the whole list,
+ * scans every task.
+ */
+public final class TaskQuery {
+    /** Bounds for a date range left open on one side, within what {@link LocalDate} can shift */
+    private static final LocalDate EARLIEST = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+    private static final Set<String> KEYS = Set.of("type", "done", "before", "after", "text");
+
+    private final List<Clause> clauses;
+    private final boolean hasText;
+    private final boolean hasDates;
+
+    private TaskQuery(List<Clause> clauses) {
+        this.clauses = clauses;
+        this.hasText = clauses.stream().anyMatch(c -> c instanceof TextClause);
+        this.hasDates = clauses.stream().anyMatch(c -> c instanceof DateClause);
+    }
+
+    /**
+     * A filter that a task must pass.
+     */
+    private abstract static class Clause {
+        /** Describes the filter for the explanation of a query */
+        abstract String describe();
+
+        /** Names what the estimate comes from */
+        abstract String source();
+
+        /** Returns how many tasks at most pass the filter, without checking them one by one */
+        abstract int estimate(Run run);
+
+        /** Returns the tasks that pass in list order, or null if no index can list them */
+        List<Task> lookup(Run run) {
+            return null;
+        }
+
+        abstract boolean test(Task task);
+    }
+
+    private static final class TypeClause extends Clause {
+        private static final String[] NAMES = {"todo", "deadline", "event"};
+        final int type;
+
+        TypeClause(int type) {
+            this.type = type;
+        }
+
+        @Override
+        String describe() {
+            return "type " + NAMES[type];
+        }
+
+        @Override
+        String source() {
+            return "type counts";
+        }
+
+        @Override
+        int estimate(Run run) {
+            return run.counts.count(type, TaskCounts.ANY);
+        }
+
+        @Override
+        boolean test(Task task) {
+            return TaskCounts.typeOf(task) == type;
+        }
+    }
+
+    private static final class DoneClause extends Clause {
+        final boolean isDone;
+
+        DoneClause(boolean isDone) {
+            this.isDone = isDone;
+        }
+
+        @Override
+        String describe() {
+            return isDone ? "done" : "not done";
+        }
+
+        @Override
+        String source() {
+            return "type counts";
+        }
+
+        @Override
+        int estimate(Run run) {
+            return run.counts.count(TaskCounts.ANY, isDone ? 1 : 0);
+        }
+
+        @Override
+        boolean test(Task task) {
+            return task.isDone() == isDone;
+        }
+    }
+
+    private static final class DateClause extends Clause {
+        /** Inclusive bounds, {@link #EARLIEST} or {@link #LATEST} where left open */
+        final LocalDate from;
+        final LocalDate to;
+
+        DateClause(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        String describe() {
+            if (from.equals(EARLIEST)) {
+                return "dates before " + to.plusDays(1);
+            }
+            return to.equals(LATEST) ? "dates from " + from : "dates " + from + " to " + to;
+        }
+
+        @Override
+        String source() {
+            return "date index";
+        }
+
+        /** Exact, since the lookup it takes is as cheap as an estimate would be */
+        @Override
+        int estimate(Run run) {
+            return run.lookup(this).size();
+        }
+
+        @Override
+        List<Task> lookup(Run run) {
+            List<Task> found = new ArrayList<>();
+            for (DateIndex.Entry entry : run.dates.overlapping(from, to)) {
+                // A series overlaps the range as a whole but may have no occurrence within it
+                if (entry.occurrencesBetween(from, to) != null) {
+                    found.add(entry.task);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        boolean test(Task task) {
+            return DateIndex.occupies(task, from, to);
+        }
+    }
+
+    private static final class TextClause extends Clause {
+        final String words;
+        final Set<String> tokens;
+
+        TextClause(String words) {
+            this.words = words;
+            this.tokens = KeywordIndex.tokenize(words);
+        }
+
+        @Override
+        String describe() {
+            return "text \"" + words + "\"";
+        }
+
+        @Override
+        String source() {
+            return "keyword index";
+        }
+
+        @Override
+        int estimate(Run run) {
+            return run.keywords.estimate(words);
+        }
+
+        @Override
+        List<Task> lookup(Run run) {
+            return run.keywords.find(words);
+        }
+
+        @Override
+        boolean test(Task task) {
+            return KeywordIndex.matches(task, tokens);
+        }
+    }
+
+    /**
+     * What one run of a query reads, along with the index lookups it has made so far.
+     */
+    private static final class Run {
+        final TaskCounts counts;
+        final KeywordIndex keywords;
+        final DateIndex dates;
+        private final Map<Clause, List<Task>> lookups = new HashMap<>();
+
+        Run(TaskCounts counts, KeywordIndex keywords, DateIndex dates) {
+            this.counts = counts;
+            this.keywords = keywords;
+            this.dates = dates;
+        }
+
+        List<Task> lookup(Clause clause) {
+            return lookups.computeIfAbsent(clause, c -> c.lookup(this));
+        }
+    }
+
+    /**
+     * Returns whether {@code input} uses any of the filters of a query, as opposed to being
+     * plain keywords.
+     *
+     * @param input What follows "find".
+     */
+    public static boolean isQuery(String input) {
+        for (String word : input.trim().split("\\s+")) {
+            int colon = word.indexOf(':');
+            if (colon > 0 && KEYS.contains(word.substring(0, colon).toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a query. Words without a filter name are searched for as with {@code text:}.
+     * {@code after:} includes the day given and {@code before:} does not.
+     *
+     * @param input The filters, separated by spaces.
+     * @return The query.
+     * @throws YapperException If a filter has a value it does not understand.
+     */
+    public static TaskQuery parse(String input) throws YapperException {
+        List<Clause> clauses = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        LocalDate from = EARLIEST;
+        LocalDate before = null;
+        for (String word : input.trim().split("\\s+")) {
+            int colon = word.indexOf(':');
+            String key = colon > 0 ? word.substring(0, colon).toLowerCase(Locale.ROOT) : "";
+            if (!KEYS.contains(key)) {
+                text.append(text.length() == 0 ? "" : " ").append(word);
+                continue;
+            }
+            String value = word.substring(colon + 1).toLowerCase(Locale.ROOT);
+            if (value.isEmpty()) {
+                throw new YapperException("Hellloo? You left " + key + ": empty!");
+            }
+            switch (key) {
+            case "type":
+                clauses.add(new TypeClause(parseType(value)));
+                break;
+            case "done":
+                clauses.add(new DoneClause(parseDone(value)));
+                break;
+            case "after":
+                LocalDate after = parseDay(key, value);
+                from = after.isAfter(from) ? after : from;
+                break;
+            case "before":
+                LocalDate day = parseDay(key, value);
+                before = before == null || day.isBefore(before) ? day : before;
+                break;
+            default:
+                text.append(text.length() == 0 ? "" : " ").append(value);
+                break;
+            }
+        }
+
+        LocalDate to = before == null ? LATEST : before.minusDays(1);
+        if (to.isBefore(from)) {
+            throw new YapperException("Nothing can be after " + from + " and before " + before + "!");
+        }
+        if (!from.equals(EARLIEST) || !to.equals(LATEST)) {
+            clauses.add(new DateClause(from, to));
+        }
+        if (text.length() > 0) {
+            clauses.add(new TextClause(text.toString()));
+        }
+        if (clauses.isEmpty()) {
+            throw new YapperException("Stop clowning and include a keyword for me to search for");
+        }
+        return new TaskQuery(clauses);
+    }
+
+    private static int parseType(String value) throws YapperException {
+        switch (value) {
+        case "todo":
+        case "todos":
+        case "t":
+            return TaskCounts.TODO;
+        case "deadline":
+        case "deadlines":
+        case "d":
+            return TaskCounts.DEADLINE;
+        case "event":
+        case "events":
+        case "e":
+            return TaskCounts.EVENT;
+        default:
+            throw new YapperException("Girl what's a " + value + "? Try type:todo, type:deadline or type:event.");
+        }
+    }
+
+    private static boolean parseDone(String value) throws YapperException {
+        switch (value) {
+        case "yes":
+        case "y":
+        case "true":
+            return true;
+        case "no":
+        case "n":
+        case "false":
+            return false;
+        default:
+            throw new YapperException("Is it done or not? Try done:yes or done:no.");
+        }
+    }
+
+    private static LocalDate parseDay(String key, String value) throws YapperException {
+        LocalDate day = DateParser.parseDate(value);
+        if (day == null || day.isBefore(EARLIEST) || day.isAfter(LATEST)) {
+            throw new YapperException("Girl I couldn't understand that date. Try yyyy-MM-dd or d/M/yyyy, e.g. "
+                    + key + ":2025-10-01");
+        }
+        return day;
+    }
+
+    boolean hasText() {
+        return hasText;
+    }
+
+    boolean hasDates() {
+        return hasDates;
+    }
+
+    /**
+     * Runs the query against a list. Must hold the list's read lock.
+     *
+     * @param tasks The tasks in the list.
+     * @param counts The list's type counts.
+     * @param keywords The list's keyword index, if the query has text to look for.
+     * @param dates The list's date index, if the query has dates.
+     * @param explain Receives a line for each step taken, or null.
+     * @return The tasks that pass every clause, in list order.
+     */
+    List<Task> execute(List<Task> tasks, TaskCounts counts, KeywordIndex keywords, DateIndex dates,
+            Consumer<String> explain) {
+        Run run = new Run(counts, keywords, dates);
+        Map<Clause, Integer> estimates = new HashMap<>();
+        for (Clause clause : clauses) {
+            estimates.put(clause, clause.estimate(run));
+        }
+        List<Clause> ordered = new ArrayList<>(clauses);
+        ordered.sort(Comparator.comparing(estimates::get));
+        if (explain != null) {
+            explain.accept("Each filter lets through at most:");
+            for (Clause clause : ordered) {
+                explain.accept("  " + clause.describe() + ": " + estimates.get(clause) + " (" + clause.source() + ")");
+            }
+        }
+
+        // Fetch from an index only if that beats reading the whole list
+        Clause driver = null;
+        for (Clause clause : ordered) {
+            if (estimates.get(clause) < tasks.size() && run.lookup(clause) != null) {
+                driver = clause;
+                break;
+            }
+        }
+        List<Task> found;
+        int step = 1;
+        if (driver != null) {
+            found = run.lookup(driver);
+            ordered.remove(driver);
+            log(explain, step++ + ". Looked up " + driver.describe() + " in the " + driver.source() + ": "
+                    + found.size() + " tasks");
+        } else {
+            found = tasks;
+            log(explain, step++ + ". Read all " + tasks.size() + " tasks");
+        }
+        int looked = found.size();
+        for (Clause clause : ordered) {
+            List<Task> kept = new ArrayList<>();
+            for (Task task : found) {
+                if (clause.test(task)) {
+                    kept.add(task);
+                }
+            }
+            found = kept;
+            log(explain, step++ + ". Checked " + clause.describe() + " on each: " + found.size() + " left");
+        }
+        log(explain, "Found " + found.size() + " of " + tasks.size() + " tasks, looking at " + looked + " of them.");
+        return found;
+    }
+
+    private static void log(Consumer<String> explain, String line) {
+        if (explain != null) {
+            explain.accept(line);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package taskmanager;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * An immutable view of a {@link TaskList} as it was at one version. It can be read from any
+ * thread while the list goes on changing, and neither the snapshot nor its tasks ever change.
+ */
+public final class TaskSnapshot extends AbstractList<Task> implements RandomAccess {
+    private final LazyTaskList tasks;
+    private final long version;
+
+    TaskSnapshot(LazyTaskList tasks, long version) {
+        tasks.freeze();
+        this.tasks = tasks;
+        this.version = version;
+    }
+
+    /**
+     * Returns the version of the task list this snapshot was taken at. A snapshot with a
+     * larger version reflects every change made before it.
+     */
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public Task get(int index) {
+        return tasks.get(index);
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    /**
+     * Returns the list backing this snapshot, for writing it out without decoding.
+     */
+    LazyTaskList tasks() {
+        return tasks;
+    }
+}
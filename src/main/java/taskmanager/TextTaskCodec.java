@@ -0,0 +1,236 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The original human-readable format: one {@code "#id Type | isDone | Description | ..."} line
+ * per task, preceded by a {@code "# seq=N next=M"} header line. The journal sequence number is
+ * only present when the file is paired with a journal. Files written before tasks had ids have
+ * neither the id prefix nor {@code next}, and their tasks are numbered in order on loading.
+ * A recurring deadline or event has its rule as one more field after its dates, e.g.
+ * {@code "| every=2w until=2025-06-30"}.
+ */
+final class TextTaskCodec implements TaskCodec {
+    static final TextTaskCodec INSTANCE = new TextTaskCodec();
+    private static final String HEADER = "# ";
+    private static final String SEQ_KEY = "seq=";
+    private static final String NEXT_ID_KEY = "next=";
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private TextTaskCodec() { }
+
+    @Override
+    public byte[] encode(Task task) {
+        return formatLine(task).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Task decode(ByteBuffer buffer, int start, int length) throws YapperException {
+        return parseLine(text(buffer, start, length));
+    }
+
+    @Override
+    public void index(ByteBuffer buffer, LazyTaskList list) throws YapperException {
+        int limit = buffer.limit();
+        int pos = 0;
+        boolean isFirstLine = true;
+        while (pos < limit) {
+            int end = pos;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            int start = pos;
+            int stop = end;
+            while (start < stop && isBlank(buffer.get(start))) {
+                start++;
+            }
+            while (stop > start && isBlank(buffer.get(stop - 1))) {
+                stop--;
+            }
+
+            if (stop > start) {
+                if (isFirstLine && stop - start >= 2 && buffer.get(start) == '#' && buffer.get(start + 1) == ' ') {
+                    readHeader(text(buffer, start, stop - start), list);
+                } else {
+                    indexRecord(buffer, start, stop, list);
+                }
+                isFirstLine = false;
+            }
+            pos = end + 1;
+        }
+    }
+
+    @Override
+    public byte[] header(long seq, int nextId) {
+        String header = HEADER + (seq != NO_SEQ ? SEQ_KEY + seq + " " : "") + NEXT_ID_KEY + nextId;
+        return (header + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int writeRecord(OutputStream out, byte[] record) throws IOException {
+        out.write(record);
+        out.write(NEWLINE);
+        return 0;
+    }
+
+    @Override
+    public int trailerLength() {
+        return NEWLINE.length;
+    }
+
+    /**
+     * The flag follows the id prefix and the type, e.g. the {@code 0} in {@code "#12 T | 0 | ..."}.
+     */
+    @Override
+    public int doneFlagOffset(Task task) {
+        int prefix = task.getId() > 0 ? Integer.toString(task.getId()).length() + 2 : 0;
+        return prefix + "T | ".length();
+    }
+
+    @Override
+    public byte doneFlag(Task task, boolean isDone) {
+        return (byte) (isDone ? '1' : '0');
+    }
+
+    /**
+     * Blank lines are skipped on loading, so a record overwritten with spaces disappears.
+     */
+    @Override
+    public byte[] tombstone(int length) {
+        byte[] spaces = new byte[length];
+        Arrays.fill(spaces, (byte) ' ');
+        return spaces;
+    }
+
+    /**
+     * Formats a task as one line of the data file, prefixed with its id if it has one.
+     *
+     * @param task The task to format.
+     * @return The line, without a line separator.
+     */
+    static String formatLine(Task task) {
+        return task.getId() > 0 ? "#" + task.getId() + " " + task.toFileString() : task.toFileString();
+    }
+
+    /**
+     * Parses a single line from the data file and creates a Task object.
+     * The line format is expected to be "#id Type | isDone | Description | ...", where the
+     * id prefix is optional.
+     *
+     * @param line The string line to be parsed.
+     * @return A Task object corresponding to the parsed line, with its id if the line had one.
+     * @throws YapperException If the task type or id is invalid.
+     */
+    static Task parseLine(String line) throws YapperException {
+        int id = 0;
+        if (line.startsWith("#")) {
+            int space = line.indexOf(' ');
+            id = (int) parseNumber(space < 0 ? line.substring(1) : line.substring(1, space), line, Integer.MAX_VALUE);
+            line = space < 0 ? "" : line.substring(space + 1);
+        }
+        Task task = parseFields(line);
+        task.id = id;
+        return task;
+    }
+
+    private static Task parseFields(String line) throws YapperException {
+        String[] parts = line.split(" \\| ");
+        assert parts.length >= 3 : "Malformed line (need at least type, isDone, description)";
+
+        String type = parts[0];
+        boolean isDone = parts[1].equals("1");
+
+        switch (type) {
+        case "T":
+            ToDo todo = new ToDo(parts[2]);
+            if (isDone) todo.markDone();
+            return todo;
+        case "D":
+            Deadline deadline = new Deadline(parts[2], parts[3]);
+            if (isDone) deadline.markDone();
+            if (parts.length > 4) deadline.recurrence = Recurrence.fromFileString(parts[4]);
+            return deadline;
+        case "E":
+            Event event = new Event(parts[2], parts[3], parts[4]);
+            if (isDone) event.markDone();
+            if (parts.length > 5) event.recurrence = Recurrence.fromFileString(parts[5]);
+            return event;
+        default:
+            throw new YapperException("Invalid task type! Task type was recognised as: " + type);
+        }
+    }
+
+    /**
+     * Registers one record line, reading the id prefix if there is one.
+     */
+    private static void indexRecord(ByteBuffer buffer, int start, int stop, LazyTaskList list)
+            throws YapperException {
+        long id = 0;
+        int typeAt = start;
+        if (buffer.get(start) == '#') {
+            typeAt = start + 1;
+            while (typeAt < stop && isDigit(buffer.get(typeAt)) && id <= Integer.MAX_VALUE) {
+                id = id * 10 + (buffer.get(typeAt) - '0');
+                typeAt++;
+            }
+            if (typeAt == start + 1 || typeAt >= stop || buffer.get(typeAt) != ' ' || id > Integer.MAX_VALUE) {
+                throw new YapperException("Invalid task id! Task line was: " + text(buffer, start, stop - start));
+            }
+            typeAt++;
+        }
+        byte type = typeAt < stop ? buffer.get(typeAt) : 0;
+        if (type != 'T' && type != 'D' && type != 'E') {
+            throw new YapperException("Invalid task type! Task line was: " + text(buffer, start, stop - start));
+        }
+        list.appendSpan(start, stop - start, (int) id);
+    }
+
+    /**
+     * Reads a {@code "# seq=N next=M"} header, where either key may be missing.
+     */
+    private static void readHeader(String header, LazyTaskList list) throws YapperException {
+        long seq = NO_SEQ;
+        long nextId = 1;
+        for (String field : header.substring(HEADER.length()).trim().split("\\s+")) {
+            if (field.startsWith(SEQ_KEY)) {
+                seq = parseNumber(field.substring(SEQ_KEY.length()), header, Long.MAX_VALUE);
+            } else if (field.startsWith(NEXT_ID_KEY)) {
+                nextId = parseNumber(field.substring(NEXT_ID_KEY.length()), header, Integer.MAX_VALUE);
+            } else {
+                throw new YapperException("Corrupted data file header: " + header);
+            }
+        }
+        list.setHeader(seq, (int) nextId);
+    }
+
+    private static long parseNumber(String digits, String context, long max) throws YapperException {
+        try {
+            long value = Long.parseLong(digits);
+            if (value < 0 || value > max) {
+                throw new NumberFormatException(digits);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new YapperException("Corrupted data file entry: " + context);
+        }
+    }
+
+    private static String text(ByteBuffer buffer, int start, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
@@ -0,0 +1,276 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The changes made to a {@link TaskList}, grouped into steps that can be undone and redone.
+ *
+ * A step keeps only what its changes need to be reversed: the task added or removed, or the
+ * task before and after it was replaced. Since tasks are never changed in place, these are the
+ * very objects the list held, so keeping them costs little beyond the tasks deleted. The oldest
+ * steps are forgotten once the estimated size of everything kept passes the budget.
+ *
+ * Not thread-safe; the task list only touches it while holding its write lock.
+ */
+public final class UndoHistory {
+    /** Estimated bytes of history kept by default */
+    public static final long DEFAULT_BUDGET_BYTES = 4L << 20;
+    /** Rough size of a change and its bookkeeping, besides the text of its tasks */
+    private static final int CHANGE_OVERHEAD_BYTES = 96;
+
+    static final char ADDED = 'A';
+    static final char REMOVED = 'X';
+    static final char REPLACED = 'R';
+
+    private final long budgetBytes;
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    private long keptBytes;
+    /** The step that changes are added to, or null if the next change starts its own */
+    private Step openStep;
+    private String openLabel;
+    private boolean isGrouping;
+
+    /**
+     * One change to the list.
+     */
+    static final class Change {
+        final char kind;
+        /** The task added or removed, or the task before it was replaced */
+        final Task task;
+        /** The task after it was replaced; null for other kinds */
+        final Task replacement;
+
+        Change(char kind, Task task, Task replacement) {
+            this.kind = kind;
+            this.task = task;
+            this.replacement = replacement;
+        }
+
+        long estimatedBytes() {
+            return CHANGE_OVERHEAD_BYTES + 2L * (task.getDescription().length()
+                    + (replacement == null ? 0 : replacement.getDescription().length()));
+        }
+    }
+
+    /**
+     * The changes made by one command.
+     */
+    static final class Step {
+        final String label;
+        final List<Change> changes = new ArrayList<>();
+        long bytes;
+        /** Set once the step no longer fits the budget, so that its later changes are dropped */
+        boolean isForgotten;
+
+        Step(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * What undoing or redoing a step did to the list, for saving it and telling the user.
+     */
+    public static final class Applied {
+        /** The command the step was made by, e.g. "delete 3" */
+        public final String label;
+        /** Tasks put back into the list */
+        public final List<Task> restored = new ArrayList<>();
+        /** Tasks taken out of the list */
+        public final List<Task> removed = new ArrayList<>();
+        /** Tasks now in the list in place of other versions of themselves */
+        public final List<Task> replaced = new ArrayList<>();
+
+        Applied(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Creates an empty history.
+     *
+     * @param budgetBytes Roughly how many bytes of steps to keep before forgetting the oldest.
+     */
+    public UndoHistory(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Groups the following changes into a single step until {@link #endStep}.
+     *
+     * @param label Describes the step, e.g. the command that makes it.
+     */
+    void beginStep(String label) {
+        openStep = null;
+        openLabel = label;
+        isGrouping = true;
+    }
+
+    void endStep() {
+        openStep = null;
+        openLabel = null;
+        isGrouping = false;
+    }
+
+    /**
+     * Records a change made to the list, which makes anything undone so far final.
+     */
+    void record(char kind, Task task, Task replacement) {
+        if (!redoSteps.isEmpty()) {
+            for (Step step : redoSteps) {
+                keptBytes -= step.bytes;
+            }
+            redoSteps.clear();
+        }
+        if (openStep == null) {
+            openStep = new Step(openLabel);
+            undoSteps.push(openStep);
+        }
+        if (openStep.isForgotten) {
+            return;
+        }
+        Change change = new Change(kind, task, replacement);
+        long bytes = change.estimatedBytes();
+        openStep.changes.add(change);
+        openStep.bytes += bytes;
+        keptBytes += bytes;
+        if (!isGrouping) {
+            openStep = null;
+        }
+        trimToBudget();
+    }
+
+    boolean canUndo() {
+        return !undoSteps.isEmpty();
+    }
+
+    boolean canRedo() {
+        return !redoSteps.isEmpty();
+    }
+
+    /**
+     * Removes and returns the most recent step, which is then redoable once the caller has
+     * reversed it and passed it to {@link #pushRedo}.
+     */
+    Step popUndo() {
+        endStep();
+        return undoSteps.pop();
+    }
+
+    void pushRedo(Step step) {
+        redoSteps.push(step);
+    }
+
+    Step popRedo() {
+        endStep();
+        return redoSteps.pop();
+    }
+
+    void pushUndo(Step step) {
+        undoSteps.push(step);
+    }
+
+    /**
+     * Forgets every step, e.g. once the list no longer matches them.
+     */
+    void clear() {
+        undoSteps.clear();
+        redoSteps.clear();
+        keptBytes = 0;
+        endStep();
+    }
+
+    /**
+     * Forgets the oldest steps until the rest fit the budget. A single step larger than the
+     * budget is forgotten too, along with any changes still to be added to it.
+     */
+    private void trimToBudget() {
+        while (keptBytes > budgetBytes && !(undoSteps.isEmpty() && redoSteps.isEmpty())) {
+            Step oldest = undoSteps.isEmpty() ? redoSteps.removeLast() : undoSteps.removeLast();
+            keptBytes -= oldest.bytes;
+            oldest.isForgotten = true;
+            oldest.changes.clear();
+        }
+    }
+
+    /**
+     * Encodes the history as lines of text: each step as a line {@code "S u label"} or
+     * {@code "S r label"}, for undo and redo, followed by one line per change holding its kind
+     * and the task as written in the data file. A replacement follows on a line of its own.
+     * Undo steps come oldest first, then redo steps from the farthest.
+     */
+    List<String> encode() {
+        List<String> lines = new ArrayList<>();
+        Iterator<Step> undo = undoSteps.descendingIterator();
+        while (undo.hasNext()) {
+            encodeStep(undo.next(), 'u', lines);
+        }
+        Iterator<Step> redo = redoSteps.descendingIterator();
+        while (redo.hasNext()) {
+            encodeStep(redo.next(), 'r', lines);
+        }
+        return lines;
+    }
+
+    private static void encodeStep(Step step, char stack, List<String> lines) {
+        lines.add("S " + stack + " " + (step.label == null ? "" : step.label.replace('\n', ' ')));
+        for (Change change : step.changes) {
+            lines.add(change.kind + " " + TextTaskCodec.formatLine(change.task));
+            if (change.replacement != null) {
+                lines.add("= " + TextTaskCodec.formatLine(change.replacement));
+            }
+        }
+    }
+
+    /**
+     * Replaces the history with the one {@code lines} encode.
+     *
+     * @throws YapperException If the lines are malformed.
+     */
+    void decode(List<String> lines) throws YapperException {
+        clear();
+        List<Step> undo = new ArrayList<>();
+        List<Step> redo = new ArrayList<>();
+        Step step = null;
+        for (String line : lines) {
+            if (line.length() < 2 || line.charAt(1) != ' ') {
+                throw new YapperException("Malformed undo history line: " + line);
+            }
+            char kind = line.charAt(0);
+            String rest = line.substring(2);
+            if (kind == 'S' && rest.length() >= 2) {
+                step = new Step(rest.length() > 2 ? rest.substring(2) : null);
+                (rest.charAt(0) == 'r' ? redo : undo).add(step);
+            } else if (step != null && (kind == ADDED || kind == REMOVED || kind == REPLACED)) {
+                step.changes.add(new Change(kind, TextTaskCodec.parseLine(rest), null));
+            } else if (kind == '=' && step != null && !step.changes.isEmpty()) {
+                Change last = step.changes.remove(step.changes.size() - 1);
+                step.changes.add(new Change(last.kind, last.task, TextTaskCodec.parseLine(rest)));
+            } else {
+                throw new YapperException("Malformed undo history line: " + line);
+            }
+        }
+        Collections.reverse(redo);
+        for (Step s : undo) {
+            undoSteps.push(measure(s));
+        }
+        for (Step s : redo) {
+            redoSteps.addLast(measure(s));
+        }
+        trimToBudget();
+    }
+
+    private Step measure(Step step) {
+        for (Change change : step.changes) {
+            step.bytes += change.estimatedBytes();
+        }
+        keptBytes += step.bytes;
+        return step;
+    }
+}
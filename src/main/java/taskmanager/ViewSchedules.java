@@ -1,25 +1,38 @@
 package taskmanager;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.DayOfWeek;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * Utility to build a human-friendly, time-ordered schedule view
- * for a specific date from the existing TaskList.
+ * for a specific date or range of dates from the existing TaskList.
  *
  * - Deadlines that fall on the given date
  * - Events that intersect the given date (multi-day supported)
+ * - Only the occurrences of recurring deadlines and events that fall in the dates shown
  * - Orders by time; "time unknown" items are listed last
  * - Marks done items with " (done)".
  */
 public final class ViewSchedules {
 
+    /** Longest range, in days, that a single schedule view may cover */
+    public static final int MAX_RANGE_DAYS = 366;
+    /** Days fetched at a time when looking for free time */
+    private static final int FREE_CHUNK_DAYS = 7;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
     private ViewSchedules() { }
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -52,107 +65,265 @@ public final class ViewSchedules {
      * @return A string representation of the schedule.
      */
     public static String forDate(TaskList taskList, LocalDate date) {
-        List<Block> blocks = buildBlocks(taskList, date);
-        sortBlocks(blocks);
-        return formatSchedule(date, blocks);
+        StringJoiner out = new StringJoiner("\n\n");
+        renderRange(taskList, date, date, true, out::add);
+        return out.toString();
     }
 
     /**
-     * Builds schedule blocks for tasks that are relevant to the date.
+     * Forms a display of the user's schedule for every day in {@code [from, to]} that has
+     * anything scheduled.
      *
-     * @param taskList The list of tasks.
-     * @param date The date to consider.
-     * @return A list of blocks for rendering.
+     * @param taskList The list of tasks to render.
+     * @param from The first date, inclusive.
+     * @param to The last date, inclusive, at most {@link #MAX_RANGE_DAYS} days after {@code from}.
+     * @return A string representation of the schedule.
      */
-    private static List<Block> buildBlocks(TaskList taskList, LocalDate date) {
-        List<Block> blocks = new ArrayList<>();
-        for (Task t : taskList.getTasks()) {
-            addBlocksForTask(t, date, blocks);
+    public static String forRange(TaskList taskList, LocalDate from, LocalDate to) {
+        StringJoiner out = new StringJoiner("\n\n");
+        if (!renderRange(taskList, from, to, false, out::add)) {
+            return "No scheduled items from " + from.format(DATE_FMT) + " to " + to.format(DATE_FMT) + ".";
         }
-        return blocks;
+        return out.toString();
     }
 
     /**
-     * Adds zero or more blocks for a single task depending on its type and timing.
+     * Forms a display of the user's schedule for the Monday-to-Sunday week containing
+     * {@code date}, listing every day of the week.
      *
-     * @param task The task to convert.
-     * @param date The date to consider.
+     * @param taskList The list of tasks to render.
+     * @param date Any date in the week.
+     * @return A string representation of the schedule.
+     */
+    public static String forWeek(TaskList taskList, LocalDate date) {
+        LocalDate monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate sunday = monday.plusDays(6);
+        StringJoiner out = new StringJoiner("\n\n");
+        out.add("Week of " + monday.format(DATE_FMT) + " to " + sunday.format(DATE_FMT));
+        renderRange(taskList, monday, sunday, true, out::add);
+        return out.toString();
+    }
+
+    /**
+     * Forms a display of the user's schedule for the calendar month containing {@code date},
+     * listing only the days that have anything scheduled.
+     *
+     * @param taskList The list of tasks to render.
+     * @param date Any date in the month.
+     * @return A string representation of the schedule.
+     */
+    public static String forMonth(TaskList taskList, LocalDate date) {
+        LocalDate first = date.withDayOfMonth(1);
+        LocalDate last = date.with(TemporalAdjusters.lastDayOfMonth());
+        StringJoiner out = new StringJoiner("\n\n");
+        out.add(titleCase(date.getMonth().toString()) + " " + date.getYear());
+        if (!renderRange(taskList, first, last, false, out::add)) {
+            out.add("No scheduled items this month.");
+        }
+        return out.toString();
+    }
+
+    /**
+     * Renders the schedule of each day in {@code [from, to]} and hands the days to {@code out}
+     * one at a time, in date order, so callers can stream them.
+     *
+     * Each day's blocks are sorted once, just before the day is rendered.
+     *
+     * @param taskList The list of tasks to render.
+     * @param from The first date, inclusive.
+     * @param to The last date, inclusive, at most {@link #MAX_RANGE_DAYS} days after {@code from}.
+     * @param includeEmptyDays Whether days with nothing scheduled are rendered too.
+     * @param out Receives the rendered schedule of each day.
+     * @return Whether anything is scheduled in the range.
+     */
+    public static boolean renderRange(TaskList taskList, LocalDate from, LocalDate to,
+                                      boolean includeEmptyDays, Consumer<String> out) {
+        List<List<Block>> buckets = bucketsBetween(taskList, from, to);
+        boolean hasAny = false;
+        for (int i = 0; i < buckets.size(); i++) {
+            List<Block> blocks = buckets.get(i);
+            hasAny |= blocks != null;
+            if (blocks == null && !includeEmptyDays) {
+                continue;
+            }
+            if (blocks == null) {
+                blocks = Collections.emptyList();
+            }
+            sortBlocks(blocks);
+            out.accept(formatSchedule(from.plusDays(i), blocks));
+        }
+        return hasAny;
+    }
+
+    /**
+     * Finds the free stretches of at least {@code length} within the daily window
+     * {@code [windowStart, windowEnd)} of each day in {@code [from, to]}, earliest first, and
+     * hands each to {@code out} as it is found, until {@code limit} have been.
+     *
+     * Time is busy while a timed event runs, and a timed deadline splits the time around it, so
+     * that no free stretch spans a deadline. The days are fetched a week at a time and each
+     * day's blocks are merged in one pass after sorting, so a search that finds its slots early
+     * never looks at the rest of the range.
+     *
+     * @param taskList The list of tasks to look through.
+     * @param from The first date, inclusive.
+     * @param to The last date, inclusive.
+     * @param length The shortest stretch worth reporting.
+     * @param windowStart The earliest time of day to consider.
+     * @param windowEnd The time of day to stop at, or {@link LocalTime#MAX} for midnight.
+     * @param limit The most stretches to report.
+     * @param out Receives each free stretch, described with its date and times.
+     * @return How many free stretches were reported.
+     */
+    public static int findFree(TaskList taskList, LocalDate from, LocalDate to, Duration length,
+                               LocalTime windowStart, LocalTime windowEnd, int limit, Consumer<String> out) {
+        int found = 0;
+        long minutes = length.toMinutes();
+        int windowEndMinute = minuteOf(windowEnd);
+        for (LocalDate chunk = from; !chunk.isAfter(to) && found < limit; chunk = chunk.plusDays(FREE_CHUNK_DAYS)) {
+            LocalDate chunkEnd = chunk.plusDays(FREE_CHUNK_DAYS - 1);
+            List<List<Block>> buckets = bucketsBetween(taskList, chunk, chunkEnd.isAfter(to) ? to : chunkEnd);
+            for (int i = 0; i < buckets.size() && found < limit; i++) {
+                List<Block> blocks = buckets.get(i) == null ? Collections.emptyList() : buckets.get(i);
+                sortBlocks(blocks);
+                int cursor = minuteOf(windowStart);
+                for (Block b : blocks) {
+                    if (b.start == null) {
+                        continue; // untimed tasks occupy no particular time
+                    }
+                    int busyStart = minuteOf(b.start);
+                    int gapEnd = Math.min(busyStart, windowEndMinute);
+                    if (gapEnd - cursor >= minutes && found < limit) {
+                        out.accept(formatFree(chunk.plusDays(i), cursor, gapEnd));
+                        found++;
+                    }
+                    cursor = Math.max(cursor, b.end == null ? busyStart : minuteOf(b.end));
+                    if (cursor >= windowEndMinute) {
+                        break;
+                    }
+                }
+                if (windowEndMinute - cursor >= minutes && found < limit) {
+                    out.accept(formatFree(chunk.plusDays(i), cursor, windowEndMinute));
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the blocks of each day in {@code [from, to]}, unsorted, with {@code null} for
+     * days that have nothing scheduled.
+     *
+     * The tasks are fetched with a single range query and bucketed into per-day lists in one
+     * pass, splitting multi-day events into one block per day. A recurring task is expanded
+     * into only the occurrences that overlap the range, which its rule finds without counting
+     * through the ones before.
+     */
+    private static List<List<Block>> bucketsBetween(TaskList taskList, LocalDate from, LocalDate to) {
+        long span = ChronoUnit.DAYS.between(from, to) + 1;
+        assert span > 0 && span <= MAX_RANGE_DAYS : "range must cover 1 to MAX_RANGE_DAYS days";
+        List<List<Block>> buckets = new ArrayList<>(Collections.nCopies((int) span, null));
+        for (DateIndex.Entry entry : taskList.scheduledBetween(from, to)) {
+            int[] occurrences = entry.occurrencesBetween(from, to);
+            if (occurrences == null) {
+                continue;
+            }
+            for (int n = occurrences[0]; n <= occurrences[1]; n++) {
+                LocalDate start = entry.startDayOf(n);
+                addOccurrence(entry, n, start, start.plusDays(entry.spanDays), from, to, buckets);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Adds a block for each day of {@code [from, to]} that one occurrence of a task occupies.
+     *
+     * @param entry The indexed task with its resolved days.
+     * @param n The number of the occurrence, 0 if the task does not repeat.
+     * @param start The first day of the occurrence.
+     * @param end The last day of the occurrence.
+     * @param from The first date of the range, inclusive.
+     * @param to The last date of the range, inclusive.
+     * @param buckets The blocks of each day in the range, created as needed.
+     */
+    private static void addOccurrence(DateIndex.Entry entry, int n, LocalDate start, LocalDate end,
+                                         LocalDate from, LocalDate to, List<List<Block>> buckets) {
+        LocalDate first = start.isBefore(from) ? from : start;
+        LocalDate last = end.isAfter(to) ? to : end;
+        int offset = (int) ChronoUnit.DAYS.between(from, first);
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1), offset++) {
+            if (buckets.get(offset) == null) {
+                buckets.set(offset, new ArrayList<>());
+            }
+            addBlocksForEntry(entry, n, day, buckets.get(offset));
+        }
+    }
+
+    /**
+     * Adds the block for an indexed task on a date it occupies.
+     *
+     * @param entry The indexed task with its resolved days.
+     * @param n The number of the occurrence, 0 if the task does not repeat.
+     * @param date The date to consider, which must lie within the occurrence's days.
      * @param out The destination list.
      */
-    private static void addBlocksForTask(Task task, LocalDate date, List<Block> out) {
-        if (task instanceof Deadline) {
-            addBlocksForDeadline((Deadline) task, date, out);
-        } else if (task instanceof Event) {
-            addBlocksForEvent((Event) task, date, out);
+    private static void addBlocksForEntry(DateIndex.Entry entry, int n, LocalDate date, List<Block> out) {
+        if (entry.task instanceof Deadline) {
+            addBlocksForDeadline((Deadline) entry.task, entry, n, out);
+        } else if (entry.task instanceof Event) {
+            addBlocksForEvent((Event) entry.task, entry, n, date, out);
         } else {
-            // ToDo and other non-time-bound tasks are excluded from per-day schedule.
+            // ToDo and other non-time-bound tasks are never indexed.
         }
     }
 
     /**
-     * Adds blocks for a deadline when it falls on the date.
+     * Adds the block for a deadline on its day.
      *
      * @param d The deadline task.
-     * @param date The date to consider.
+     * @param entry The indexed deadline.
+     * @param n The number of the occurrence.
      * @param out The destination list.
      */
-    private static void addBlocksForDeadline(Deadline d, LocalDate date, List<Block> out) {
-        LocalDateTime when = d.duration;
-        if (when != null) {
-            if (when.toLocalDate().isEqual(date)) {
-                out.add(new Block(
-                        when.toLocalTime(),
-                        null,
-                        "[D] " + d.getDescription() + (d.isDone ? " (done)" : "")
-                ));
-            }
-            return;
-        }
-
-        LocalDate parsed = parseDateLenient(d.stringDuration);
-        if (parsed != null && parsed.isEqual(date)) {
+    private static void addBlocksForDeadline(Deadline d, DateIndex.Entry entry, int n, List<Block> out) {
+        if (entry.isTimed) {
             out.add(new Block(
+                    d.duration.toLocalTime(),
                     null,
-                    null,
-                    "[D] " + d.getDescription() + " (time unknown)" + (d.isDone ? " (done)" : "")
+                    "[D] " + d.getDescription() + doneLabel(d, n)
             ));
+            return;
         }
+
+        out.add(new Block(
+                null,
+                null,
+                "[D] " + d.getDescription() + " (time unknown)" + doneLabel(d, n)
+        ));
     }
 
     /**
-     * Adds blocks for an event when it intersects the date.
+     * Adds the block for an event on one of the days it spans.
      *
      * @param e The event task.
+     * @param entry The indexed event.
+     * @param n The number of the occurrence.
      * @param date The date to consider.
      * @param out The destination list.
      */
-    private static void addBlocksForEvent(Event e, LocalDate date, List<Block> out) {
-        LocalDateTime from = e.from;
-        LocalDateTime to = e.to;
-
-        if (from != null && to != null) {
-            addPreciseEventBlock(e, date, out, from, to);
+    private static void addBlocksForEvent(Event e, DateIndex.Entry entry, int n, LocalDate date, List<Block> out) {
+        if (entry.isTimed) {
+            addPreciseEventBlock(e, date, out, e.startOf(n), e.endOf(n), doneLabel(e, n));
             return;
         }
 
-        LocalDate fromDate = parseDateLenient(e.stringFrom);
-        LocalDate toDate = parseDateLenient(e.stringTo);
-
-        if (fromDate != null && toDate != null) {
-            if (intersects(date, fromDate, toDate)) {
-                out.add(new Block(
-                        null,
-                        null,
-                        "[E] " + e.getDescription() + " (time unknown)" + (e.isDone ? " (done)" : "")
-                ));
-            }
-        } else if (fromDate != null && fromDate.isEqual(date)) {
-            out.add(new Block(
-                    null,
-                    null,
-                    "[E] " + e.getDescription() + " (time unknown)" + (e.isDone ? " (done)" : "")
-            ));
-        }
+        out.add(new Block(
+                null,
+                null,
+                "[E] " + e.getDescription() + " (time unknown)" + doneLabel(e, n)
+        ));
     }
 
     /**
@@ -163,9 +334,10 @@ public final class ViewSchedules {
      * @param out The destination list.
      * @param from The start datetime.
      * @param to The end datetime.
+     * @param done The label marking the event done, or an empty string.
      */
     private static void addPreciseEventBlock(Event e, LocalDate date, List<Block> out,
-                                             LocalDateTime from, LocalDateTime to) {
+                                             LocalDateTime from, LocalDateTime to, String done) {
         LocalDate dayOfFrom = from.toLocalDate();
         LocalDate dayOfTo = to.toLocalDate();
 
@@ -174,15 +346,24 @@ public final class ViewSchedules {
         }
 
         LocalTime start = date.isEqual(dayOfFrom) ? from.toLocalTime() : LocalTime.MIN;
-        LocalTime end = date.isEqual(dayOfTo) ? to.toLocalTime() : LocalTime.of(23, 59);
+        // An event running past midnight is busy to the very end of the day, shown as 23:59
+        LocalTime end = date.isEqual(dayOfTo) ? to.toLocalTime() : LocalTime.MAX;
 
         out.add(new Block(
                 start,
                 end,
-                "[E] " + e.getDescription() + (e.isDone ? " (done)" : "")
+                "[E] " + e.getDescription() + done
         ));
     }
 
+    /**
+     * Returns " (done)" if the task, or occurrence {@code n} of it, is done, else an empty string.
+     */
+    private static String doneLabel(Task task, int n) {
+        Recurrence recurrence = task.getRecurrence();
+        return task.isDone || (recurrence != null && recurrence.isDone(n)) ? " (done)" : "";
+    }
+
     /**
      * Determines whether a date intersects a closed date range.
      *
@@ -217,7 +398,7 @@ public final class ViewSchedules {
         StringBuilder sb = new StringBuilder();
         sb.append("Schedule for ")
           .append(date.format(DATE_FMT))
-          .append(" (").append(titleCase(date.getDayOfWeek())).append(")\n");
+          .append(" (").append(titleCase(date.getDayOfWeek().toString())).append(")\n");
         sb.append("-".repeat(40)).append("\n");
 
         if (blocks.isEmpty()) {
@@ -250,39 +431,33 @@ public final class ViewSchedules {
     }
 
     /**
-     * Parses common date formats.
-     *
-     * @param s The input string.
-     * @return The parsed date, or {@code null} if none matches.
+     * Returns the minute of the day a time falls in, counting {@link LocalTime#MAX} as midnight
+     * at the end of the day.
+     */
+    private static int minuteOf(LocalTime time) {
+        return time.equals(LocalTime.MAX) ? MINUTES_PER_DAY : time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Formats a free stretch of a day given by its minutes, e.g. "2025-09-22 (Monday) 09:00–12:30".
      */
-    private static LocalDate parseDateLenient(String s) {
-        if (s == null) return null;
-        String trimmed = s.trim();
-        // Try ISO date first: yyyy-MM-dd
-        try {
-            return LocalDate.parse(trimmed);
-        } catch (Exception ignored) { }
-        // Try d/M/yyyy HHmm
-        try {
-            DateTimeFormatter DMY_TIME = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
-            return LocalDateTime.parse(trimmed, DMY_TIME).toLocalDate();
-        } catch (Exception ignored) { }
-        // Try d/M/yyyy (date only)
-        try {
-            DateTimeFormatter DMY = DateTimeFormatter.ofPattern("d/M/yyyy");
-            return LocalDate.parse(trimmed, DMY);
-        } catch (Exception ignored) { }
-        return null;
+    private static String formatFree(LocalDate date, int fromMinute, int toMinute) {
+        return date.format(DATE_FMT) + " (" + titleCase(date.getDayOfWeek().toString()) + ") "
+                + formatMinute(fromMinute) + "–" + formatMinute(toMinute);
+    }
+
+    private static String formatMinute(int minute) {
+        return String.format("%02d:%02d", minute / 60, minute % 60);
     }
 
     /**
-     * Returns the day-of-week in Title Case.
+     * Returns an enum-style name, such as a day of the week or a month, in Title Case.
      *
-     * @param day The day of week.
-     * @return The title-cased day name.
+     * @param name The upper-case name.
+     * @return The title-cased name.
      */
-    private static String titleCase(DayOfWeek day) {
-        String s = day.toString().toLowerCase();
+    private static String titleCase(String name) {
+        String s = name.toLowerCase();
         return Character.toUpperCase(s.charAt(0)) + s.substring(1);
     }
 }
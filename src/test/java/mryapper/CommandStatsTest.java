@@ -0,0 +1,71 @@
+package mryapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import taskmanager.Storage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CommandStatsTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testHistogram_bucketBounds_shouldContainTheirValues() {
+        for (long v : new long[] {0, 1, 15, 16, 17, 100, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = CommandStats.Histogram.bucketOf(v);
+            assertTrue(CommandStats.Histogram.upperBoundOf(bucket) >= v, "value " + v);
+            assertTrue(bucket == 0 || CommandStats.Histogram.upperBoundOf(bucket - 1) < v, "value " + v);
+        }
+    }
+
+    @Test
+    void testPercentile_uniformLatencies_shouldBeWithinAnEighth() {
+        CommandStats stats = new CommandStats(CommandStats.Level.TIMING);
+        for (long micros = 1; micros <= 1000; micros++) {
+            stats.record("todo", micros * 1000, -1, false);
+        }
+        long p50 = stats.percentile("todo", 0.5);
+        long p99 = stats.percentile("todo", 0.99);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 9 / 8, "p50 " + p50);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000, "p99 " + p99);
+        assertEquals(1_000_000, stats.percentile("todo", 1.0));
+    }
+
+    @Test
+    void testStatsCommand_afterCommands_shouldReportEachKind() throws Exception {
+        MrYapper yapper = new MrYapper(new Storage(dir.resolve("tasks.txt").toString()));
+        Path json = dir.resolve("stats.json");
+        yapper.setStats(CommandStats.Level.ALLOCATION, json);
+        yapper.processCommand("todo read book");
+        yapper.processCommand("todo buy milk");
+        yapper.processCommand("delete 7");
+        yapper.processCommand("fly away");
+
+        String report = yapper.processCommand("stats").message;
+        assertTrue(report.contains("over 4 commands"), report);
+        assertTrue(report.matches("(?s).*\\ntodo +2 +0 .*"), report);
+        assertTrue(report.matches("(?s).*\\ndelete +1 +1 .*"), report);
+        assertTrue(report.matches("(?s).*\\ninvalid +1 +1 .*"), report);
+
+        yapper.writeStats();
+        String written = Files.readString(json);
+        assertTrue(written.contains("\"todo\": {\"count\": 2, \"errors\": 0"), written);
+        assertTrue(written.contains("\"stats\": {\"count\": 1"), written);
+        assertTrue(written.contains("\"storageBytesWritten\": "), written);
+    }
+
+    @Test
+    void testStatsOff_commands_shouldNotBeRecorded() throws Exception {
+        MrYapper yapper = new MrYapper(new Storage(dir.resolve("tasks.txt").toString()));
+        yapper.setStats(CommandStats.Level.OFF, null);
+        yapper.processCommand("todo read book");
+
+        String report = yapper.processCommand("stats").message;
+        assertTrue(report.startsWith("I'm not timing commands"), report);
+        assertTrue(report.contains("over 0 commands"), report);
+    }
+}
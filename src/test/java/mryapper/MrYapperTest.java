@@ -0,0 +1,76 @@
+package mryapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import taskmanager.Durability;
+import taskmanager.Storage;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class MrYapperTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testBye_onExitDurability_shouldSaveChangesHeldBack() throws Exception {
+        Path file = dir.resolve("tasks.txt");
+        Files.write(file, List.of("T | 0 | read book"), StandardCharsets.UTF_8);
+        MrYapper yapper = new MrYapper(new Storage(file.toString(), false, Storage.DEFAULT_COMPACTION_THRESHOLD,
+                Durability.ON_EXIT, Storage.DEFAULT_GROUP_COMMIT_MILLIS));
+        yapper.processCommand("todo buy milk");
+        yapper.processCommand("mark 1");
+        assertEquals(List.of("T | 0 | read book"), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        assertTrue(yapper.processCommand("bye").isExit);
+        assertEquals(List.of("# seq=0 next=3", "#1 T | 1 | read book", "#2 T | 0 | buy milk"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    private MrYapper yapperWithTodos(int count) {
+        MrYapper yapper = new MrYapper(new Storage(dir.resolve("tasks.txt").toString(), true,
+                Storage.DEFAULT_COMPACTION_THRESHOLD));
+        for (int i = 1; i <= count; i++) {
+            yapper.processCommand("todo task" + i);
+        }
+        return yapper;
+    }
+
+    @Test
+    void testList_firstAndLastPage_shouldListOnlyTheirTasks() {
+        MrYapper yapper = yapperWithTodos(5);
+        MrYapper.CommandResult first = yapper.processCommand("list --page 1 --size 2");
+        assertEquals("Here are tasks 1-2 of 5 (page 1 of 3):", first.message);
+        assertEquals(2, first.lineCount);
+        assertEquals("1. #1 [T][ ] task1", first.lineAt.apply(0));
+        assertEquals("2. #2 [T][ ] task2", first.lineAt.apply(1));
+
+        MrYapper.CommandResult last = yapper.processCommand("list --size 2 --page 3");
+        assertEquals("Here are tasks 5-5 of 5 (page 3 of 3):", last.message);
+        assertEquals(1, last.lineCount);
+        assertEquals("5. #5 [T][ ] task5", last.lineAt.apply(0));
+    }
+
+    @Test
+    void testList_pagePastTheEnd_shouldSayHowManyPagesThereAre() {
+        assertEquals("Empty tasks.", yapperWithTodos(0).processCommand("list --page 1").message);
+        MrYapper yapper = yapperWithTodos(5);
+        assertTrue(yapper.processCommand("list --page 4 --size 2").message
+                .contains("There is no page 4! With 2 tasks a page there are only 3."));
+    }
+
+    @Test
+    void testList_badPageOrSize_shouldShowUsage() {
+        MrYapper yapper = yapperWithTodos(3);
+        for (String args : List.of("--size 0", "--size -2", "--page 0", "--page two", "--size 1.5", "--page",
+                "--rows 2")) {
+            MrYapper.CommandResult result = yapper.processCommand("list " + args);
+            assertTrue(result.message.contains("Try list, or list --page N --size M with N and M from 1 up."), args);
+            assertEquals(0, result.lineCount, args);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package mryapper;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class ParserTest {
 
@@ -30,4 +32,33 @@ class ParserTest {
         assertEquals("todo", result[0]);
         assertEquals("buy milk", result[1]);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParse_eventWithDates_shouldFindFlagsButNotSlashesInDates() {
+        String line = "  EVENT  party /from 2/12/2019 1800 /to 2/12/2019 2200 ";
+        ParsedCommand parsed = parser.parse(line, new ParsedCommand());
+        assertEquals(Command.EVENT, parsed.command());
+        assertEquals("party", parsed.textBefore("/from"));
+        assertEquals("2/12/2019 1800", parsed.flagValue("/from"));
+        assertEquals("2/12/2019 2200", parsed.flagValue("/to"));
+        assertNull(parsed.flagValue("/by"));
+    }
+
+    @Test
+    void testParse_reusedForAnotherLine_shouldForgetEarlierFlags() {
+        ParsedCommand parsed = new ParsedCommand();
+        parser.parse("deadline essay /by Monday", parsed);
+        parser.parse("todo fix /etc/hosts", parsed);
+        assertEquals(Command.TODO, parsed.command());
+        assertEquals("fix /etc/hosts", parsed.args());
+        assertFalse(parsed.hasFlag("/by"));
+    }
+
+    @Test
+    void testParse_unknownWord_shouldBeInvalid() {
+        ParsedCommand parsed = parser.parse("todos", new ParsedCommand());
+        assertEquals(Command.INVALID, parsed.command());
+        assertEquals("todos", parsed.commandWord());
+        assertFalse(parsed.hasArgs());
+    }
+}
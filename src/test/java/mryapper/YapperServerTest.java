@@ -0,0 +1,80 @@
+package mryapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import taskmanager.Storage;
+import taskmanager.Task;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class YapperServerTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testServer_manyConcurrentClients_shouldShareOneTaskList() throws Exception {
+        String file = dir.resolve("tasks.txt").toString();
+        YapperServer server = new YapperServer(new MrYapper(new Storage(file)), 0);
+        server.start();
+
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread[] clients = new Thread[200];
+        for (int c = 0; c < clients.length; c++) {
+            int clientNumber = c;
+            clients[c] = new Thread(() -> {
+                try (YapperClient client = new YapperClient(server.getPort())) {
+                    for (int k = 0; k < 5; k++) {
+                        List<String> reply = client.send("todo client" + clientNumber + " task" + k);
+                        assertTrue(reply.get(0).startsWith("Got it."), reply.toString());
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+            clients[c].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        assertTrue(failures.isEmpty(), "clients failed: " + failures);
+
+        try (YapperClient client = new YapperClient(server.getPort())) {
+            List<String> listing = client.send("list");
+            assertEquals(1001, listing.size());
+            Set<String> ids = new HashSet<>();
+            for (String line : listing.subList(1, listing.size())) {
+                ids.add(line.split(" ")[1]);
+            }
+            assertEquals(1000, ids.size());
+        }
+        server.close();
+
+        List<Task> saved = new Storage(file).loadTasks();
+        assertEquals(1000, saved.size());
+    }
+
+    @Test
+    void testServer_bye_shouldAnswerThenHangUp() throws Exception {
+        YapperServer server = new YapperServer(new MrYapper(new Storage(dir.resolve("tasks.txt").toString())), 0);
+        server.start();
+        try (YapperClient client = new YapperClient(server.getPort())) {
+            client.send("todo .hidden file");
+            List<String> found = client.send("find .hidden");
+            assertEquals("1. #1 [T][ ] .hidden file", found.get(1));
+
+            List<String> bye = client.send("bye");
+            assertTrue(bye.get(0).startsWith("Had fun"), bye.toString());
+            assertThrows(IOException.class, () -> client.send("list"));
+        } finally {
+            server.close();
+        }
+    }
+}
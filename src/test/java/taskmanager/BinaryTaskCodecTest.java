@@ -0,0 +1,146 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryTaskCodecTest {
+    @TempDir
+    Path dir;
+
+    private static Task withId(Task task, int id) {
+        task.id = id;
+        return task;
+    }
+
+    /** Builds a record the way versions 1 and 2 laid them out, whose fields all fit a one-byte length */
+    private static void writeRecord(DataOutputStream file, char type, int flags, int id, String description,
+            byte[] dates) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        record.write(type);
+        record.write(flags);
+        if (id > 0) {
+            record.write(id);
+        }
+        record.write(description.length());
+        record.write(description.getBytes(StandardCharsets.UTF_8));
+        record.write(dates);
+        file.write(record.size());
+        file.write(record.toByteArray());
+    }
+
+    private static byte[] minutes(LocalDateTime date) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(0);
+        out.writeInt((int) (date.toEpochSecond(ZoneOffset.UTC) / 60));
+        return bytes.toByteArray();
+    }
+
+    private static byte[] raw(String... dates) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (String date : dates) {
+            bytes.write(1);
+            bytes.write(date.length());
+            bytes.writeBytes(date.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void testWrite_everyKindOfTask_shouldReadBackTheSameTasks() throws IOException, YapperException {
+        List<Task> tasks = new ArrayList<>();
+        Task book = withId(new ToDo("read book"), 1);
+        book.markDone();
+        tasks.add(book);
+        tasks.add(withId(Deadline.fromInput("report", "2/12/2019 1800"), 3));
+        tasks.add(withId(Deadline.fromInput("essay", "sometime soon"), 4));
+        tasks.add(withId(Event.fromInput("conference", "1/12/2019 1000", "3/12/2019 1200"), 5));
+        tasks.add(withId(Event.fromInput("party", "fri", "sat"), 6));
+        tasks.add(withId(Deadline.fromInput("rent", "1/1/2025 0900", Recurrence.parse("month", "2025-12-31", null)),
+                7));
+        List<byte[]> records = Storage.encodeRecords(tasks, BinaryTaskCodec.INSTANCE);
+        Path file = dir.resolve("tasks.bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            BinaryTaskCodec.INSTANCE.write(out, 42, 9, records);
+        }
+
+        LazyTaskList read = LazyTaskList.open(file, BinaryTaskCodec.INSTANCE);
+        assertEquals(42, read.seq());
+        assertEquals(9, read.nextId());
+        assertEquals(tasks.size(), read.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getId(), read.get(i).getId());
+            assertEquals(tasks.get(i).isDone(), read.get(i).isDone());
+            assertEquals(tasks.get(i).toFileString(), read.get(i).toFileString());
+            assertEquals(tasks.get(i).toString(), read.get(i).toString());
+        }
+        assertEquals("[D][ ] essay (by: sometime soon)", read.get(2).toString());
+    }
+
+    @Test
+    void testIndex_version2File_shouldKeepIdsAndNextId() throws IOException, YapperException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(BinaryTaskCodec.MAGIC);
+        out.writeByte(2);
+        out.writeLong(7);
+        out.writeInt(8);
+        writeRecord(out, 'T', 2, 2, "read book", new byte[0]);
+        writeRecord(out, 'D', 3, 5, "report", minutes(LocalDateTime.of(2019, 12, 2, 18, 0)));
+        Path file = dir.resolve("tasks.bin");
+        Files.write(file, bytes.toByteArray());
+
+        LazyTaskList read = LazyTaskList.open(file, BinaryTaskCodec.INSTANCE);
+        assertEquals(7, read.seq());
+        assertEquals(8, read.nextId());
+        assertEquals(2, read.get(0).getId());
+        assertEquals("T | 0 | read book", read.get(0).toFileString());
+        assertEquals(5, read.get(1).getId());
+        assertEquals("D | 1 | report | 2019-12-02T18:00", read.get(1).toFileString());
+    }
+
+    @Test
+    void testIndex_version1File_shouldNumberTasksInOrder() throws IOException, YapperException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(BinaryTaskCodec.MAGIC);
+        out.writeByte(1);
+        out.writeLong(TaskCodec.NO_SEQ);
+        writeRecord(out, 'T', 1, 0, "read book", new byte[0]);
+        writeRecord(out, 'E', 0, 0, "party", raw("fri", "sat"));
+        Path file = dir.resolve("tasks.bin");
+        Files.write(file, bytes.toByteArray());
+
+        List<Task> read = new Storage(file.toString()).loadTasks();
+        assertEquals(2, read.size());
+        assertEquals(1, read.get(0).getId());
+        assertEquals("T | 1 | read book", read.get(0).toFileString());
+        assertEquals(2, read.get(1).getId());
+        assertEquals("E | 0 | party | fri | sat", read.get(1).toFileString());
+        assertEquals(3, Storage.nextIdOf(read));
+    }
+
+    @Test
+    void testIndex_unknownVersion_shouldThrow() throws IOException {
+        Path file = dir.resolve("tasks.bin");
+        byte[] header = BinaryTaskCodec.INSTANCE.header(0, 1);
+        header[BinaryTaskCodec.MAGIC.length] = 4;
+        Files.write(file, header);
+        assertThrows(YapperException.class, () -> LazyTaskList.open(file, BinaryTaskCodec.INSTANCE));
+    }
+}
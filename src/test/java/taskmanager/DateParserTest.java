@@ -0,0 +1,72 @@
+package taskmanager;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+public class DateParserTest {
+    private static final String[] SAMPLES = {
+        "2019-12-02", "2019-12-2", "2019-02-29", "2020-02-29", "2019-04-31", "2019-13-01", "0000-01-01",
+        "2/12/2019", "02/12/2019", "31/4/2019", "29/2/2019", "0/1/2019", "1/0/2019", "1/1/19",
+        "2/12/2019 1800", "2/12/2019 2400", "31/12/2019 2400", "2/12/2019 2401",
+        "2/12/2019 18:00", "2/12/2019  1800",
+        "Monday", "", " ", "2019/12/02", "+2019-12-02", "１/1/2019",
+    };
+
+    @Test
+    void testParseInput_samples_shouldMatchFormatters() {
+        DateTimeFormatter withTime = DateTimeFormatter.ofPattern("d/M/yyyy HHmm");
+        DateTimeFormatter withoutTime = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        for (String s : SAMPLES) {
+            LocalDateTime expected;
+            try {
+                expected = s.contains(" ")
+                        ? LocalDateTime.parse(s, withTime)
+                        : LocalDate.parse(s, withoutTime).atStartOfDay();
+            } catch (DateTimeParseException e) {
+                expected = null;
+            }
+            assertEquals(expected, DateParser.parseInput(s), s);
+        }
+    }
+
+    @Test
+    void testParseDate_samples_shouldMatchFormatters() {
+        DateTimeFormatter dayMonthYear = DateTimeFormatter.ofPattern("d/M/yyyy");
+        for (String s : SAMPLES) {
+            LocalDate expected;
+            try {
+                expected = LocalDate.parse(s.trim());
+            } catch (DateTimeParseException e) {
+                try {
+                    expected = LocalDate.parse(s.trim(), dayMonthYear);
+                } catch (DateTimeParseException e2) {
+                    expected = null;
+                }
+            }
+            assertEquals(expected, DateParser.parseDate(s), s);
+        }
+    }
+
+    @Test
+    void testParseStored_roundTrip_shouldReturnSameDateTime() {
+        LocalDateTime dateTime = LocalDateTime.of(2019, 12, 2, 18, 0);
+        assertEquals(dateTime, DateParser.parseStored(dateTime.toString()));
+        assertEquals(LocalDateTime.of(2019, 12, 3, 0, 0), DateParser.parseStored("2019-12-02T24:00"));
+        assertNull(DateParser.parseStored("2019-12-02T18:00:30"));
+        assertNull(DateParser.parseStored("2019-12-02 18:00"));
+    }
+
+    @Test
+    void testParseDateLenient_repeatedLookup_shouldReturnCachedResult() {
+        assertEquals(LocalDate.of(2019, 12, 2), DateParser.parseDateLenient("2/12/2019 1800"));
+        assertEquals(LocalDate.of(2019, 12, 2), DateParser.parseDateLenient(" 2/12/2019 1800 "));
+        assertNull(DateParser.parseDateLenient("next week"));
+        assertNull(DateParser.parseDateLenient("next week"));
+    }
+}
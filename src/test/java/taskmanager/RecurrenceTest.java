@@ -0,0 +1,64 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+public class RecurrenceTest {
+    @Test
+    void testBetween_weeklyFarFromFirst_shouldFindOnlyOverlappingOccurrences() throws YapperException {
+        Recurrence everyTwoWeeks = Recurrence.parse("2 weeks", null, null);
+        LocalDate first = LocalDate.of(2025, 1, 6);
+        // Occurrence 519 starts on 2044-11-28 and runs into the range; 520 starts within it
+        int[] found = everyTwoWeeks.between(first, 2, LocalDate.of(2044, 11, 30), LocalDate.of(2044, 12, 20));
+        assertArrayEquals(new int[] {519, 520}, found);
+        assertEquals(LocalDate.of(2044, 12, 12), everyTwoWeeks.shift(first, 520));
+        assertNull(everyTwoWeeks.between(first, 0, LocalDate.of(2025, 1, 7), LocalDate.of(2025, 1, 19)));
+    }
+
+    @Test
+    void testBetween_monthlyFromMonthEnd_shouldClampToShorterMonths() throws YapperException {
+        Recurrence monthly = Recurrence.parse("monthly", null, null);
+        LocalDate first = LocalDate.of(2024, 1, 31);
+        assertEquals(LocalDate.of(2024, 2, 29), monthly.shift(first, 1));
+        assertEquals(LocalDate.of(2024, 3, 31), monthly.shift(first, 2));
+        LocalDate leapDay = LocalDate.of(2024, 2, 29);
+        assertArrayEquals(new int[] {1, 1}, monthly.between(first, 0, leapDay, leapDay));
+        assertArrayEquals(new int[] {13, 13},
+                monthly.between(first, 0, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 30)));
+    }
+
+    @Test
+    void testBetween_untilAndTimes_shouldStopAtWhicheverComesFirst() throws YapperException {
+        LocalDate first = LocalDate.of(2025, 3, 1);
+        Recurrence daily = Recurrence.parse("day", "2025-03-10", "5");
+        assertEquals(4, daily.last(first));
+        assertEquals(LocalDate.of(2025, 3, 5), daily.lastDay(first, 0));
+        assertArrayEquals(new int[] {3, 4},
+                daily.between(first, 0, LocalDate.of(2025, 3, 4), LocalDate.of(2025, 3, 31)));
+        assertEquals(LocalDate.MAX, Recurrence.parse("3 days", null, null).lastDay(first, 0));
+    }
+
+    @Test
+    void testFileString_withDoneOccurrences_shouldRoundTrip() throws YapperException {
+        Recurrence rule = Recurrence.parse("2 weeks", "2025-06-30", null).withDone(3, true).withDone(0, true);
+        assertEquals("every=2w until=2025-06-30 done=0,3", rule.toFileString());
+        Recurrence read = Recurrence.fromFileString(rule.toFileString());
+        assertTrue(read.isDone(0) && read.isDone(3) && !read.isDone(1));
+        assertEquals("every=2w until=2025-06-30 done=3", read.withDone(0, false).toFileString());
+        assertEquals("every 2 weeks until 2025-06-30", read.toString());
+    }
+
+    @Test
+    void testParse_unknownUnit_shouldThrow() {
+        assertThrows(YapperException.class, () -> Recurrence.parse("fortnight", null, null));
+        assertThrows(YapperException.class, () -> Recurrence.parse("0 days", null, null));
+        assertThrows(YapperException.class, () -> Recurrence.parse("week", null, "none"));
+    }
+}
@@ -0,0 +1,44 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class ScheduleConflictsTest {
+    private TaskList taskList;
+
+    @BeforeEach
+    void setUp() throws YapperException {
+        taskList = new TaskList();
+        taskList.add(Event.fromInput("conference", "1/12/2019 1000", "3/12/2019 1200"));
+        taskList.add(Event.fromInput("lunch", "2/12/2019 1200", "2/12/2019 1300"));
+        taskList.add(Event.fromInput("review", "3/12/2019 1200", "3/12/2019 1400"));
+        taskList.add(Deadline.fromInput("report", "2/12/2019 1230"));
+    }
+
+    @Test
+    void testBetween_multiDayEvent_shouldConflictOnlyWithOverlappingTimes() {
+        LocalDate third = LocalDate.of(2019, 12, 3);
+        List<String> conflicts = ScheduleConflicts.between(taskList, LocalDate.of(2019, 12, 1), third);
+        // The review starts just as the conference ends, which is no clash
+        assertEquals(List.of("2019-12-01 10:00–2019-12-03 12:00 conference  overlaps  "
+                + "2019-12-02 12:00–13:00 lunch"), conflicts);
+        assertTrue(ScheduleConflicts.between(taskList, third, third).isEmpty());
+    }
+
+    @Test
+    void testWarningFor_recurringEventAdded_shouldNameOnlyEventsItClashesWith() throws YapperException {
+        Event standup = Event.fromInput("standup", "25/11/2019 1230", "25/11/2019 1245",
+                Recurrence.parse("week", null, null));
+        taskList.add(standup);
+        String warning = ScheduleConflicts.warningFor(taskList, standup);
+        assertEquals("\nHeads up! This clashes with:\n  2019-12-01 10:00–2019-12-03 12:00 conference"
+                + "\n  2019-12-02 12:00–13:00 lunch", warning);
+        assertEquals("", ScheduleConflicts.warningFor(taskList, (Event) taskList.get(2)));
+    }
+}
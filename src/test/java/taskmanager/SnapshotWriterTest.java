@@ -0,0 +1,88 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SnapshotWriterTest {
+    @TempDir
+    Path dir;
+
+    private List<Path> filesInDir() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testWrite_existingFile_shouldReplaceItAndLeaveNoTempFile() throws IOException {
+        Path file = dir.resolve("tasks.txt");
+        Files.writeString(file, "old", StandardCharsets.UTF_8);
+        SnapshotWriter.write(file, out -> out.write("new".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("new", Files.readString(file, StandardCharsets.UTF_8));
+        assertEquals(List.of(file), filesInDir());
+    }
+
+    @Test
+    void testWrite_bodyFails_shouldKeepOldFileAndLeaveNoTempFile() throws IOException {
+        Path file = dir.resolve("tasks.txt");
+        Files.writeString(file, "old", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> SnapshotWriter.write(file, out -> {
+            out.write("half written".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        }));
+        assertEquals("old", Files.readString(file, StandardCharsets.UTF_8));
+        assertEquals(List.of(file), filesInDir());
+    }
+
+    @Test
+    void testWrite_existingFile_shouldKeepItsPermissions() throws IOException {
+        Path file = dir.resolve("tasks.txt");
+        Files.writeString(file, "old", StandardCharsets.UTF_8);
+        if (Files.getFileAttributeView(file, PosixFileAttributeView.class) == null) {
+            return; // nothing to keep where there are no POSIX permissions
+        }
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file, permissions);
+        SnapshotWriter.write(file, out -> out.write("new".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(permissions, Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    void testRemoveStale_leftoverTempFiles_shouldDeleteOnlyThoseOfTheFileNotInFlight()
+            throws IOException, YapperException {
+        Path file = dir.resolve("tasks.txt");
+        Path inFlight = SnapshotWriter.writeTemp(file, out -> out.write("new".getBytes(StandardCharsets.UTF_8)));
+        List<Path> stale = List.of(dir.resolve("tasks.txt.1a2b.tmp"), dir.resolve("tasks.txt.journal.3c.tmp"),
+                dir.resolve("tasks.txt.undo.4d.tmp"));
+        Path other = dir.resolve("notes.txt.5e.tmp");
+        for (Path path : stale) {
+            Files.writeString(path, "half written", StandardCharsets.UTF_8);
+        }
+        Files.writeString(other, "not ours", StandardCharsets.UTF_8);
+
+        new Storage(file.toString()).loadTasks();
+        for (Path path : stale) {
+            assertFalse(Files.exists(path), path.toString());
+        }
+        assertTrue(Files.exists(other));
+        SnapshotWriter.install(inFlight, file);
+        assertEquals("new", Files.readString(file, StandardCharsets.UTF_8));
+    }
+}
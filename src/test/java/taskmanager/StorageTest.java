@@ -0,0 +1,411 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class StorageTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testLoadTasks_journalRecords_shouldReplayOnTopOfSnapshot() throws YapperException {
+        String file = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList list = new TaskList(storage.loadTasks());
+        for (String name : new String[]{"task1", "task2", "task3"}) {
+            Task task = new ToDo(name);
+            list.add(task);
+            storage.recordAdd(list::snapshot, task);
+        }
+        list.markTaskAsDone(2);
+        storage.recordMark(list::snapshot, list.snapshot().get(2), true);
+        storage.recordDelete(list::snapshot, list.delete(0));
+
+        List<Task> reloaded = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks();
+        assertEquals(2, reloaded.size());
+        assertEquals("[T][ ] task2", reloaded.get(0).toString());
+        assertEquals("[T][X] task3", reloaded.get(1).toString());
+    }
+
+    @Test
+    void testLoadTasks_tornJournalTail_shouldDropPartialRecord() throws YapperException, IOException {
+        String file = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList list = new TaskList(storage.loadTasks());
+        Task task = new ToDo("task1");
+        list.add(task);
+        storage.recordAdd(list::snapshot, task);
+
+        Path journal = dir.resolve("tasks.txt.journal");
+        long intactSize = Files.size(journal);
+        Files.write(journal, "2 A 0 T | 0 | half-writ".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        List<Task> reloaded = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks();
+        assertEquals(1, reloaded.size());
+        assertEquals(intactSize, Files.size(journal));
+    }
+
+    @Test
+    void testLoadTasks_afterSaveAndJournal_shouldKeepTaskIds() throws YapperException {
+        String file = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList list = new TaskList(storage.loadTasks());
+        for (String name : new String[]{"task1", "task2", "task3"}) {
+            list.add(new ToDo(name));
+        }
+        storage.saveTasks(list.snapshot());
+        storage.recordDelete(list::snapshot, list.delete(2));
+        storage.recordDelete(list::snapshot, list.delete(0));
+        list.markTaskAsDone(list.indexOfId(2));
+        storage.recordMark(list::snapshot, list.snapshot().get(0), true);
+
+        TaskList reloaded = new TaskList(new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks());
+        assertEquals(1, reloaded.getSize());
+        assertEquals(2, reloaded.snapshot().get(0).getId());
+        assertEquals("[T][X] task2", reloaded.snapshot().get(0).toString());
+        Task added = new ToDo("task4");
+        reloaded.add(added);
+        assertEquals(4, added.getId());
+    }
+
+    @Test
+    void testLoadTasks_journalBesideFileWithoutSeq_shouldRefuseToReplayOrSave() throws YapperException, IOException {
+        Path file = dir.resolve("tasks.txt");
+        Storage storage = new Storage(file.toString(), true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList list = new TaskList(storage.loadTasks());
+        for (String name : new String[]{"task1", "task2"}) {
+            Task task = new ToDo(name);
+            list.add(task);
+            storage.recordAdd(list::snapshot, task);
+        }
+        // The first change stamps the new file, so that only the second is in the journal
+        assertEquals(List.of("# seq=0 next=2", "#1 T | 0 | task1"), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        Files.write(file, List.of("T | 0 | edited by hand"), StandardCharsets.UTF_8);
+        Path journal = dir.resolve("tasks.txt.journal");
+        byte[] journaled = Files.readAllBytes(journal);
+        Storage reopened = new Storage(file.toString(), true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        assertThrows(YapperException.class, reopened::loadTasks);
+        assertThrows(YapperException.class, () -> reopened.saveTasks(List.of(new ToDo("task3"))));
+        assertThrows(YapperException.class, new Storage(file.toString())::loadTasks);
+        assertArrayEquals(journaled, Files.readAllBytes(journal));
+        assertEquals(List.of("T | 0 | edited by hand"), Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Loads the tasks through {@code storage} and adds more through it.
+     */
+    private static TaskList addTasks(Storage storage, String... names) throws YapperException {
+        TaskList list = new TaskList(storage.loadTasks());
+        for (String name : names) {
+            Task task = new ToDo(name);
+            list.add(task);
+            storage.recordAdd(list::snapshot, task);
+        }
+        return list;
+    }
+
+    private static List<String> descriptions(List<Task> tasks) {
+        return tasks.stream().map(Task::getDescription).collect(Collectors.toList());
+    }
+
+    @Test
+    void testLoadTasks_switchingJournalOffAndOn_shouldApplyEachChangeOnce() throws YapperException, IOException {
+        Path file = dir.resolve("tasks.txt");
+        Path journal = dir.resolve("tasks.txt.journal");
+        // The first change stamps the new file, so that only the second is in the journal
+        addTasks(new Storage(file.toString(), true, Storage.DEFAULT_COMPACTION_THRESHOLD), "task1", "task2");
+
+        // Without a journal, the one left behind is applied, stamped into the file and deleted
+        addTasks(new Storage(file.toString()), "task3");
+        assertFalse(Files.exists(journal));
+        assertEquals(List.of("# seq=1 next=3", "#1 T | 0 | task1", "#2 T | 0 | task2", "#3 T | 0 | task3"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        // Back on the journal, records carry on from the stamp and none is replayed twice
+        addTasks(new Storage(file.toString(), true, Storage.DEFAULT_COMPACTION_THRESHOLD), "task4");
+        List<String> all = List.of("task1", "task2", "task3", "task4");
+        assertEquals(all, descriptions(new Storage(file.toString(), true,
+                Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks()));
+        assertEquals(all, descriptions(new Storage(file.toString()).loadTasks()));
+        assertFalse(Files.exists(journal));
+        assertEquals(all, descriptions(new Storage(file.toString(), true,
+                Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks()));
+    }
+
+    @Test
+    void testRecordAdd_groupCommit_shouldForceOnceForChangesWithinInterval() throws Exception {
+        String file = dir.resolve("tasks.txt").toString();
+        new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).saveTasks(List.of());
+        Storage every = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD,
+                Durability.EVERY_COMMAND, Storage.DEFAULT_GROUP_COMMIT_MILLIS);
+        addTasks(every, "task1", "task2", "task3");
+        assertEquals(3, every.getForceCount());
+
+        Storage group = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD, Durability.GROUP_COMMIT, 500);
+        addTasks(group, "task4", "task5", "task6");
+        assertEquals(0, group.getForceCount());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (group.getForceCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, group.getForceCount());
+        assertEquals(6, new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks().size());
+    }
+
+    @Test
+    void testRecordDelete_groupCommitWithoutJournal_shouldRewriteWithinIntervalWithoutAnotherCommand()
+            throws Exception {
+        String file = dir.resolve("tasks.bin").toString();
+        Storage storage = new Storage(file, false, Storage.DEFAULT_COMPACTION_THRESHOLD, Durability.GROUP_COMMIT, 500);
+        TaskList list = addTasks(storage, "task1", "task2");
+        // A binary file cannot blank out a record, so the delete waits for a rewrite
+        long deleted = System.currentTimeMillis();
+        storage.recordDelete(list::snapshot, list.delete(0));
+        assertEquals(2, new Storage(file).loadTasks().size());
+
+        long deadline = deleted + 5000;
+        while (new Storage(file).loadTasks().size() == 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(List.of("task2"), descriptions(new Storage(file).loadTasks()));
+        assertTrue(System.currentTimeMillis() - deleted < 2000);
+    }
+
+    @Test
+    void testRecordAdd_onExit_shouldNeitherForceNorRewriteUntilSaved() throws YapperException, IOException {
+        Path file = dir.resolve("tasks.txt");
+        // Without a header the file cannot be changed in place, so every change needs a rewrite
+        Files.write(file, List.of("T | 0 | task1"), StandardCharsets.UTF_8);
+        Storage storage = new Storage(file.toString(), false, Storage.DEFAULT_COMPACTION_THRESHOLD,
+                Durability.ON_EXIT, Storage.DEFAULT_GROUP_COMMIT_MILLIS);
+        TaskList list = addTasks(storage, "task2", "task3");
+        assertEquals(List.of("T | 0 | task1"), Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(0, storage.getForceCount());
+
+        storage.saveTasks(list.snapshot());
+        assertEquals(3, new Storage(file.toString()).loadTasks().size());
+    }
+
+    @Test
+    void testRecordAdd_groupCommitWithoutJournal_shouldWriteInPlaceButDeferForcing()
+            throws YapperException, IOException {
+        Path file = dir.resolve("tasks.txt");
+        Files.write(file, List.of("T | 0 | task1"), StandardCharsets.UTF_8);
+        Storage storage = new Storage(file.toString(), false, Storage.DEFAULT_COMPACTION_THRESHOLD,
+                Durability.GROUP_COMMIT, 60_000);
+        // The first change rewrites the file with a header, which the second is appended to
+        addTasks(storage, "task2", "task3");
+        assertEquals(List.of("# seq=0 next=3", "#1 T | 0 | task1", "#2 T | 0 | task2", "#3 T | 0 | task3"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertEquals(0, storage.getForceCount());
+    }
+
+    @Test
+    void testLoadTasks_fileWithoutIds_shouldNumberTasksInOrder() throws YapperException, IOException {
+        Path file = dir.resolve("tasks.txt");
+        Files.write(file, List.of("T | 0 | task1", "T | 1 | task2"), StandardCharsets.UTF_8);
+        List<Task> tasks = new Storage(file.toString()).loadTasks();
+        assertEquals(1, tasks.get(0).getId());
+        assertEquals(2, tasks.get(1).getId());
+
+        new Storage(file.toString()).saveTasks(tasks);
+        assertEquals(List.of("# seq=0 next=3", "#1 T | 0 | task1", "#2 T | 1 | task2"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSaveTasks_plainListAfterLastTaskDeleted_shouldNotReuseItsId() throws YapperException {
+        String file = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(file);
+        storage.loadTasks();
+        List<Task> tasks = new ArrayList<>(List.of(new ToDo("task1"), new ToDo("task2")));
+        tasks.get(0).id = 1;
+        tasks.get(1).id = 2;
+        storage.saveTasks(tasks);
+        tasks.remove(1);
+        storage.saveTasks(tasks);
+
+        assertEquals(3, Storage.nextIdOf(new Storage(file).loadTasks()));
+    }
+
+    @Test
+    void testLoadTasks_fileReplacedOrTruncatedAfterLoading_shouldKeepTasksReadable()
+            throws YapperException, IOException {
+        Path file = dir.resolve("tasks.txt");
+        Files.write(file, List.of("# seq=0 next=3", "#1 T | 0 | task1", "#2 T | 1 | task2"), StandardCharsets.UTF_8);
+        Storage storage = new Storage(file.toString());
+        List<Task> tasks = storage.loadTasks();
+
+        // Nothing keeps the file open or mapped, so it can be truncated and replaced underneath
+        Files.write(file, new byte[0]);
+        storage.saveTasks(tasks);
+        assertEquals("[T][ ] task1", tasks.get(0).toString());
+        assertEquals("[T][X] task2", tasks.get(1).toString());
+        assertEquals(List.of("# seq=0 next=3", "#1 T | 0 | task1", "#2 T | 1 | task2"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testConvert_binaryRoundTrip_shouldKeepTaskIds() throws YapperException {
+        Storage storage = new Storage(dir.resolve("tasks.txt").toString());
+        TaskList list = new TaskList(storage.loadTasks());
+        list.add(new ToDo("task1"));
+        list.add(Deadline.fromInput("task2", "2/12/2019 1800"));
+        list.delete(0);
+        storage.saveTasks(list.snapshot());
+
+        TaskFileConverter.convert(dir.resolve("tasks.txt"), dir.resolve("tasks.bin"));
+        List<Task> converted = new Storage(dir.resolve("tasks.bin").toString()).loadTasks();
+        assertEquals(1, converted.size());
+        assertEquals(2, converted.get(0).getId());
+        assertEquals(3, Storage.nextIdOf(converted));
+    }
+
+    @Test
+    void testLoadTasks_groupedMarkAndDeleteRecords_shouldReplayEveryTask() throws YapperException {
+        String file = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList list = new TaskList(storage.loadTasks());
+        for (int i = 1; i <= 5; i++) {
+            Task task = new ToDo("task" + i);
+            list.add(task);
+            storage.recordAdd(list::snapshot, task);
+        }
+        list.markTaskAsDone(0);
+        list.markTaskAsDone(1);
+        storage.recordMark(list::snapshot, List.of(list.snapshot().get(0), list.snapshot().get(1)), true);
+        Task fifth = list.delete(4);
+        Task third = list.delete(2);
+        storage.recordDelete(list::snapshot, List.of(fifth, third));
+
+        List<Task> reloaded = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks();
+        assertEquals(3, reloaded.size());
+        assertEquals("[T][X] task1", reloaded.get(0).toString());
+        assertEquals("[T][X] task2", reloaded.get(1).toString());
+        assertEquals("[T][ ] task4", reloaded.get(2).toString());
+    }
+
+    @Test
+    void testLoadHistory_afterRestart_shouldUndoAndJournalTheRestore() throws YapperException {
+        String file = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList list = new TaskList(storage.loadTasks());
+        for (String name : new String[]{"task1", "task2", "task3"}) {
+            list.add(new ToDo(name));
+        }
+        storage.saveTasks(list.snapshot());
+        storage.recordDelete(list::snapshot, list.delete(1));
+        storage.saveTasks(list.snapshot());
+        storage.saveHistory(list);
+
+        Storage restarted = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList reloaded = new TaskList(restarted.loadTasks());
+        restarted.loadHistory(reloaded);
+        UndoHistory.Applied applied = reloaded.undo();
+        restarted.recordRestore(reloaded::snapshot, applied.restored);
+
+        List<Task> replayed = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks();
+        assertEquals(3, replayed.size());
+        assertEquals("task2", replayed.get(1).getDescription());
+        assertEquals(2, replayed.get(1).getId());
+    }
+
+    @Test
+    void testRecordChanges_withoutJournal_shouldWriteIntoDataFileInPlace() throws YapperException, IOException {
+        Path file = dir.resolve("tasks.txt");
+        TaskList list = new TaskList();
+        for (String name : new String[]{"task1", "task2", "task3"}) {
+            list.add(new ToDo(name));
+        }
+        new Storage(file.toString()).saveTasks(list.snapshot());
+
+        Storage storage = new Storage(file.toString());
+        list = new TaskList(storage.loadTasks());
+        list.markTaskAsDone(1);
+        storage.recordMark(list::snapshot, list.snapshot().get(1), true);
+        Task added = new ToDo("task4");
+        list.add(added);
+        storage.recordAdd(list::snapshot, added);
+        storage.recordDelete(list::snapshot, list.delete(0));
+        assertEquals(List.of("# seq=0 next=5", " ".repeat(16), "#2 T | 1 | task2", "#3 T | 0 | task3",
+                "#4 T | 0 | task4"), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        UndoHistory.Applied applied = list.undo();
+        storage.recordRestore(list::snapshot, applied.restored);
+        storage.recordDelete(list::snapshot, list.delete(3));
+        assertEquals(List.of("# seq=0 next=5", "#1 T | 0 | task1", "#2 T | 1 | task2", "#3 T | 0 | task3",
+                " ".repeat(16)), Files.readAllLines(file, StandardCharsets.UTF_8));
+
+        TaskList reloaded = new TaskList(new Storage(file.toString()).loadTasks());
+        assertEquals(3, reloaded.getSize());
+        assertEquals("[T][X] task2", reloaded.snapshot().get(1).toString());
+        Task next = new ToDo("task5");
+        reloaded.add(next);
+        assertEquals(5, next.getId());
+    }
+
+    @Test
+    void testRecordChanges_binaryWithoutJournal_shouldRewriteOnlyForDeletes() throws YapperException {
+        String file = dir.resolve("tasks.bin").toString();
+        TaskList list = new TaskList();
+        for (String name : new String[]{"task1", "task2", "task3"}) {
+            list.add(new ToDo(name));
+        }
+        new Storage(file).saveTasks(list.snapshot());
+
+        Storage storage = new Storage(file);
+        list = new TaskList(storage.loadTasks());
+        list.markTaskAsDone(2);
+        storage.recordMark(list::snapshot, list.snapshot().get(2), true);
+        Task added = new ToDo("task4");
+        list.add(added);
+        storage.recordAdd(list::snapshot, added);
+        storage.recordDelete(list::snapshot, list.delete(1));
+        list.markTaskAsDone(0);
+        storage.recordMark(list::snapshot, list.snapshot().get(0), true);
+
+        List<Task> reloaded = new Storage(file).loadTasks();
+        assertEquals(3, reloaded.size());
+        assertEquals("[T][X] task1", reloaded.get(0).toString());
+        assertEquals("[T][X] task3", reloaded.get(1).toString());
+        assertEquals(4, reloaded.get(2).getId());
+    }
+
+    @Test
+    void testRecordReplace_recurringDeadline_shouldKeepRuleAndDoneOccurrences() throws YapperException {
+        String file = dir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+        TaskList list = new TaskList(storage.loadTasks());
+        Task rent = Deadline.fromInput("rent", "1/1/2025 0900", Recurrence.parse("month", "2025-12-31", null));
+        list.add(rent);
+        storage.recordAdd(list::snapshot, rent);
+        Task changed = list.markOccurrence(0, LocalDate.of(2025, 3, 1), true);
+        storage.recordReplace(list::snapshot, List.of(changed));
+
+        Task replayed = new Storage(file, true, Storage.DEFAULT_COMPACTION_THRESHOLD).loadTasks().get(0);
+        assertEquals("D | 0 | rent | 2025-01-01T09:00 | every=m until=2025-12-31 done=2", replayed.toFileString());
+        storage.saveTasks(list.snapshot());
+        TaskFileConverter.convert(dir.resolve("tasks.txt"), dir.resolve("tasks.bin"));
+        Task converted = new Storage(dir.resolve("tasks.bin").toString()).loadTasks().get(0);
+        assertEquals(replayed.toFileString(), converted.toFileString());
+        assertEquals("[D][ ] rent (by: Jan 01 2025, 9AM, every month until 2025-12-31)", converted.toString());
+    }
+}
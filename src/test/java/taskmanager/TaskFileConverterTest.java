@@ -0,0 +1,87 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TaskFileConverterTest {
+    @TempDir
+    Path dir;
+
+    private Storage journaled(Path file) {
+        return new Storage(file.toString(), true, Storage.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    private List<String> descriptions(List<Task> tasks) {
+        return tasks.stream().map(Task::getDescription).collect(Collectors.toList());
+    }
+
+    @Test
+    void testConvert_sourceWithJournal_shouldFoldItInAndStampItsSeq() throws YapperException, IOException {
+        Path source = dir.resolve("tasks.txt");
+        Path target = dir.resolve("tasks.bin");
+        Storage storage = journaled(source);
+        TaskList list = new TaskList(storage.loadTasks());
+        for (String name : List.of("task1", "task2", "task3")) {
+            Task task = new ToDo(name);
+            list.add(task);
+            storage.recordAdd(list::snapshot, task);
+        }
+
+        assertEquals(3, TaskFileConverter.convert(source, target));
+        assertEquals(0, Files.size(Storage.journalPath(source)));
+        assertEquals("# seq=2 next=4", Files.readAllLines(source, StandardCharsets.UTF_8).get(0));
+        assertEquals(2, LazyTaskList.open(target, BinaryTaskCodec.INSTANCE).seq());
+
+        // Neither file gets the journaled changes a second time, and the binary file takes new ones
+        assertEquals(List.of("task1", "task2", "task3"), descriptions(journaled(source).loadTasks()));
+        Storage converted = journaled(target);
+        TaskList convertedList = new TaskList(converted.loadTasks());
+        Task task = new ToDo("task4");
+        convertedList.add(task);
+        converted.recordAdd(convertedList::snapshot, task);
+        assertEquals(List.of("task1", "task2", "task3", "task4"), descriptions(journaled(target).loadTasks()));
+    }
+
+    @Test
+    void testConvert_legacySource_shouldLeaveItAloneAndStampNoSeq() throws YapperException, IOException {
+        Path source = dir.resolve("tasks.txt");
+        Path target = dir.resolve("tasks.bin");
+        List<String> lines = List.of("T | 0 | task1", "D | 1 | task2 | 2019-12-02T18:00");
+        Files.write(source, lines, StandardCharsets.UTF_8);
+
+        assertEquals(2, TaskFileConverter.convert(source, target));
+        assertEquals(lines, Files.readAllLines(source, StandardCharsets.UTF_8));
+        LazyTaskList converted = LazyTaskList.open(target, BinaryTaskCodec.INSTANCE);
+        assertEquals(TaskCodec.NO_SEQ, converted.seq());
+        assertEquals(3, converted.nextId());
+        assertEquals("D | 1 | task2 | 2019-12-02T18:00", converted.get(1).toFileString());
+    }
+
+    @Test
+    void testConvert_targetHasJournal_shouldRefuseAndWriteNothing() throws IOException {
+        Path source = dir.resolve("tasks.txt");
+        Path target = dir.resolve("tasks.bin");
+        Files.write(source, List.of("T | 0 | task1"), StandardCharsets.UTF_8);
+        Files.write(Storage.journalPath(target), List.of("1 A T | 0 | other"), StandardCharsets.UTF_8);
+
+        assertThrows(YapperException.class, () -> TaskFileConverter.convert(source, target));
+        assertFalse(Files.exists(target));
+    }
+
+    @Test
+    void testConvert_missingSource_shouldThrow() {
+        assertThrows(YapperException.class,
+                () -> TaskFileConverter.convert(dir.resolve("tasks.txt"), dir.resolve("tasks.bin")));
+    }
+}
@@ -4,9 +4,14 @@ import mryapper.YapperException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class TaskListTest {
     private TaskList taskList;
@@ -27,7 +32,7 @@ public class TaskListTest {
         Task removedTask = taskList.delete(1); // Deleting "task2"
         assertEquals(initialSize - 1, taskList.getSize());
         assertEquals("task2", removedTask.getDescription());
-        assertEquals("task3", taskList.getTasks().get(1).getDescription());
+        assertEquals("task3", taskList.snapshot().get(1).getDescription());
     }
 
     @Test
@@ -40,4 +45,229 @@ public class TaskListTest {
         YapperException exception2 = assertThrows(YapperException.class, () -> taskList.delete(-1));
         assertEquals("Task number out of bounds!", exception2.getMessage());
     }
+
+    @Test
+    void testFindTasks_multipleWords_shouldMatchTasksContainingAllWords() {
+        taskList.add(new ToDo("read Notebook chapter"));
+        taskList.add(new ToDo("read paper"));
+        ArrayList<Task> found = taskList.findTasks("BOOK read");
+        assertEquals(1, found.size());
+        assertEquals("read Notebook chapter", found.get(0).getDescription());
+    }
+
+    @Test
+    void testFindTasks_afterAddAndDelete_shouldKeepListOrder() throws YapperException {
+        assertEquals(3, taskList.findTasks("ask").size());
+        taskList.add(new ToDo("task4"));
+        taskList.delete(0);
+        ArrayList<Task> found = taskList.findTasks("task");
+        assertEquals(3, found.size());
+        assertEquals("task2", found.get(0).getDescription());
+        assertEquals("task4", found.get(2).getDescription());
+    }
+
+    @Test
+    void testFindTasksFuzzy_misspeltWords_shouldRankFewestTyposFirst() throws YapperException {
+        taskList.add(new ToDo("team meeting"));
+        taskList.add(new ToDo("meetings with teams"));
+        taskList.add(new ToDo("meat market"));
+        assertTrue(taskList.findTasks("meetng").isEmpty());
+        List<Task> found = taskList.findTasksFuzzy("meetng", 10);
+        assertEquals(2, found.size());
+        assertEquals("team meeting", found.get(0).getDescription());
+        // Both words must match, and swapped letters count as one typo
+        found = taskList.findTasksFuzzy("Team meetign", 10);
+        assertEquals(List.of("team meeting", "meetings with teams"), found.stream().map(Task::getDescription).toList());
+        taskList.delete(3);
+        assertEquals(1, taskList.findTasksFuzzy("team meetign", 1).size());
+        assertEquals("meetings with teams", taskList.findTasksFuzzy("team meetign", 1).get(0).getDescription());
+    }
+
+    @Test
+    void testFindTasksFuzzy_shortWordWithOneTypo_shouldStillMatch() throws YapperException {
+        taskList.add(new ToDo("read book"));
+        taskList.add(new ToDo("team lunch"));
+        // Every trigram of these words has the typo in it
+        assertEquals(List.of("read book"), taskList.findTasksFuzzy("bokk", 10).stream()
+                .map(Task::getDescription).toList());
+        assertEquals(List.of("team lunch"), taskList.findTasksFuzzy("lnuch", 10).stream()
+                .map(Task::getDescription).toList());
+        assertEquals(List.of("team lunch"), taskList.findTasksFuzzy("tema", 10).stream()
+                .map(Task::getDescription).toList());
+    }
+
+    @Test
+    void testDelete_earlierTask_shouldKeepIdsAndResolveShiftedPosition() throws YapperException {
+        int id = taskList.snapshot().get(2).getId();
+        taskList.delete(0);
+        assertEquals(1, taskList.indexOfId(id));
+        assertEquals("task3", taskList.snapshot().get(taskList.indexOfId(id)).getDescription());
+        assertThrows(YapperException.class, () -> taskList.indexOfId(1));
+    }
+
+    @Test
+    void testAdd_afterDeletingLastTask_shouldNotReuseId() throws YapperException {
+        int lastId = taskList.snapshot().get(2).getId();
+        taskList.delete(2);
+        Task added = new ToDo("task4");
+        taskList.add(added);
+        assertEquals(lastId + 1, added.getId());
+    }
+
+    @Test
+    void testDelete_manyRandomPositions_shouldMatchArrayList() throws YapperException {
+        List<Task> expected = new ArrayList<>(taskList.snapshot());
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            if (expected.isEmpty() || random.nextInt(3) == 0) {
+                Task task = new ToDo("task" + (i + 10));
+                taskList.add(task);
+                expected.add(task);
+            } else {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), taskList.delete(index));
+            }
+            if (!expected.isEmpty()) {
+                Task probe = expected.get(random.nextInt(expected.size()));
+                assertEquals(expected.indexOf(probe), taskList.indexOfId(probe.getId()));
+            }
+        }
+        assertEquals(expected, taskList.snapshot());
+    }
+
+    @Test
+    void testSnapshot_laterChanges_shouldNotAffectIt() throws YapperException {
+        TaskSnapshot before = taskList.snapshot();
+        assertSame(before, taskList.snapshot());
+
+        taskList.markTaskAsDone(1);
+        taskList.delete(0);
+        taskList.add(new ToDo("task4"));
+
+        assertEquals(3, before.size());
+        assertEquals("[T][ ] task1", before.get(0).toString());
+        assertEquals("[T][ ] task2", before.get(1).toString());
+        TaskSnapshot after = taskList.snapshot();
+        assertTrue(after.version() > before.version());
+        assertEquals("[T][X] task2", after.get(0).toString());
+        assertEquals("task4", after.get(2).getDescription());
+        assertThrows(UnsupportedOperationException.class, () -> after.add(new ToDo("task5")));
+    }
+
+    @Test
+    void testSnapshot_concurrentReaders_shouldAlwaysSeeWholeVersions() throws Exception {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                long lastVersion = -1;
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        TaskSnapshot snapshot = taskList.snapshot();
+                        assertTrue(snapshot.version() >= lastVersion);
+                        lastVersion = snapshot.version();
+                        int count = 0;
+                        int lastId = 0;
+                        for (Task task : snapshot) {
+                            assertTrue(task.getId() > lastId, "ids must stay in list order");
+                            lastId = task.getId();
+                            count++;
+                        }
+                        assertEquals(snapshot.size(), count);
+                        taskList.findTasks("task");
+                    } catch (Throwable t) {
+                        failures.add(t);
+                        return;
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            int size = taskList.getSize();
+            if (size == 0 || random.nextInt(3) == 0) {
+                taskList.add(new ToDo("task" + (i + 10)));
+            } else if (random.nextBoolean()) {
+                taskList.delete(random.nextInt(size));
+            } else {
+                taskList.markTaskAsDone(random.nextInt(size));
+            }
+        }
+        for (Thread reader : readers) {
+            reader.interrupt();
+            reader.join();
+        }
+        assertTrue(failures.isEmpty(), "readers failed: " + failures);
+        assertEquals(taskList.getSize(), taskList.findTasks("task").size());
+    }
+
+    @Test
+    void testUndo_deleteInTheMiddle_shouldRestoreTaskInPlaceWithItsId() throws YapperException {
+        Task removed = taskList.delete(1);
+        taskList.add(new ToDo("task4"));
+        taskList.undo(); // the add
+        UndoHistory.Applied applied = taskList.undo(); // the delete
+        assertEquals(List.of(removed), applied.restored);
+        assertEquals(3, taskList.getSize());
+        assertSame(removed, taskList.get(1));
+        assertEquals(2, removed.getId());
+        assertEquals(1, taskList.indexOfId(2));
+        assertEquals("task2", taskList.findTasks("task").get(1).getDescription());
+
+        taskList.redo();
+        assertEquals("task3", taskList.get(1).getDescription());
+        taskList.redo();
+        assertEquals("task4", taskList.get(2).getDescription());
+        assertThrows(YapperException.class, () -> taskList.redo());
+    }
+
+    @Test
+    void testUndo_stepOfSeveralMarks_shouldRevertThemTogether() throws YapperException {
+        taskList.beginStep("mark 1-3");
+        for (int i = 0; i < 3; i++) {
+            taskList.markTaskAsDone(i);
+        }
+        taskList.endStep();
+        TaskSnapshot marked = taskList.snapshot();
+
+        UndoHistory.Applied applied = taskList.undo();
+        assertEquals("mark 1-3", applied.label);
+        assertEquals(3, applied.replaced.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("[T][ ] task" + (i + 1), taskList.get(i).toString());
+            assertEquals("[T][X] task" + (i + 1), marked.get(i).toString());
+        }
+        assertThrows(YapperException.class, () -> taskList.undo());
+    }
+
+    @Test
+    void testRedo_afterNewChange_shouldHaveNothingToRedo() throws YapperException {
+        taskList.delete(0);
+        taskList.undo();
+        taskList.add(new ToDo("task4"));
+        YapperException e = assertThrows(YapperException.class, () -> taskList.redo());
+        assertEquals("There is nothing to redo!", e.getMessage());
+    }
+
+    @Test
+    void testUndo_manyDeletesAfterReclaimingSlots_shouldRestoreOriginalOrder() throws YapperException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            tasks.add(new ToDo("t" + i));
+        }
+        TaskList list = new TaskList(tasks);
+        Random random = new Random(3);
+        for (int i = 0; i < 250; i++) {
+            list.delete(random.nextInt(list.getSize()));
+        }
+        for (int i = 0; i < 250; i++) {
+            list.undo();
+        }
+        for (int i = 0; i < 300; i++) {
+            assertEquals("t" + i, list.get(i).getDescription());
+            assertEquals(i + 1, list.get(i).getId());
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskQueryTest {
+    private TaskList taskList;
+
+    @BeforeEach
+    void setUp() throws YapperException {
+        taskList = new TaskList();
+        taskList.add(Deadline.fromInput("finish report", "15/9/2025 1800"));
+        taskList.add(Deadline.fromInput("pay rent", "1/8/2025 0900", Recurrence.parse("month", null, null)));
+        taskList.add(Event.fromInput("report review", "20/9/2025 1000", "20/9/2025 1100"));
+        taskList.add(new ToDo("write report"));
+        taskList.add(Deadline.fromInput("old report", "1/8/2025 1200"));
+        taskList.markTaskAsDone(4);
+    }
+
+    private List<String> descriptions(String query) throws YapperException {
+        List<String> found = new ArrayList<>();
+        for (Task task : taskList.query(TaskQuery.parse(query), null)) {
+            found.add(task.getDescription());
+        }
+        return found;
+    }
+
+    @Test
+    void testQuery_allFilters_shouldMatchOnlyTasksPassingEveryOne() throws YapperException {
+        assertEquals(List.of("finish report"),
+                descriptions("type:deadline done:no before:2025-10-01 after:2025-09-01 text:report"));
+        // The monthly rent falls due in September too, and before: leaves out the day given
+        assertEquals(List.of("finish report", "pay rent"), descriptions("type:d after:2025-09-01 before:2025-10-01"));
+        assertEquals(List.of("pay rent"), descriptions("after:2025-11-01 before:2025-11-02"));
+        assertEquals(List.of("write report"), descriptions("REPORT type:todo"));
+    }
+
+    @Test
+    void testQuery_selectiveTextFilter_shouldLookUpKeywordsAndCheckOnlyThose() throws YapperException {
+        taskList.add(new ToDo("budget"));
+        List<String> steps = new ArrayList<>();
+        taskList.query(TaskQuery.parse("done:no text:budget"), steps::add);
+        assertEquals("1. Looked up text \"budget\" in the keyword index: 1 tasks", steps.get(3));
+        assertEquals("Found 1 of 6 tasks, looking at 1 of them.", steps.get(steps.size() - 1));
+
+        // The counts only estimate, so the list is read, but they do follow changes
+        steps.clear();
+        taskList.query(TaskQuery.parse("done:yes"), steps::add);
+        assertEquals("  done: 1 (type counts)", steps.get(1));
+        assertEquals("1. Read all 6 tasks", steps.get(2));
+        taskList.delete(4);
+        steps.clear();
+        assertTrue(taskList.query(TaskQuery.parse("done:yes"), steps::add).isEmpty());
+        assertEquals("  done: 0 (type counts)", steps.get(1));
+    }
+
+    @Test
+    void testParse_badFilters_shouldThrow() {
+        assertTrue(TaskQuery.isQuery("report Type:deadline"));
+        assertFalse(TaskQuery.isQuery("report note:this"));
+        assertThrows(YapperException.class, () -> TaskQuery.parse("type:chore"));
+        assertThrows(YapperException.class, () -> TaskQuery.parse("done:maybe"));
+        assertThrows(YapperException.class, () -> TaskQuery.parse("before:tomorrow"));
+        assertThrows(YapperException.class, () -> TaskQuery.parse("after:2025-09-01 before:2025-09-01"));
+        assertThrows(YapperException.class, () -> TaskQuery.parse("text:"));
+    }
+}
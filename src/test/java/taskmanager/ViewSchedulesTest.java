@@ -0,0 +1,86 @@
+package taskmanager;
+
+import mryapper.YapperException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ViewSchedulesTest {
+    private TaskList taskList;
+
+    @BeforeEach
+    void setUp() throws YapperException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(Event.fromInput("conference", "1/12/2019 1000", "3/12/2019 1200"));
+        tasks.add(Deadline.fromInput("report", "2/12/2019 1800"));
+        tasks.add(Deadline.fromInput("essay", "2/12/2019"));
+        taskList = new TaskList(tasks);
+    }
+
+    @Test
+    void testForDate_multiDayEventAndDeadlines_shouldOrderByTime() {
+        String schedule = ViewSchedules.forDate(taskList, LocalDate.of(2019, 12, 2));
+        String[] lines = schedule.split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[2].endsWith("[E] conference"));
+        assertEquals("18:00  [D] report", lines[3]);
+        assertEquals("??:??  [D] essay (time unknown)", lines[4]);
+    }
+
+    @Test
+    void testForDate_afterDelete_shouldDropTaskFromSchedule() throws YapperException {
+        ViewSchedules.forDate(taskList, LocalDate.of(2019, 12, 2));
+        taskList.delete(0);
+        assertFalse(ViewSchedules.forDate(taskList, LocalDate.of(2019, 12, 2)).contains("conference"));
+    }
+
+    @Test
+    void testForRange_multiDayEvent_shouldAppearOnEveryDay() {
+        String schedule = ViewSchedules.forRange(taskList, LocalDate.of(2019, 11, 30), LocalDate.of(2019, 12, 5));
+        assertTrue(schedule.startsWith("Schedule for 2019-12-01"));
+        assertTrue(schedule.contains("Schedule for 2019-12-03"));
+        assertFalse(schedule.contains("Schedule for 2019-12-04"));
+    }
+
+    @Test
+    void testForWeek_anyDateInWeek_shouldListAllSevenDays() {
+        String schedule = ViewSchedules.forWeek(taskList, LocalDate.of(2019, 12, 4));
+        assertTrue(schedule.startsWith("Week of 2019-12-02 to 2019-12-08"));
+        assertEquals(7, schedule.split("Schedule for ").length - 1);
+        assertFalse(schedule.contains("Schedule for 2019-12-01"));
+    }
+
+    @Test
+    void testForRange_recurringEvent_shouldShowEachOccurrenceWithItsOwnDoneState() throws YapperException {
+        Event standup = Event.fromInput("standup", "2/12/2019 0930", "2/12/2019 0945",
+                Recurrence.parse("week", null, "3"));
+        taskList.add(standup);
+        int index = taskList.indexOfId(standup.getId());
+        taskList.markOccurrence(index, LocalDate.of(2019, 12, 9), true);
+
+        String schedule = ViewSchedules.forRange(taskList, LocalDate.of(2019, 12, 1), LocalDate.of(2019, 12, 31));
+        assertEquals(3, schedule.split("standup", -1).length - 1);
+        assertTrue(schedule.contains("09:30–09:45  [E] standup (done)"));
+        assertTrue(ViewSchedules.forDate(taskList, LocalDate.of(2019, 12, 16)).endsWith("09:30–09:45  [E] standup"));
+        assertFalse(ViewSchedules.forDate(taskList, LocalDate.of(2019, 12, 23)).contains("standup"));
+    }
+
+    @Test
+    void testFindFree_busyEventsAndDeadline_shouldListEarliestGapsAroundThem() {
+        taskList.add(Deadline.fromInput("invoice", "5/12/2019 1830"));
+        List<String> slots = new ArrayList<>();
+        int found = ViewSchedules.findFree(taskList, LocalDate.of(2019, 12, 1), LocalDate.of(2019, 12, 31),
+                Duration.ofHours(1), LocalTime.of(17, 0), LocalTime.of(20, 0), 4, slots::add);
+        assertEquals(4, found);
+        assertEquals(List.of("2019-12-03 (Tuesday) 17:00–20:00", "2019-12-04 (Wednesday) 17:00–20:00",
+                "2019-12-05 (Thursday) 17:00–18:30", "2019-12-05 (Thursday) 18:30–20:00"), slots);
+    }
+}